@@ -0,0 +1,96 @@
+package mediarental;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of counting and listing the media available to rent, by checking each media and
+ * with the manager's set of rented ids.  A tenth of a generated catalog is rented.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AvailabilityBenchmark {
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  private Manager manager;
+  private List<Media> media;
+
+  /**
+   * Loads the catalog
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.manager = new Manager();
+    this.manager.load(BenchmarkCatalogs.getDirectory(this.size, this.mix));
+    this.media = this.manager.getAllMedia();
+  }
+
+  /**
+   * Counts the available media by checking each one
+   * @return The number of available media
+   */
+  @Benchmark
+  public int countByScan() {
+    int available = 0;
+
+    for(Media item: this.media) {
+      if(!item.isRented()) {
+        available++;
+      }
+    }
+
+    return available;
+  }
+
+  /**
+   * Counts the available media from the set of rented ids
+   * @return The number of available media
+   */
+  @Benchmark
+  public int count() {
+    return this.manager.getAvailableCount();
+  }
+
+  /**
+   * Lists the available media
+   * @return The available media
+   */
+  @Benchmark
+  public List<Media> list() {
+    return this.manager.getAvailableMedia();
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+}
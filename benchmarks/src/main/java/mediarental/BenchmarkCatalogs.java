@@ -0,0 +1,95 @@
+package mediarental;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Synthetic catalogs shared by the JMH benchmarks.  Generating a large catalog takes far longer than
+ * benchmarking it, so each size and media mix is generated once, into a directory that is kept 
+ * between runs.  Catalogs are kept in the directory named by the "media.benchmark.dir" system 
+ * property, or in "media-benchmarks" in the temporary directory.
+ *
+ * Benchmarks may rent, return and save media in a catalog, but must leave it with the media it was 
+ * generated with, and remove any manifest or snapshot they write.
+ */
+class BenchmarkCatalogs {
+  // hidden file written once a catalog is complete, so an interrupted catalog is generated again
+  private static final String COMPLETE = ".complete";
+
+  // seed for the generated media, so every run benchmarks the same catalog
+  private static final long SEED = 42;
+
+  // how far back the files of a generated catalog are dated, in milliseconds.  Well past the time a 
+  // manifest or snapshot needs files left unmodified before it trusts them, so neither has to wait.
+  private static final long AGE = 24L * 60 * 60 * 1000;
+
+  /**
+   * Catalogs are only used through the static methods
+   */
+  private BenchmarkCatalogs() {
+  }
+
+  /**
+   * Gets the directory of a generated catalog, generating it first if it hasn't been
+   * @param size The number of media in the catalog
+   * @param mix The relative number of ebooks, music CDs and movie DVDs, in "ebook:music:movie" form
+   * @return The catalog directory
+   * @throws IOException If the catalog could not be generated
+   */
+  static File getDirectory(int size, String mix) throws IOException {
+    File root = new File(System.getProperty("media.benchmark.dir", 
+      new File(System.getProperty("java.io.tmpdir"), "media-benchmarks").getPath()));
+    File directory = new File(root, "catalog-" + size + "-" + mix.replace(':', '-'));
+    File complete = new File(directory, COMPLETE);
+
+    if(!complete.exists()) {
+      int[] weights = CatalogGenerator.parseMix(mix);
+
+      deleteDirectory(directory);
+      new CatalogGenerator(SEED, weights[0], weights[1], weights[2]).writeDirectory(directory, size);
+      backdate(directory);
+      Files.createFile(complete.toPath());
+    }
+
+    return directory;
+  }
+
+  /**
+   * Dates every file of a catalog in the past, as if it had been generated long ago.  Files saved 
+   * again by a benchmark are newer, and are only checked again by a manifest or snapshot.
+   * @param directory The catalog directory
+   * @throws IOException If a file could not be dated
+   */
+  private static void backdate(File directory) throws IOException {
+    FileTime time = FileTime.fromMillis(System.currentTimeMillis() - AGE);
+
+    try(DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath())) {
+      for(Path entry: entries) {
+        Files.setLastModifiedTime(entry, time);
+      }
+    }
+  }
+
+  /**
+   * Deletes a catalog directory and everything in it
+   * @param directory The directory to delete
+   * @throws IOException If the directory could not be deleted
+   */
+  private static void deleteDirectory(File directory) throws IOException {
+    if(!directory.exists()) {
+      return;
+    }
+
+    try(DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath())) {
+      for(Path entry: entries) {
+        Files.delete(entry);
+      }
+    }
+
+    Files.delete(directory.toPath());
+  }
+}
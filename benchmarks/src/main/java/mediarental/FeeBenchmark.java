@@ -0,0 +1,85 @@
+package mediarental;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark of pricing a whole catalog two ways: calling each Media's own fee calculation,
+ * which uses the default rules, and pricing the whole list with the manager's compiled
+ * PricingRules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FeeBenchmark {
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  private Manager manager;
+  private List<Media> media;
+  private PricingRules rules;
+
+  /**
+   * Loads the catalog
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.manager = new Manager();
+    this.manager.load(BenchmarkCatalogs.getDirectory(this.size, this.mix));
+    this.media = this.manager.getAllMedia();
+    this.rules = this.manager.getPricingRules();
+  }
+
+  /**
+   * Prices every media with its own fee calculation
+   * @param blackhole Consumes the fees
+   */
+  @Benchmark
+  public void perMedia(Blackhole blackhole) {
+    for(Media item: this.media) {
+      blackhole.consume(item.caculateRentalFee());
+    }
+  }
+
+  /**
+   * Prices every media with the compiled rules
+   * @return The fees
+   */
+  @Benchmark
+  public double[] rules() {
+    return this.rules.calculateFees(this.media);
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+}
@@ -0,0 +1,122 @@
+package mediarental;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of Manager.find() over a loaded catalog, with and without the title index, stored 
+ * as objects or in columns, for a mix of searches that match titles and searches that don't.  
+ * Type-ahead searches ask for a limited number of results for each prefix of a title word, the way 
+ * searching as the user types does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FindBenchmark {
+  // number of different searches, a power of two so the next one is picked with a mask
+  private static final int SEARCHES = 256;
+
+  // most results asked for by each type-ahead search
+  private static final int TYPE_AHEAD_LIMIT = 500;
+
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  // fraction of searches that match titles
+  @Param({"0.0", "0.5", "1.0"})
+  public double hits;
+
+  // true to search with the title index
+  @Param({"false", "true"})
+  public boolean indexed;
+
+  // true to store media in columns, which are searched without decoding most titles
+  @Param({"false", "true"})
+  public boolean columnar;
+
+  private Manager manager;
+  private String[] queries;
+  private String[] prefixes;
+  private int next;
+
+  /**
+   * Loads the catalog and picks the searches
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.manager = new Manager();
+    this.manager.setTitleIndexing(this.indexed);
+    this.manager.setColumnar(this.columnar);
+    this.manager.load(BenchmarkCatalogs.getDirectory(this.size, this.mix));
+
+    // hits search for title words, misses for letters that never appear in titles
+    Random random = new Random(this.size);
+    this.queries = new String[SEARCHES];
+    this.prefixes = new String[SEARCHES];
+
+    for(int i = 0; i < SEARCHES; i++) {
+      String word = CatalogGenerator.getWord(random.nextInt(1000));
+
+      if(random.nextDouble() < this.hits) {
+        this.queries[i] = word.substring(0, 4);
+      } else {
+        this.queries[i] = "qxjz".substring(0, 3 + random.nextInt(2));
+      }
+
+      this.prefixes[i] = word.substring(0, 1 + random.nextInt(word.length()));
+    }
+
+    this.next = 0;
+  }
+
+  /**
+   * Finds every media with a title containing the next search
+   * @return The media found
+   */
+  @Benchmark
+  public ArrayList<Media> find() {
+    return this.manager.find(this.queries[this.next++ & (SEARCHES - 1)]);
+  }
+
+  /**
+   * Finds the first media with a title containing the next prefix of a title word
+   * @return The media found
+   */
+  @Benchmark
+  public ArrayList<Media> typeAhead() {
+    return this.manager.find(this.prefixes[this.next++ & (SEARCHES - 1)], TYPE_AHEAD_LIMIT);
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+}
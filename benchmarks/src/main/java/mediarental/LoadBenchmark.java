@@ -0,0 +1,108 @@
+package mediarental;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of Manager.load() of a whole catalog directory: parsing every file on one or more 
+ * threads, using the manifest to skip unchanged files, or reading the binary snapshot.
+ *
+ * The default sizes run up to 10 million media, which needs a large heap and takes a long time to 
+ * generate the first time.  Smaller runs can pick sizes, for example:
+ *   java -jar benchmarks/target/benchmarks.jar LoadBenchmark -p size=1000,100000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  // what load() reads: "files" parses every file, "manifest" and "snapshot" read those instead
+  @Param({"files", "manifest", "snapshot"})
+  public String source;
+
+  // threads used by load() to parse files
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private File directory;
+  private Manager manager;
+
+  /**
+   * Generates the catalog if needed, and writes the manifest or snapshot to load from
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.directory = BenchmarkCatalogs.getDirectory(this.size, this.mix);
+    this.manager = new Manager();
+    this.manager.setLoadParallelism(this.parallelism);
+
+    if(this.source.equals("manifest")) {
+      this.manager.setManifestEnabled(true);
+    } else if(this.source.equals("snapshot")) {
+      // the snapshot holds the title index, so it is read rather than built
+      this.manager.setTitleIndexing(true);
+      this.manager.setSnapshotEnabled(true);
+    } else if(!this.source.equals("files")) {
+      throw new IllegalArgumentException("Unknown source: " + this.source);
+    }
+
+    if(!this.source.equals("files")) {
+      // closing writes the manifest or snapshot of the first load for the rest to use
+      this.manager.load(this.directory);
+      this.manager.close();
+
+      if(this.source.equals("snapshot") && MediaSnapshot.read(this.directory) == null) {
+        throw new IllegalStateException("Snapshot can't be used, so loads would parse the files");
+      }
+    }
+  }
+
+  /**
+   * Loads the catalog
+   * @return The loaded media
+   * @throws Exception If loading fails
+   */
+  @Benchmark
+  public List<Media> load() throws Exception {
+    this.manager.load(this.directory);
+    return this.manager.getAllMedia();
+  }
+
+  /**
+   * Closes the manager and removes the manifest and snapshot, leaving the catalog as it was generated
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+
+    MediaManifest.getFile(this.directory).delete();
+    MediaSnapshot.getFile(this.directory).delete();
+  }
+}
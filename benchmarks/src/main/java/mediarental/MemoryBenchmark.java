@@ -0,0 +1,104 @@
+package mediarental;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the heap used by loaded media, stored as Media objects or in columns.  Each
+ * iteration loads the catalog once, and the "bytesPerMedia" counter reports the heap still in use
+ * after a garbage collection, divided by the number of media.  The time reported includes the
+ * collections, so only the counter is worth comparing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MemoryBenchmark {
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  // true to store media in columns
+  @Param({"false", "true"})
+  public boolean columnar;
+
+  private File directory;
+
+  /**
+   * Heap used by the media loaded in an iteration, reported alongside the time
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Heap {
+    // bytes of heap per media
+    public long bytesPerMedia;
+
+    /**
+     * Clears the count before each iteration
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+      this.bytesPerMedia = 0;
+    }
+  }
+
+  /**
+   * Generates the catalog if needed
+   * @throws Exception If the catalog could not be generated
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.directory = BenchmarkCatalogs.getDirectory(this.size, this.mix);
+  }
+
+  /**
+   * Loads the catalog and measures the heap it uses
+   * @param heap Counter for the heap used
+   * @throws Exception If loading fails
+   */
+  @Benchmark
+  public void load(Heap heap) throws Exception {
+    Manager manager = new Manager();
+    manager.setColumnar(this.columnar);
+
+    long before = usedMemory();
+    manager.load(this.directory);
+    heap.bytesPerMedia = (usedMemory() - before) / this.size;
+    manager.close();
+  }
+
+  /**
+   * Gets the heap in use after a garbage collection
+   * @return The bytes of heap in use
+   */
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+
+    // collect a few times, as one request may not collect everything
+    for(int i = 0; i < 3; i++) {
+      System.gc();
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,100 @@
+package mediarental;
+
+import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of parsing single media files, with a reused MediaParser or the way files were read
+ * before it: a Scanner for the line, then the comma-delimited constructor for the type.  Run with
+ * "-prof gc" to see the bytes allocated per file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+  // number of different files parsed, a power of two so the next one is picked with a mask
+  private static final int FILES = 1024;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  private File[] files;
+  private MediaParser parser;
+  private int next;
+
+  /**
+   * Picks the files to parse from a catalog
+   * @throws Exception If the catalog could not be generated or listed
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    List<File> found = new ArrayList<File>();
+
+    try(DirectoryStream<Path> entries = Files.newDirectoryStream(BenchmarkCatalogs.getDirectory(FILES * 2, this.mix).toPath())) {
+      for(Path entry: entries) {
+        if(found.size() < FILES && !entry.getFileName().toString().startsWith(".")) {
+          found.add(entry.toFile());
+        }
+      }
+    }
+
+    this.files = found.toArray(new File[0]);
+    this.parser = new MediaParser();
+    this.next = 0;
+  }
+
+  /**
+   * Parses the next file with the reused parser
+   * @return The Media read from the file
+   * @throws Exception If the file could not be parsed
+   */
+  @Benchmark
+  public Media parser() throws Exception {
+    return this.parser.parse(this.files[this.next++ & (FILES - 1)]);
+  }
+
+  /**
+   * Reads the next file with a Scanner and the comma-delimited constructors
+   * @return The Media read from the file
+   * @throws Exception If the file could not be read
+   */
+  @Benchmark
+  public Media scanner() throws Exception {
+    File file = this.files[this.next++ & (FILES - 1)];
+    Scanner scanner = new Scanner(file);
+    String data = scanner.nextLine();
+    scanner.close();
+
+    switch(MediaType.forName(file.getName().split("-")[0])) {
+      case EBOOK:
+        return new EBook(data);
+      case MUSIC_CD:
+        return new MusicCD(data);
+      default:
+        return new MovieDVD(data);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package mediarental;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of Manager.query() with queries on type, a few years published and the type
+ * attribute, planned by the manager, compared with checking every media against the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark {
+  // number of different queries, a power of two so the next one is picked with a mask
+  private static final int QUERIES = 256;
+
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  private Manager manager;
+  private List<Media> media;
+  private MediaQuery[] queries;
+  private int next;
+
+  /**
+   * Loads the catalog and creates the queries
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.manager = new Manager();
+    this.manager.setTitleIndexing(true);
+    this.manager.load(BenchmarkCatalogs.getDirectory(this.size, this.mix));
+    this.media = this.manager.getAllMedia();
+
+    Random random = new Random(this.size);
+    int currentYear = RentalFees.getCurrentYear();
+    this.queries = new MediaQuery[QUERIES];
+
+    for(int i = 0; i < QUERIES; i++) {
+      MediaType type = MediaType.values()[random.nextInt(MediaType.values().length)];
+      int year = currentYear - random.nextInt(50);
+
+      this.queries[i] = new MediaQuery();
+      this.queries[i].setType(type);
+      this.queries[i].setYearRange(year - 2, year);
+
+      if(type != MediaType.MOVIE_DVD) {
+        this.queries[i].setAttributeRange(0, 40);
+      }
+    }
+
+    this.next = 0;
+  }
+
+  /**
+   * Runs the next query with the index the manager picks for it
+   * @return The media found
+   */
+  @Benchmark
+  public ArrayList<Media> planned() {
+    return this.manager.query(this.queries[this.next++ & (QUERIES - 1)], Integer.MAX_VALUE);
+  }
+
+  /**
+   * Runs the next query by checking every media
+   * @return The media found
+   */
+  @Benchmark
+  public ArrayList<Media> scan() {
+    MediaQuery query = this.queries[this.next++ & (QUERIES - 1)];
+    ArrayList<Media> matches = new ArrayList<Media>();
+
+    for(Media item: this.media) {
+      if(query.matches(item)) {
+        matches.add(item);
+      }
+    }
+
+    return matches;
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+}
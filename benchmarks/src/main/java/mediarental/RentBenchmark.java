@@ -0,0 +1,99 @@
+package mediarental;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of Manager.rent() followed by returnMedia() of the same media, as a clerk checking 
+ * media in and out would.  Each rental and return is written to the rental journal.  Every media is 
+ * returned, so the catalog is left as it was generated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RentBenchmark {
+  // most media cycled through, so the same media aren't rented every time
+  private static final int RENTED_MEDIA = 1000;
+
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  // true to rent through a ConcurrentManager, to see the cost of its locking
+  @Param({"false", "true"})
+  public boolean concurrent;
+
+  private Manager manager;
+  private int[] ids;
+  private int next;
+
+  /**
+   * Loads the catalog and picks the media to rent
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.manager = (this.concurrent ? new ConcurrentManager() : new Manager());
+    this.manager.load(BenchmarkCatalogs.getDirectory(this.size, this.mix));
+
+    List<Media> available = this.manager.getAvailableMedia();
+
+    if(available.size() == 0) {
+      throw new IllegalStateException("No media available to rent in catalog of " + this.size);
+    }
+
+    this.ids = new int[Math.min(RENTED_MEDIA, available.size())];
+
+    for(int i = 0; i < this.ids.length; i++) {
+      this.ids[i] = available.get(i).getId();
+    }
+
+    this.next = 0;
+  }
+
+  /**
+   * Rents the next media and returns it
+   * @return The rental fee
+   * @throws Exception If renting or returning fails
+   */
+  @Benchmark
+  public double rentAndReturn() throws Exception {
+    int id = this.ids[this.next];
+    this.next = (this.next + 1) % this.ids.length;
+
+    double fee = this.manager.rent(id);
+    this.manager.returnMedia(id);
+
+    return fee;
+  }
+
+  /**
+   * Closes the manager, saving the journaled rentals to their files
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+}
@@ -0,0 +1,108 @@
+package mediarental;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of Manager.save() of media to their files, directly or with write-behind.  Each 
+ * invocation saves a batch of media and then flushes, so the time includes writing the saves and 
+ * forcing them to disk either way.  Media are saved with the values they were loaded with, so the 
+ * catalog is left as it was generated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveBenchmark {
+  // media saved by each invocation
+  private static final int SAVES = 1000;
+
+  // number of media saved over and over by the hot save benchmark
+  private static final int HOT_MEDIA = 16;
+
+  // number of media in the catalog
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  // relative number of ebooks, music CDs and movie DVDs: even, mostly ebooks, or mostly movies
+  @Param({"1:1:1", "8:1:1", "1:1:8"})
+  public String mix;
+
+  // true to queue saves and write them in the background
+  @Param({"false", "true"})
+  public boolean writeBehind;
+
+  private Manager manager;
+  private List<Media> media;
+
+  /**
+   * Loads the catalog
+   * @throws Exception If the catalog could not be generated or loaded
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.manager = new Manager();
+    this.manager.setWriteBehind(this.writeBehind);
+    this.manager.load(BenchmarkCatalogs.getDirectory(this.size, this.mix));
+
+    this.media = this.manager.getAllMedia().subList(0, Math.min(SAVES, this.size));
+  }
+
+  /**
+   * Saves a batch of different media, then waits for them to be on disk
+   * @throws Exception If saving fails
+   */
+  @Benchmark
+  @OperationsPerInvocation(SAVES)
+  public void save() throws Exception {
+    for(int i = 0; i < SAVES; i++) {
+      this.manager.save(this.media.get(i % this.media.size()));
+    }
+
+    this.manager.flush();
+  }
+
+  /**
+   * Saves a few media over and over, as when the same media are edited repeatedly, then waits for 
+   * them to be on disk.  With write-behind, saves of a media still waiting to be written are 
+   * combined.
+   * @throws Exception If saving fails
+   */
+  @Benchmark
+  @OperationsPerInvocation(SAVES)
+  public void saveHot() throws Exception {
+    int hot = Math.min(HOT_MEDIA, this.media.size());
+
+    for(int i = 0; i < SAVES; i++) {
+      this.manager.save(this.media.get(i % hot));
+    }
+
+    this.manager.flush();
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+}
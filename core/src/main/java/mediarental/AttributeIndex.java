@@ -0,0 +1,223 @@
+package mediarental;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Indexes of media ids by year published and by type, used by Manager.query() to find the media
+ * that can match a query without checking every media.  Years are kept sorted, so the media
+ * published in a range of years are found with two binary searches.  Types are kept as one sorted
+ * list of ids per type.
+ *
+ * The index isn't updated as media changes; it is rebuilt when media is added or loaded.
+ */
+public class AttributeIndex {
+  // years published in increasing order, and the id of the media with each
+  private int[] years;
+  private int[] yearIds;
+
+  // ids of the media of each type (by ordinal), in increasing order
+  private int[][] typeIds;
+
+  /**
+   * Creates an AttributeIndex of the given media attributes
+   * @param ids The id of each media
+   * @param years The year published of each media
+   * @param types The type of each media
+   * @param count The number of media
+   */
+  public AttributeIndex(int[] ids, int[] years, MediaType[] types, int count) {
+    // sort by year then id, packed together so one primitive sort keeps them paired
+    long[] packed = new long[count];
+
+    for(int i = 0; i < count; i++) {
+      packed[i] = ((long) years[i] << 32) | (ids[i] & 0xFFFFFFFFL);
+    }
+
+    Arrays.sort(packed);
+
+    this.years = new int[count];
+    this.yearIds = new int[count];
+
+    for(int i = 0; i < count; i++) {
+      this.years[i] = (int) (packed[i] >> 32);
+      this.yearIds[i] = (int) packed[i];
+    }
+
+    // partition ids by type
+    MediaType[] values = MediaType.values();
+    int[] counts = new int[values.length];
+
+    for(int i = 0; i < count; i++) {
+      counts[types[i].ordinal()]++;
+    }
+
+    this.typeIds = new int[values.length][];
+
+    for(int type = 0; type < values.length; type++) {
+      this.typeIds[type] = new int[counts[type]];
+      counts[type] = 0;
+    }
+
+    for(int i = 0; i < count; i++) {
+      int type = types[i].ordinal();
+      this.typeIds[type][counts[type]++] = ids[i];
+    }
+
+    for(int[] partition: this.typeIds) {
+      Arrays.sort(partition);
+    }
+  }
+
+  /**
+   * Creates an empty AttributeIndex, to be filled by read()
+   */
+  private AttributeIndex() {
+  }
+
+  /**
+   * Writes the index so it can be read back by read() without sorting again: the number of media, 
+   * the sorted years and their ids, then the number of types and the ids of each type.
+   * 
+   * @param out The stream to write to
+   * @throws IOException If the index could not be written
+   */
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(this.years.length);
+
+    for(int i = 0; i < this.years.length; i++) {
+      out.writeInt(this.years[i]);
+    }
+
+    for(int i = 0; i < this.yearIds.length; i++) {
+      out.writeInt(this.yearIds[i]);
+    }
+
+    out.writeInt(this.typeIds.length);
+
+    for(int[] partition: this.typeIds) {
+      out.writeInt(partition.length);
+
+      for(int id: partition) {
+        out.writeInt(id);
+      }
+    }
+  }
+
+  /**
+   * Reads an index written by write(), using bulk reads of each array
+   * @param buffer The buffer to read from, positioned at the start of the index
+   * @return The AttributeIndex read
+   * @throws IOException If the buffer doesn't hold a complete index
+   */
+  public static AttributeIndex read(ByteBuffer buffer) throws IOException {
+    AttributeIndex index = new AttributeIndex();
+    int count = MediaSnapshot.getInt(buffer);
+
+    index.years = MediaSnapshot.getInts(buffer, count);
+    index.yearIds = MediaSnapshot.getInts(buffer, count);
+
+    // types are stored by ordinal, so the index is only usable with the same types
+    if(MediaSnapshot.getInt(buffer) != MediaType.values().length) {
+      throw new IOException("Attribute index is for different media types");
+    }
+
+    index.typeIds = new int[MediaType.values().length][];
+
+    for(int type = 0; type < index.typeIds.length; type++) {
+      index.typeIds[type] = MediaSnapshot.getInts(buffer, MediaSnapshot.getInt(buffer));
+    }
+
+    return index;
+  }
+
+  /**
+   * Counts the media published in a range of years
+   * @param minYear The earliest 4-digit year, or MediaQuery.ANY
+   * @param maxYear The latest 4-digit year, or MediaQuery.ANY
+   * @return The number of media published in the range
+   */
+  public int countYears(int minYear, int maxYear) {
+    return yearEnd(maxYear) - yearStart(minYear);
+  }
+
+  /**
+   * Gets the ids of the media published in a range of years
+   * @param minYear The earliest 4-digit year, or MediaQuery.ANY
+   * @param maxYear The latest 4-digit year, or MediaQuery.ANY
+   * @return The ids, in increasing order
+   */
+  public int[] getYearIds(int minYear, int maxYear) {
+    int start = yearStart(minYear);
+    int end = yearEnd(maxYear);
+
+    if(end <= start) {
+      return new int[0];
+    }
+
+    int[] ids = Arrays.copyOfRange(this.yearIds, start, end);
+    Arrays.sort(ids);
+
+    return ids;
+  }
+
+  /**
+   * Counts the media of a type
+   * @param type The MediaType
+   * @return The number of media of the type
+   */
+  public int countType(MediaType type) {
+    return this.typeIds[type.ordinal()].length;
+  }
+
+  /**
+   * Gets the ids of the media of a type
+   * @param type The MediaType
+   * @return The ids, in increasing order
+   */
+  public int[] getTypeIds(MediaType type) {
+    return this.typeIds[type.ordinal()].clone();
+  }
+
+  /**
+   * Finds the first position with a year at or after the given year
+   * @param minYear The earliest year, or MediaQuery.ANY for the start of the index
+   * @return The position in the sorted years
+   */
+  private int yearStart(int minYear) {
+    return (minYear == MediaQuery.ANY ? 0 : firstAfter(minYear - 1));
+  }
+
+  /**
+   * Finds the position after the last year at or before the given year
+   * @param maxYear The latest year, or MediaQuery.ANY for the end of the index
+   * @return The position in the sorted years
+   */
+  private int yearEnd(int maxYear) {
+    return (maxYear == MediaQuery.ANY ? this.years.length : firstAfter(maxYear));
+  }
+
+  /**
+   * Finds the first position with a year after the given year
+   * @param year The year
+   * @return The position of the first later year, or the number of media if there is none
+   */
+  private int firstAfter(int year) {
+    int low = 0;
+    int high = this.years.length;
+
+    while(low < high) {
+      int middle = (low + high) >>> 1;
+
+      if(this.years[middle] <= year) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+}
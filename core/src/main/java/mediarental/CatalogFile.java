@@ -0,0 +1,344 @@
+package mediarental;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MediaStore that keeps all Media in a single packed binary catalog file.  The file starts with a
+ * header (magic number and version) followed by one record per save:
+ *
+ *   type tag (1 byte), id (4), yearPublished (4), rented (1), type attribute (8),
+ *   title length (2), title (UTF-8)
+ *
+ * Saves always append a new record, and when a catalog is read the last record for an id wins, so
+ * updates never rewrite existing data.  exportDirectory() followed by importDirectory() can be used
+ * to compact a catalog.
+ */
+public class CatalogFile implements MediaStore {
+  // identifies catalog files ("MRCL")
+  public static final int MAGIC = 0x4D52434C;
+
+  // current version of the record layout
+  public static final short VERSION = 1;
+
+  // size of the file header
+  public static final int HEADER_SIZE = 6;
+
+  // size of the fixed width part of each record, before the title bytes
+  public static final int RECORD_HEADER_SIZE = 20;
+
+  // offsets of the fields within a record
+  public static final int TAG_OFFSET = 0;
+  public static final int ID_OFFSET = 1;
+  public static final int YEAR_OFFSET = 5;
+  public static final int RENTED_OFFSET = 9;
+  public static final int ATTRIBUTE_OFFSET = 10;
+  public static final int TITLE_LENGTH_OFFSET = 18;
+
+  // longest title that can be stored, in UTF-8 bytes
+  private static final int MAX_TITLE_LENGTH = 0xFFFF;
+
+  // the catalog file
+  private File file;
+  private FileChannel channel;
+
+  // position just after the last complete record
+  private long end;
+
+  /**
+   * Opens the given catalog file, creating it if it doesn't exist yet
+   * @param file The catalog file
+   * @throws IOException If the file could not be opened or is not a catalog file
+   */
+  public CatalogFile(File file) throws IOException {
+    this(file, true);
+  }
+
+  /**
+   * Opens the given catalog file
+   * @param file The catalog file
+   * @param create true to create the file, or write a header into it if it is empty
+   * @throws IOException If the file could not be opened or is not a catalog file
+   */
+  private CatalogFile(File file, boolean create) throws IOException {
+    this.file = file;
+    this.channel = create
+      ? FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+      : FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    try {
+      if(create && this.channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).flip();
+        this.channel.write(header, 0);
+      } else {
+        checkHeader(this.channel, file);
+      }
+
+      this.end = this.channel.size();
+    } catch(IOException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens an existing catalog file for reading and saving.  The header is checked on a read-only open
+   * first, so a file that isn't a catalog, including an empty one, is never written to.
+   *
+   * @param file The catalog file
+   * @return The opened catalog file
+   * @throws IOException If the file could not be opened or is not a catalog file
+   */
+  public static CatalogFile open(File file) throws IOException {
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      checkHeader(channel, file);
+    }
+
+    return new CatalogFile(file, false);
+  }
+
+  /**
+   * Gets the catalog file
+   * @return The catalog file
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Reads all Media in the catalog, keeping only the most recent record for each id.  An incomplete
+   * record at the end of the file (from an interrupted save) is discarded.
+   *
+   * @return An ArrayList containing the Media in the catalog, in the order they were first saved
+   * @throws IOException If the catalog could not be read
+   * @throws MediaCreationException If a record in the catalog is not valid
+   */
+  public ArrayList<Media> readAll() throws IOException, MediaCreationException {
+    ArrayList<Media> records = new ArrayList<Media>();
+    MediaIdIndex latest = new MediaIdIndex();
+
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+      Channels.newInputStream(this.channel.position(HEADER_SIZE))));
+
+    long position = HEADER_SIZE;
+    byte[] title = new byte[64];
+
+    try {
+      while(position < this.end) {
+        int tag = in.readUnsignedByte();
+        int id = in.readInt();
+        int yearPublished = in.readInt();
+        boolean rented = in.readBoolean();
+        double attribute = in.readDouble();
+        int titleLength = in.readUnsignedShort();
+
+        if(titleLength > title.length) {
+          title = new byte[Math.max(titleLength, title.length * 2)];
+        }
+
+        in.readFully(title, 0, titleLength);
+
+        MediaType type = MediaType.forTag(tag);
+
+        if(type == null) {
+          throw new MediaCreationException("Unknown media type in catalog " + this.file.getName() +
+            " at position " + position);
+        }
+
+        Media item = type.create(id, new String(title, 0, titleLength, StandardCharsets.UTF_8),
+          yearPublished, rented, attribute);
+
+        records.add(item);
+        latest.put(item);
+        position += RECORD_HEADER_SIZE + titleLength;
+      }
+    } catch(EOFException e) {
+      // drop the partial record so the next save starts on a record boundary
+      this.channel.truncate(position);
+      this.end = position;
+    }
+
+    // keep only the most recent record for each id
+    ArrayList<Media> items = new ArrayList<Media>(latest.size());
+
+    for(Media item: records) {
+      if(latest.get(item.getId()) == item) {
+        items.add(item);
+      }
+    }
+
+    return items;
+  }
+
+  /**
+   * Saves the given Media by appending a record for it to the catalog
+   * @param media The Media to save
+   * @throws IOException If the record could not be written
+   */
+  public void save(Media media) throws IOException {
+    saveAll(Collections.singletonList(media));
+  }
+
+  /**
+   * Saves all of the given Media by appending records for them to the catalog in a single write.
+   * Safe to call from multiple threads.
+   * @param items The Media to save
+   * @throws IOException If the records could not be written
+   */
+  public synchronized void saveAll(List<Media> items) throws IOException {
+    ArrayList<byte[]> titles = new ArrayList<byte[]>(items.size());
+    int length = 0;
+
+    for(Media item: items) {
+      byte[] title = item.getTitle().getBytes(StandardCharsets.UTF_8);
+
+      if(title.length > MAX_TITLE_LENGTH) {
+        throw new IOException("Title is too long to store for media id: " + item.getId());
+      }
+
+      titles.add(title);
+      length += RECORD_HEADER_SIZE + title.length;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+
+    for(int i = 0; i < items.size(); i++) {
+      Media item = items.get(i);
+      byte[] title = titles.get(i);
+
+      buffer.put(item.getType().getTag());
+      buffer.putInt(item.getId());
+      buffer.putInt(item.getYearPublished());
+      buffer.put((byte) (item.isRented() ? 1 : 0));
+      buffer.putDouble(item.getTypeAttribute());
+      buffer.putShort((short) title.length);
+      buffer.put(title);
+    }
+
+    buffer.flip();
+
+    while(buffer.hasRemaining()) {
+      this.end += this.channel.write(buffer, this.end);
+    }
+  }
+
+  /**
+   * Forces the records saved so far to disk
+   * @throws IOException If the catalog could not be forced to disk
+   */
+  public void sync() throws IOException {
+    this.channel.force(false);
+  }
+
+  /**
+   * Closes the catalog file
+   * @throws IOException If the file could not be closed
+   */
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Checks if the given file starts with a catalog header
+   * @param file The file to check
+   * @return true if the file is a catalog file
+   */
+  public static boolean isCatalog(File file) {
+    if(!file.isFile()) {
+      return false;
+    }
+
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      checkHeader(channel, file);
+      return true;
+    } catch(IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Creates a catalog file containing all the media in a directory of "type-id.txt" files
+   *
+   * @param directory The directory to read media from
+   * @param catalog The catalog file to create. Any existing file is replaced.
+   * @throws FileNotFoundException If no files were found in the given directory.
+   * @throws MediaCreationException If Media could not be created from the given directory.
+   * @throws IOException If the catalog could not be written
+   */
+  public static void importDirectory(File directory, File catalog)
+      throws FileNotFoundException, MediaCreationException, IOException {
+    Manager manager = new Manager();
+    manager.load(directory);
+
+    if(catalog.exists() && !catalog.delete()) {
+      throw new IOException("Unable to replace catalog: " + catalog.getAbsolutePath());
+    }
+
+    CatalogFile out = new CatalogFile(catalog);
+
+    try {
+      out.saveAll(manager.getAllMedia());
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes every media in a catalog file out to a directory as "type-id.txt" files
+   *
+   * @param catalog The catalog file to read
+   * @param directory The directory to write media files to
+   * @throws MediaCreationException If the catalog contains invalid records
+   * @throws IOException If the catalog could not be read or the files could not be written
+   */
+  public static void exportDirectory(File catalog, File directory) throws MediaCreationException, IOException {
+    CatalogFile in = open(catalog);
+    MediaDirectory out = new MediaDirectory(directory);
+
+    try {
+      for(Media item: in.readAll()) {
+        out.save(item);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Verifies that a channel starts with a supported catalog header
+   * @param channel The channel to check
+   * @param file The file the channel is for, used in error messages
+   * @throws IOException If the header could not be read or is not a supported catalog header
+   */
+  private static void checkHeader(FileChannel channel, File file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    while(header.hasRemaining() && channel.read(header, header.position()) > 0) {
+    }
+
+    header.flip();
+
+    if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+      throw new IOException("Not a media catalog file: " + file.getAbsolutePath());
+    }
+
+    short version = header.getShort();
+
+    if(version != VERSION) {
+      throw new IOException("Unsupported media catalog version " + version + ": " + file.getAbsolutePath());
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package mediarental;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Media held in columns rather than as one object per media: parallel arrays of ids, years, type
+ * tags and type attributes, with every title packed into one array of UTF-8 bytes.  This uses a
+ * fraction of the memory of Media objects and their title Strings, and scans such as find() read
+ * memory in order instead of following a reference for every media.
+ *
+ * As a List, each get() returns a new MediaView over the record.  The rental status of a record can
+ * be changed, safely from multiple threads, but nothing else can.
+ */
+public class ColumnarCatalog extends AbstractList<Media> implements MediaRecords, RandomAccess {
+  // number of records
+  private int size;
+
+  // columns, one entry per record sorted by id
+  private int[] ids;
+  private int[] years;
+  private byte[] tags;
+
+  // chapters, length or size, depending on the type of each record
+  private double[] attributes;
+
+  // all titles as UTF-8, where title i is the bytes from titleOffsets[i] to titleOffsets[i + 1]
+  private byte[] titles;
+  private int[] titleOffsets;
+
+  // records whose title is plain ASCII, so can be searched without decoding it
+  private BitSet asciiTitles;
+
+  // rental status, one bit per record, in words that can be updated atomically
+  private AtomicLongArray rented;
+
+  /**
+   * Creates a ColumnarCatalog holding the values of the given Media
+   * @param items The Media to store, sorted by id with no id appearing more than once
+   * @throws IllegalArgumentException If the items are not sorted by id or an id appears more than once
+   */
+  public ColumnarCatalog(List<Media> items) {
+    this.size = items.size();
+    this.ids = new int[this.size];
+    this.years = new int[this.size];
+    this.tags = new byte[this.size];
+    this.attributes = new double[this.size];
+    this.titleOffsets = new int[this.size + 1];
+    this.asciiTitles = new BitSet(this.size);
+    this.rented = new AtomicLongArray((this.size + 63) >>> 6);
+
+    // titles are encoded once to size the packed array, then copied into it
+    byte[][] encoded = new byte[this.size][];
+    int length = 0;
+    int i = 0;
+
+    for(Media item: items) {
+      if(i > 0 && item.getId() <= this.ids[i - 1]) {
+        throw new IllegalArgumentException("Media must be sorted by id with no duplicates: " + item.getId());
+      }
+
+      this.ids[i] = item.getId();
+      this.years[i] = item.getYearPublished();
+      this.tags[i] = item.getType().getTag();
+      this.attributes[i] = item.getTypeAttribute();
+
+      if(item.isRented()) {
+        setRented(i, true);
+      }
+
+      encoded[i] = item.getTitle().getBytes(StandardCharsets.UTF_8);
+      length += encoded[i].length;
+      i++;
+    }
+
+    this.titles = new byte[length];
+    int offset = 0;
+
+    for(i = 0; i < this.size; i++) {
+      System.arraycopy(encoded[i], 0, this.titles, offset, encoded[i].length);
+      this.titleOffsets[i] = offset;
+
+      if(isAscii(encoded[i])) {
+        this.asciiTitles.set(i);
+      }
+
+      offset += encoded[i].length;
+    }
+
+    this.titleOffsets[this.size] = offset;
+  }
+
+  /**
+   * Gets a lightweight Media for the record at the given index
+   * @param index The index of the record
+   * @return A new MediaView for the record
+   */
+  public Media get(int index) {
+    if(index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+
+    return new MediaView(this, index);
+  }
+
+  /**
+   * Gets the number of records
+   * @return The number of records
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Finds the record index for a media id
+   * @param id The id to look for
+   * @return The index of the record with the id, or -1 if there is none
+   */
+  public int indexOfId(int id) {
+    int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+    return (index >= 0 ? index : -1);
+  }
+
+  /**
+   * Gets the type of a record
+   * @param index The record index
+   * @return The MediaType of the record
+   */
+  public MediaType getType(int index) {
+    return MediaType.forTag(this.tags[index]);
+  }
+
+  /**
+   * Gets the id of a record
+   * @param index The record index
+   * @return The id of the record
+   */
+  public int getId(int index) {
+    return this.ids[index];
+  }
+
+  /**
+   * Gets the title of a record
+   * @param index The record index
+   * @return The title of the record
+   */
+  public String getTitle(int index) {
+    int start = this.titleOffsets[index];
+    return new String(this.titles, start, this.titleOffsets[index + 1] - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the year of publication of a record
+   * @param index The record index
+   * @return The 4-digit year of the record
+   */
+  public int getYearPublished(int index) {
+    return this.years[index];
+  }
+
+  /**
+   * Gets the rental status of a record
+   * @param index The record index
+   * @return true if rented, false if not
+   */
+  public boolean isRented(int index) {
+    return (this.rented.get(index >>> 6) & (1L << index)) != 0;
+  }
+
+  /**
+   * Gets the type specific attribute (chapters, length or size) of a record
+   * @param index The record index
+   * @return The type attribute of the record
+   */
+  public double getTypeAttribute(int index) {
+    return this.attributes[index];
+  }
+
+  /**
+   * Sets the rental status of a record
+   * @param index The record index
+   * @param rented true if rented, false if not
+   */
+  public void setRented(int index, boolean rented) {
+    // if this fails the record already has the new status
+    compareAndSetRented(index, !rented, rented);
+  }
+
+  /**
+   * Atomically sets the rental status of a record if it currently has the expected value
+   * @param index The record index
+   * @param expected The rental status the record is expected to have
+   * @param rented The new rental status
+   * @return true if the status was changed, false if it didn't have the expected value
+   */
+  public boolean compareAndSetRented(int index, boolean expected, boolean rented) {
+    int word = index >>> 6;
+    long bit = 1L << index;
+
+    while(true) {
+      long bits = this.rented.get(word);
+
+      if(((bits & bit) != 0) != expected) {
+        return false;
+      }
+
+      long updated = (rented ? bits | bit : bits & ~bit);
+
+      // another record in the same word may have changed, so try again
+      if(this.rented.compareAndSet(word, bits, updated)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Searches for records with titles containing the given text, ignoring case.  ASCII titles are
+   * searched in the packed bytes without creating a String for each title.
+   *
+   * @param query The lower cased text to search for
+   * @param limit The most matches to return
+   * @param availableOnly true to skip rented records
+   * @return An ArrayList of views of the matching records, in id order
+   */
+  public ArrayList<Media> find(String query, int limit, boolean availableOnly) {
+    ArrayList<Media> matches = new ArrayList<Media>();
+    byte[] pattern = query.getBytes(StandardCharsets.UTF_8);
+    boolean asciiQuery = isAscii(pattern);
+
+    for(int i = 0; i < this.size && matches.size() < limit; i++) {
+      boolean match;
+
+      if(availableOnly && isRented(i)) {
+        match = false;
+      } else if(asciiQuery && this.asciiTitles.get(i)) {
+        match = containsIgnoreCase(this.titleOffsets[i], this.titleOffsets[i + 1], pattern);
+      } else {
+        match = getTitle(i).toLowerCase().contains(query);
+      }
+
+      if(match) {
+        matches.add(new MediaView(this, i));
+      }
+    }
+
+    return matches;
+  }
+
+  /**
+   * Checks if part of the packed titles contains an ASCII pattern, ignoring case
+   * @param start The start of the title in the packed titles
+   * @param end The end of the title in the packed titles
+   * @param pattern The lower cased ASCII pattern
+   * @return true if the title contains the pattern
+   */
+  private boolean containsIgnoreCase(int start, int end, byte[] pattern) {
+    int last = end - pattern.length;
+
+    for(int i = start; i <= last; i++) {
+      int j = 0;
+
+      while(j < pattern.length && toLowerCase(this.titles[i + j]) == pattern[j]) {
+        j++;
+      }
+
+      if(j == pattern.length) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Lower cases an ASCII letter
+   * @param b An ASCII character
+   * @return The lower case letter, or the character unchanged if it isn't an upper case letter
+   */
+  private static byte toLowerCase(byte b) {
+    return (b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b);
+  }
+
+  /**
+   * Checks if UTF-8 bytes are all ASCII
+   * @param bytes The bytes to check
+   * @return true if every byte is ASCII
+   */
+  private static boolean isAscii(byte[] bytes) {
+    for(byte b: bytes) {
+      if(b < 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,629 @@
+package mediarental;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Manager that can be safely shared by multiple threads, such as several clerks renting at once.
+ *
+ * The lock is striped: rentals, returns and lookups only take the shared lock of the stripe for 
+ * their thread, so threads on different stripes never update the same lock and run in parallel 
+ * without contending for one.  The rented flag of each Media is changed with compareAndSetRented(), 
+ * and the rented ids and journal synchronize themselves, so when several threads rent (or return) 
+ * the same id only one of them succeeds.  Loading, adding and other changes to the collection take 
+ * the exclusive lock of every stripe.
+ */
+public class ConcurrentManager extends Manager {
+  // shared for rentals and lookups by the threads of a stripe, all exclusive for changes to the 
+  // collection.  A power of two, so a thread's stripe is the low bits of its id.
+  private final ReentrantReadWriteLock[] locks;
+
+  /**
+   * Creates a new ConcurrentManager instance
+   */
+  public ConcurrentManager() {
+    super();
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    this.locks = new ReentrantReadWriteLock[Integer.highestOneBit(processors * 2 - 1) * 2];
+
+    for(int i = 0; i < this.locks.length; i++) {
+      this.locks[i] = new ReentrantReadWriteLock();
+    }
+  }
+
+  /**
+   * Gets the shared lock of the stripe for the current thread
+   * @return The shared lock, which must be unlocked by the same thread
+   */
+  private Lock sharedLock() {
+    return this.locks[(int) (Thread.currentThread().getId() & (this.locks.length - 1))].readLock();
+  }
+
+  /**
+   * Takes the exclusive lock of every stripe, always in the same order
+   */
+  private void lockAll() {
+    for(int i = 0; i < this.locks.length; i++) {
+      this.locks[i].writeLock().lock();
+    }
+  }
+
+  /**
+   * Releases the exclusive lock of every stripe
+   */
+  private void unlockAll() {
+    for(int i = this.locks.length - 1; i >= 0; i--) {
+      this.locks[i].writeLock().unlock();
+    }
+  }
+
+  /**
+   * Sets whether load() stores media in columns rather than as Media objects
+   * @param columnar true to store media in columns
+   */
+  public void setColumnar(boolean columnar) {
+    lockAll();
+
+    try {
+      super.setColumnar(columnar);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Sets whether a manifest of media files is kept in loaded directories
+   * @param enabled true to keep a manifest
+   */
+  public void setManifestEnabled(boolean enabled) {
+    lockAll();
+
+    try {
+      super.setManifestEnabled(enabled);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Sets whether directories are loaded from a binary snapshot
+   * @param enabled true to load from and write snapshots
+   */
+  public void setSnapshotEnabled(boolean enabled) {
+    lockAll();
+
+    try {
+      super.setSnapshotEnabled(enabled);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Sets whether saves are written in the background
+   * @param enabled true to write saves in the background
+   */
+  public void setWriteBehind(boolean enabled) {
+    lockAll();
+
+    try {
+      super.setWriteBehind(enabled);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Sets whether saved media files are forced to disk
+   * @param force true to force saved files to disk
+   */
+  public void setForceSaves(boolean force) {
+    lockAll();
+
+    try {
+      super.setForceSaves(force);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Turns the gram title index used by find() on or off
+   * @param enabled true to build and maintain the title index
+   */
+  public void setTitleIndexing(boolean enabled) {
+    lockAll();
+
+    try {
+      super.setTitleIndexing(enabled);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Loads Media data from the given directory or catalog file
+   * @param directory The File instance for the directory, or catalog file, to load.
+   * @param listener Listener notified of each batch of media read, or null if not needed
+   * @throws FileNotFoundException If no files were found in the given directory.
+   * @throws MediaCreationException If Media could not be created from the given directory.
+   */
+  public void load(File directory, MediaLoadListener listener) throws FileNotFoundException, MediaCreationException {
+    lockAll();
+
+    try {
+      super.load(directory, listener);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Opens a catalog file read-only by memory mapping it
+   * @param catalog The catalog file to open
+   * @throws FileNotFoundException If the catalog could not be opened or contains no media.
+   * @throws MediaCreationException If Media could not be created from the catalog.
+   */
+  public void loadReadOnly(File catalog) throws FileNotFoundException, MediaCreationException {
+    lockAll();
+
+    try {
+      super.loadReadOnly(catalog);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Closes the directory or catalog file used by load()
+   * @throws IOException If the store could not be closed cleanly
+   */
+  public void close() throws IOException {
+    lockAll();
+
+    try {
+      super.close();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Saves all media with rentals recorded in the journal to the store, then clears the journal.
+   * No rentals can happen while this runs, so none are lost when the journal is cleared.
+   * @throws IOException If media could not be saved or the journal could not be cleared
+   */
+  public void compactJournal() throws IOException {
+    lockAll();
+
+    try {
+      super.compactJournal();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Waits until every save queued by write-behind has been written, and forces everything saved to 
+   * disk.  No saves or rentals can be queued while it waits, so it finishes once the queue is empty.
+   * @throws IOException If a queued save could not be written or saves could not be forced to disk
+   */
+  public void flush() throws IOException {
+    lockAll();
+
+    try {
+      super.flush();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Writes a binary snapshot of the loaded directory and its indexes.  No rentals can happen while 
+   * it is written, so the snapshot holds one consistent state.
+   * @throws FileNotFoundException If no directory was loaded
+   * @throws IOException If the snapshot could not be written
+   */
+  public void saveSnapshot() throws FileNotFoundException, IOException {
+    lockAll();
+
+    try {
+      super.saveSnapshot();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Adds a new Media instance to the Manager
+   * @param media The Media object to save
+   * @throws MediaUpdateException If the Media object could not be saved
+   */
+  public void add(Media media) throws MediaUpdateException {
+    lockAll();
+
+    try {
+      super.add(media);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Changes the title of the Media object with the given ID
+   * @param id The id of the Media object
+   * @param title The new title
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media could not be properly saved
+   */
+  public void setTitle(int id, String title) throws MediaNotFoundException, MediaUpdateException {
+    lockAll();
+
+    try {
+      super.setTitle(id, title);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Starts watching the loaded directory, applying changes to media files as they happen
+   * @param listener Listener told about each batch of changes applied, or null if not needed
+   * @throws FileNotFoundException If no directory was loaded
+   * @throws MediaUpdateException If the media was opened read-only or is stored in columns
+   * @throws IOException If the directory can't be watched
+   */
+  public void startWatching(MediaChangeListener listener) throws FileNotFoundException, MediaUpdateException, IOException {
+    lockAll();
+
+    try {
+      super.startWatching(listener);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Stops watching the loaded directory, if it is being watched
+   */
+  public void stopWatching() {
+    lockAll();
+
+    try {
+      super.stopWatching();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Applies changes to files in the watched directory, with every exclusive lock so they don't 
+   * interleave with rentals or searches
+   * @param source The watcher reporting the changes
+   * @param names The names of the files that changed
+   * @param overflow true if events were lost, so every media file must be checked
+   */
+  protected void applyDirectoryChanges(MediaWatcher source, Collection<String> names, boolean overflow) {
+    lockAll();
+
+    try {
+      super.applyDirectoryChanges(source, names, overflow);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Searches the current collection of Media objects for the given title, optionally skipping 
+   * rented media, and stopping once the given number of matches have been found
+   * @param title The title to search for
+   * @param limit The most matches to return
+   * @param availableOnly true to only return media that isn't rented
+   * @return An ArrayList containing up to limit Media with titles that match the given String
+   */
+  public ArrayList<Media> find(String title, int limit, boolean availableOnly) {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.find(title, limit, availableOnly);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Finds media matching every predicate of a query, using the most selective index for the query
+   * @param query The query to match
+   * @param limit The most matches to return
+   * @return An ArrayList containing up to limit matching Media, in id order
+   */
+  public ArrayList<Media> query(MediaQuery query, int limit) {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.query(query, limit);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Describes how query() would find the media for a query
+   * @param query The query to plan
+   * @return The index that would be used, with the number of media it gives and the total
+   */
+  public String explain(MediaQuery query) {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.explain(query);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets a copy of all the current media, so it can be used while other threads change the collection
+   * @return A List containing all the Media, or null if the last load failed
+   */
+  public List<Media> getAllMedia() {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      List<Media> media = super.getAllMedia();
+
+      // record backed lists never change size, so can be shared
+      if(media == null || media instanceof MediaRecords) {
+        return media;
+      }
+
+      return new ArrayList<Media>(media);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of media, without copying the media list like getAllMedia()
+   * @return The number of media, 0 if no media is loaded
+   */
+  public int size() {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.size();
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets all the media that isn't rented
+   * @return A new List containing the available Media
+   */
+  public List<Media> getAvailableMedia() {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.getAvailableMedia();
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets all the media that is rented
+   * @return A new List containing the rented Media, in id order
+   */
+  public List<Media> getRentedMedia() {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.getRentedMedia();
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of media that isn't rented
+   * @return The number of available media
+   */
+  public int getAvailableCount() {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.getAvailableCount();
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Checks if the Media object with the given ID can be rented
+   * @param id The id of the Media object
+   * @return true if the media isn't rented
+   * @throws MediaNotFoundException If the given ID could not be found
+   */
+  public boolean isAvailable(int id) throws MediaNotFoundException {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.isAvailable(id);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Calculates the rental fee of every media, such as for a report over the whole catalog
+   * @return The fee of each Media, in the same order as getAllMedia(), or an empty array if no media 
+   *         is loaded
+   */
+  public double[] getRentalFees() {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.getRentalFees();
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets the Media object at the given index
+   * @param index The index of the Media object to get
+   * @return The Media object at the given index
+   * @throws MediaNotFoundException If the Media object could not be found
+   */
+  public Media get(int index) throws MediaNotFoundException {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.get(index);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Gets the Media object with the given ID
+   * @param id The id of the Media object
+   * @return The Media object with the given ID
+   * @throws MediaNotFoundException If the given ID could not be found
+   */
+  public Media getById(int id) throws MediaNotFoundException {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.getById(id);
+    } finally {
+      shared.unlock();
+    }
+  }
+
+  /**
+   * Rents the Media object with the given ID.  Only one of several concurrent rentals of the same ID
+   * succeeds; the others throw MediaUpdateException.
+   * @param id The id of the Media object
+   * @return The rental fee for the Media object
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media is already rented or could not be properly saved
+   */
+  public double rent(int id) throws MediaNotFoundException, MediaUpdateException {
+    double fee;
+
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      fee = rentMedia(id);
+    } finally {
+      shared.unlock();
+    }
+
+    // compaction needs every exclusive lock, so it can only happen once the shared lock is released
+    compactJournalIfFull();
+
+    return fee;
+  }
+
+  /**
+   * Rents all of the Media objects with the given IDs as a single transaction
+   * @param ids The ids of the Media objects to rent
+   * @return A RentalReceipt with the fee for each item and the total fee
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media is already rented or the rentals could not be saved
+   */
+  public RentalReceipt rentAll(int[] ids) throws MediaNotFoundException, MediaUpdateException {
+    RentalReceipt receipt;
+
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      receipt = rentAllMedia(ids);
+    } finally {
+      shared.unlock();
+    }
+
+    compactJournalIfFull();
+
+    return receipt;
+  }
+
+  /**
+   * Returns the rented Media object with the given ID.  Only one of several concurrent returns of the 
+   * same ID succeeds; the others throw MediaUpdateException.
+   * @param id The id of the Media object
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media isn't rented or could not be properly saved
+   */
+  public void returnMedia(int id) throws MediaNotFoundException, MediaUpdateException {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      returnRental(id);
+    } finally {
+      shared.unlock();
+    }
+
+    compactJournalIfFull();
+  }
+
+  /**
+   * Returns all of the rented Media objects with the given IDs as a single transaction
+   * @param ids The ids of the Media objects to return
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media isn't rented or the returns could not be saved
+   */
+  public void returnAll(int[] ids) throws MediaNotFoundException, MediaUpdateException {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      returnAllRentals(ids);
+    } finally {
+      shared.unlock();
+    }
+
+    compactJournalIfFull();
+  }
+
+  /**
+   * Prices the Media objects with the given IDs without renting them
+   * @param ids The ids of the Media objects to price
+   * @return A RentalReceipt with the fee each item would have and the total fee
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   */
+  public RentalReceipt quoteAll(int[] ids) throws MediaNotFoundException {
+    Lock shared = sharedLock();
+    shared.lock();
+
+    try {
+      return super.quoteAll(ids);
+    } finally {
+      shared.unlock();
+    }
+  }
+}
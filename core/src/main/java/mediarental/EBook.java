@@ -1,6 +1,7 @@
+package mediarental;
+
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Calendar;
 
 /**
  * A Media type defining an EBook
@@ -9,9 +10,6 @@ import java.util.Calendar;
  * Date: 3/8/2022
  */
 public class EBook extends Media {
-  // rate used for rental calcuation
-  private static final double EBOOK_RATE = 0.10;
-  
   // chapters in ebook
   private int chapters;
   
@@ -37,11 +35,18 @@ public class EBook extends Media {
    * @throws MediaCreationException if the EBook object could to be properly created from the data given
    */
   public EBook(String data) throws MediaCreationException {
-    // call superclass and let it init id,title,yearPublished,rented
-    super(data);
+    this(data.split(","));
+  }
 
-    // Split string and get chapter data
-    String[] segements = data.split(",");
+  /**
+   * Creates a new EBook object from a comma-delimited string that has already been split
+   * 
+   * @param segements The fields for the EBook instance: id, title, yearPublished, rented, chapters
+   * @throws MediaCreationException if the EBook object could to be properly created from the data given
+   */
+  protected EBook(String[] segements) throws MediaCreationException {
+    // call superclass and let it init id,title,yearPublished,rented
+    super(segements);
     
     if(segements.length < 5) {
       throw new MediaCreationException("Incorrect Ebook data format");
@@ -73,27 +78,27 @@ public class EBook extends Media {
   }
 
   /**
-   * Gets a String containing additional info for the Ebook.  
-   * @return A String description for number of chapters in the EBook
+   * Gets the type of the EBook instance
+   * @return MediaType.EBOOK
    */
-  public String getAdditionalInfo() {
-    return "chapters: " + this.chapters;
+  public MediaType getType() {
+    return MediaType.EBOOK;
   }
 
   /**
-   * Calculates the rental fee for the EBook instance, and returns it
-   * @return The rental fee for the EBook instance
+   * Gets the type attribute of the EBook instance
+   * @return The number of chapters
    */
-  public double caculateRentalFee() {
-    int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-
-    double fee = this.getChapters() * EBOOK_RATE;
-
-    if(currentYear == this.getYearPublished()) {
-      fee += 1.00;
-    }
+  public double getTypeAttribute() {
+    return this.chapters;
+  }
 
-    return fee;
+  /**
+   * Gets a String containing additional info for the Ebook.  
+   * @return A String description for number of chapters in the EBook
+   */
+  public String getAdditionalInfo() {
+    return "chapters: " + this.chapters;
   }
 
   /**
@@ -0,0 +1,2297 @@
+package mediarental;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.io.*;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Manager handles the management of various Media objects, 
+ * providing loading, saving, searching, renting and returning functionality.
+ * 
+ * @author Brian Cunningham
+ * Date: 3/8/2022
+ */
+public class Manager {
+  // media to manage
+  private List<Media> media;
+
+  // records backing the media when a catalog is opened read-only or media is stored in columns, null 
+  // when media are regular objects
+  private MediaRecords records = null;
+
+  // year and type indexes used by query(), built when first needed or null until then
+  private AttributeIndex attributes = null;
+
+  // watcher applying changes to the loaded directory, or null if not watching
+  private MediaWatcher watcher = null;
+
+  // listener told about changes applied by the watcher, or null
+  private MediaChangeListener changeListener = null;
+
+  // ids of rented media, kept up to date as media is rented
+  private RentedIdSet rented;
+
+  // true if media was opened with loadReadOnly()
+  private boolean readOnly = false;
+
+  // true to store media loaded by load() in columns
+  private boolean columnar = false;
+
+  // true to keep a manifest of media files, so unchanged files aren't parsed again by load()
+  private boolean manifestEnabled = false;
+
+  // manifest of the files in the loaded directory, or null if not kept
+  private MediaManifest manifest = null;
+
+  // true if the manifest has changed since it was written
+  private boolean manifestChanged = false;
+
+  // true to load directories from their snapshot when it is current, and write it on close()
+  private boolean snapshotEnabled = false;
+
+  // true once any snapshot of the loaded directory has been deleted, as media files are being saved
+  private volatile boolean snapshotDeleted = false;
+
+  // true to queue saves and write them on a background thread, coalescing saves of the same id
+  private boolean writeBehindEnabled = false;
+
+  // queue of saves being written to the store in the background, or null if saves are written directly
+  private MediaWriteBehind writeBehind = null;
+
+  // true to force each media file saved to a directory to disk before it replaces the old one
+  private boolean forceSaves = false;
+
+  // most media queued by write-behind before saves wait for the writer to catch up
+  private static final int WRITE_BEHIND_CAPACITY = 1024;
+
+  // index of managed media by id, used for rentals and lookups
+  private MediaIdIndex index;
+
+  // gram index of titles used by find() and query(), null if title indexing is turned off
+  private TitleIndex titleIndex = null;
+
+  // store that data was initially read from (directory or catalog file). Used when saving updates.
+  private MediaStore store = null;
+
+  // journal that rentals are recorded in when media was loaded from a directory, opened on first use
+  private RentalJournal journal = null;
+
+  // media with rental changes in the journal that haven't been saved to their files yet
+  private MediaIdIndex journaled;
+
+  // name of the rental journal kept in a media directory. Files starting with '.' aren't media.
+  private static final String JOURNAL_NAME = ".rentals.journal";
+
+  // ways query() can find the media that may match a query, by the index used
+  private static final int PLAN_ID = 0;
+  private static final int PLAN_TITLE = 1;
+  private static final int PLAN_YEAR = 2;
+  private static final int PLAN_TYPE = 3;
+  private static final int PLAN_RENTED = 4;
+  private static final int PLAN_SCAN = 5;
+
+  // names of the plans, for explain()
+  private static final String[] PLAN_NAMES = {"id index", "title index", "year index", "type partition", "rented ids", "scan"};
+
+  // number of journal events that triggers saving journaled media to their files
+  private static final int JOURNAL_COMPACT_THRESHOLD = 10000;
+
+  // number of threads used to parse media files during load(), 1 parses on the calling thread
+  private int loadParallelism = 1;
+
+  // rules used to price rentals
+  private volatile PricingRules pricing = PricingRules.getDefault();
+
+  // number of files parsed together during load(), media is published to listeners a batch at a time
+  private static final int LOAD_BATCH_SIZE = 256;
+
+  // number of batches queued per load thread before the directory scan waits for results
+  private static final int PENDING_BATCHES_PER_THREAD = 2;
+
+  /**
+   * Creates a new Manager instance
+   */
+  public Manager() {
+    this.media = new ArrayList<Media>();
+    this.index = new MediaIdIndex();
+    this.journaled = new MediaIdIndex();
+    this.rented = new RentedIdSet();
+  }
+
+  /**
+   * Sets the rules used to price rentals, such as for a promotion or the rates of a particular store.
+   * The default rules price media the same as the Media classes.
+   * 
+   * @param pricing The compiled pricing rules
+   */
+  public void setPricingRules(PricingRules pricing) {
+    this.pricing = pricing;
+  }
+
+  /**
+   * Gets the rules used to price rentals
+   * @return The compiled pricing rules
+   */
+  public PricingRules getPricingRules() {
+    return this.pricing;
+  }
+
+  /**
+   * Sets the number of threads used to parse media files when calling load().  A value of 1
+   * (the default) parses every file on the calling thread.
+   * 
+   * @param parallelism The number of threads to use, must be at least 1
+   */
+  public void setLoadParallelism(int parallelism) {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Load parallelism must be at least 1: " + parallelism);
+    }
+
+    this.loadParallelism = parallelism;
+  }
+
+  /**
+   * Gets the number of threads used to parse media files when calling load()
+   * @return The number of load threads
+   */
+  public int getLoadParallelism() {
+    return this.loadParallelism;
+  }
+
+  /**
+   * Sets whether load() stores media in columns (a ColumnarCatalog) rather than as Media objects.  
+   * Columns use much less memory and are faster to scan, but the media can only be rented; add() 
+   * and setTitle() aren't supported.  Takes effect the next time media is loaded.
+   * 
+   * @param columnar true to store media in columns
+   */
+  public void setColumnar(boolean columnar) {
+    this.columnar = columnar;
+  }
+
+  /**
+   * Indicates if load() stores media in columns
+   * @return true if media is stored in columns
+   */
+  public boolean isColumnar() {
+    return this.columnar;
+  }
+
+  /**
+   * Sets whether a manifest of media files is kept in loaded directories.  The manifest records the 
+   * size and modification time of each file along with the media parsed from it, so loading the 
+   * directory again only parses files that changed.  The manifest is written after loading and 
+   * when the Manager is closed.  Takes effect the next time a directory is loaded.
+   * 
+   * @param enabled true to keep a manifest
+   */
+  public void setManifestEnabled(boolean enabled) {
+    this.manifestEnabled = enabled;
+  }
+
+  /**
+   * Indicates if a manifest of media files is kept in loaded directories
+   * @return true if a manifest is kept
+   */
+  public boolean isManifestEnabled() {
+    return this.manifestEnabled;
+  }
+
+  /**
+   * Sets whether directories are loaded from a binary snapshot.  When enabled, load() reads the 
+   * media and indexes of a directory from its snapshot if nothing has changed since it was written, 
+   * rather than reading every media file, and close() writes a new snapshot.  Otherwise the 
+   * directory is read as usual, using the manifest if it is enabled.  saveSnapshot() can be called
+   * at any time whether or not this is enabled.
+   * 
+   * @param enabled true to load from and write snapshots
+   */
+  public void setSnapshotEnabled(boolean enabled) {
+    this.snapshotEnabled = enabled;
+  }
+
+  /**
+   * Indicates if directories are loaded from a binary snapshot
+   * @return true if snapshots are used
+   */
+  public boolean isSnapshotEnabled() {
+    return this.snapshotEnabled;
+  }
+
+  /**
+   * Sets whether saves are written in the background.  When enabled, changes are made in memory 
+   * straight away and save() (and so add(), setTitle(), journal compaction and rentals of media 
+   * without a rental journal) only queue the media to be written.  A media saved again before it 
+   * has been written is written once, and queued media are written in batches.  If the queue is 
+   * full, saving waits for the writer to catch up.
+   * 
+   * flush() waits for queued saves and forces them to disk, and close() does the same before 
+   * closing.  Rentals recorded in a rental journal are still durable before rent() returns.  Takes 
+   * effect the next time media is loaded.
+   * 
+   * @param enabled true to write saves in the background
+   */
+  public void setWriteBehind(boolean enabled) {
+    this.writeBehindEnabled = enabled;
+  }
+
+  /**
+   * Indicates if saves are written in the background
+   * @return true if saves are queued
+   */
+  public boolean isWriteBehind() {
+    return this.writeBehindEnabled;
+  }
+
+  /**
+   * Sets whether each media file saved to a directory is forced to disk before it replaces the 
+   * previous file, so saves survive a power failure.  Takes effect the next time a directory is 
+   * loaded.
+   * 
+   * @param force true to force saved files to disk
+   */
+  public void setForceSaves(boolean force) {
+    this.forceSaves = force;
+  }
+
+  /**
+   * Indicates if saved media files are forced to disk
+   * @return true if saves are forced
+   */
+  public boolean isForceSaves() {
+    return this.forceSaves;
+  }
+
+  /**
+   * Turns the gram title index used by find() on or off.  The index makes searches of any length 
+   * only check titles that could match, at the cost of extra memory per title.
+   * 
+   * @param enabled true to build and maintain the title index, false to search by scanning all media
+   */
+  public void setTitleIndexing(boolean enabled) {
+    if(!enabled) {
+      this.titleIndex = null;
+    } else if(this.titleIndex == null) {
+      this.titleIndex = new TitleIndex();
+
+      if(this.media != null && !this.readOnly) {
+        for(Media item: this.media) {
+          // columns hold one record per id, otherwise only the indexed item for each id is searched
+          if(this.records != null || this.index.get(item.getId()) == item) {
+            this.titleIndex.add(item);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Indicates if the gram title index is used by find()
+   * @return true if titles are indexed
+   */
+  public boolean isTitleIndexing() {
+    return this.titleIndex != null;
+  }
+
+  /**
+   * Loads Media data from the given directory or catalog file.  All media loaded is stored in the 
+   * manager for used.  Directory provided is also used to save updates/changes to media that was loaded.
+   * 
+   * @param directory The File instance for the directory, or catalog file, to load.
+   * @throws FileNotFoundException If no files were found in the given directory.
+   * @throws MediaCreationException If Media could not be created from the given directory.
+   */
+  public void load(File directory) throws FileNotFoundException, MediaCreationException {
+    load(directory, null);
+  }
+
+  /**
+   * Loads Media data from the given directory or catalog file.  A directory is read as one 
+   * "type-id.txt" file per media, and a regular file is read as a packed CatalogFile.  Whichever is 
+   * loaded is also used to save updates/changes to media.  A regular file that isn't already a catalog,
+   * including an empty one, is rejected without being written to; use CatalogFile.importDirectory()
+   * to create a catalog.
+   * 
+   * Directory entries are streamed rather than listed up front.  Files are parsed in batches as they 
+   * are enumerated, and each batch is passed to the given listener as soon as it has been read so 
+   * callers can show partial results.  
+   * 
+   * Once loading completes all media is stored in the manager sorted by id.  If the calling thread is 
+   * interrupted, loading stops and a MediaCreationException is thrown.
+   * 
+   * @param directory The File instance for the directory, or catalog file, to load.
+   * @param listener Listener notified of each batch of media read, or null if not needed
+   * @throws FileNotFoundException If no files were found in the given directory.
+   * @throws MediaCreationException If Media could not be created from the given directory.
+   */
+  public void load(File directory, MediaLoadListener listener) throws FileNotFoundException, MediaCreationException {
+    // release the store used by any previous load
+    closeStore();
+
+    this.records = null;
+    this.readOnly = false;
+    this.attributes = null;
+    this.index.clear();
+    this.journaled.clear();
+    this.rented.clear();
+    this.snapshotDeleted = false;
+
+    if(this.titleIndex != null) {
+      this.titleIndex.clear();
+    }
+
+    ArrayList<Media> items;
+    MediaSnapshot snapshot = null;
+
+    try {
+      if(directory.isFile()) {
+        items = loadCatalog(directory, listener);
+      } else if(this.snapshotEnabled && (snapshot = readSnapshot(directory)) != null) {
+        items = loadSnapshot(directory, snapshot, listener);
+      } else {
+        items = loadDirectory(directory, listener);
+      }
+    } catch(FileNotFoundException e) {
+      this.media = null;
+      throw e;
+    } catch(MediaCreationException e) {
+      this.media = null;
+      throw e;
+    }
+
+    // sort everything by id
+    items.sort(new Comparator<Media>() {
+      public int compare(Media a, Media b) {
+        return Integer.compare(a.getId(), b.getId());
+      }
+    });
+
+    this.media = items;
+
+    // titles don't need indexing again if the snapshot has the index
+    TitleIndex titles = this.titleIndex;
+
+    if(titles != null && snapshot != null && snapshot.getTitleIndex() != null) {
+      this.titleIndex = snapshot.getTitleIndex();
+      titles = null;
+    }
+
+    // index by id, keeping the first item in id order if the same id appears more than once
+    for(Media item: items) {
+      if(this.index.get(item.getId()) == null) {
+        this.index.put(item);
+
+        if(titles != null) {
+          titles.add(item);
+        }
+      }
+    }
+
+    // apply rentals recorded since the media files were last saved
+    File journalFile = getJournalFile();
+
+    if(journalFile != null && journalFile.exists()) {
+      try {
+        RentalJournal.replay(journalFile, this.index, this.journaled);
+      } catch(IOException e) {
+        closeStore();
+        this.media = null;
+        throw new MediaCreationException("Unable to read rental journal: " + e.getMessage());
+      }
+    }
+
+    if(this.columnar) {
+      storeColumns(items);
+    }
+
+    if(snapshot != null) {
+      this.attributes = snapshot.getAttributeIndex();
+    }
+
+    if(this.writeBehindEnabled) {
+      this.writeBehind = new MediaWriteBehind(this.store, WRITE_BEHIND_CAPACITY);
+    }
+
+    indexRentals();
+  }
+
+  /**
+   * Fills the set of rented ids from the rental status of the loaded media
+   */
+  private void indexRentals() {
+    this.rented.clear();
+
+    if(this.records != null) {
+      for(int i = 0; i < this.records.size(); i++) {
+        if(this.records.isRented(i)) {
+          this.rented.add(this.records.getId(i));
+        }
+      }
+    } else {
+      for(Media item: this.media) {
+        if(item.isRented() && this.index.get(item.getId()) == item) {
+          this.rented.add(item.getId());
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves loaded media into a ColumnarCatalog, keeping the indexed item for each id.  Media with 
+   * rentals still in the journal are replaced by views of their records, so compacting the journal 
+   * saves their current status.
+   * 
+   * @param items The loaded media, sorted by id
+   */
+  private void storeColumns(ArrayList<Media> items) {
+    ArrayList<Media> unique = new ArrayList<Media>(this.index.size());
+
+    for(Media item: items) {
+      if(this.index.get(item.getId()) == item) {
+        unique.add(item);
+      }
+    }
+
+    ColumnarCatalog catalog = new ColumnarCatalog(unique);
+
+    ArrayList<Media> journaled = this.journaled.values();
+    this.journaled.clear();
+
+    for(Media item: journaled) {
+      this.journaled.put(catalog.get(catalog.indexOfId(item.getId())));
+    }
+
+    this.index.clear();
+    this.records = catalog;
+    this.media = catalog;
+  }
+
+  /**
+   * Opens a catalog file read-only by memory mapping it.  Rather than creating a Media object for 
+   * each record, getAllMedia(), get(), getById() and find() return lightweight views that decode 
+   * fields from the mapped file as needed, so opening the catalog needs very little time or memory.
+   * 
+   * Media opened this way can't be added, changed or rented.
+   * 
+   * @param catalog The catalog file to open
+   * @throws FileNotFoundException If the catalog could not be opened or contains no media.
+   * @throws MediaCreationException If Media could not be created from the catalog.
+   */
+  public void loadReadOnly(File catalog) throws FileNotFoundException, MediaCreationException {
+    // release the store used by any previous load
+    closeStore();
+
+    this.records = null;
+    this.attributes = null;
+    this.rented.clear();
+    this.readOnly = false;
+    this.media = null;
+    this.index.clear();
+    this.journaled.clear();
+
+    if(this.titleIndex != null) {
+      this.titleIndex.clear();
+    }
+
+    MappedCatalog mapped;
+
+    try {
+      mapped = new MappedCatalog(catalog);
+    } catch(IOException e) {
+      throw new FileNotFoundException("Unable to open media catalog: " + e.getMessage());
+    }
+
+    if(mapped.size() == 0) {
+      throw new FileNotFoundException("No media found in catalog: " + catalog.getAbsolutePath());
+    }
+
+    this.records = mapped;
+    this.readOnly = true;
+    this.media = mapped;
+
+    indexRentals();
+  }
+
+  /**
+   * Indicates if the loaded media is read-only, having been opened with loadReadOnly()
+   * @return true if media can't be updated
+   */
+  public boolean isReadOnly() {
+    return this.readOnly;
+  }
+
+  /**
+   * Reads all media files in a directory, and uses the directory as the store for updates.
+   * 
+   * @param directory The directory to read
+   * @param listener Listener notified of each batch of media read, or null if not needed
+   * @return The Media read from the directory, in directory order
+   * @throws FileNotFoundException If no files were found in the given directory.
+   * @throws MediaCreationException If Media could not be created from the given directory.
+   */
+  private ArrayList<Media> loadDirectory(File directory, MediaLoadListener listener) 
+      throws FileNotFoundException, MediaCreationException {
+    ArrayList<Media> items = new ArrayList<Media>();
+
+    // parse on a thread pool if requested, otherwise everything is read on this thread
+    ExecutorService executor = null;
+    ArrayDeque<Future<ArrayList<Media>>> pending = new ArrayDeque<Future<ArrayList<Media>>>();
+    int maxPending = this.loadParallelism * PENDING_BATCHES_PER_THREAD;
+
+    if(this.loadParallelism > 1) {
+      executor = Executors.newFixedThreadPool(this.loadParallelism);
+    }
+
+    // skip hidden files, such as the rental journal
+    DirectoryStream.Filter<Path> mediaFiles = new DirectoryStream.Filter<Path>() {
+      public boolean accept(Path entry) {
+        return !entry.getFileName().toString().startsWith(".");
+      }
+    };
+
+    // files unchanged since the last manifest are created from it, and the rest are parsed
+    MediaManifest previous = (this.manifestEnabled ? readManifest(directory) : null);
+    MediaManifest current = (previous != null ? new MediaManifest() : null);
+    HashMap<String, long[]> parsedFiles = new HashMap<String, long[]>();
+
+    try(DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath(), mediaFiles)) {
+      ArrayList<File> batch = new ArrayList<File>(LOAD_BATCH_SIZE);
+      ArrayList<Media> unchanged = new ArrayList<Media>(LOAD_BATCH_SIZE);
+
+      // read each file from directory and create new Media instances from them
+      for(Path entry: entries) {
+        if(previous != null) {
+          String name = entry.getFileName().toString();
+          long[] attributes = fileAttributes(entry);
+          Media cached = (attributes == null ? null : previous.get(name, attributes[0], attributes[1]));
+
+          if(cached != null) {
+            current.put(name, attributes[0], attributes[1], cached);
+            unchanged.add(cached);
+
+            if(unchanged.size() == LOAD_BATCH_SIZE) {
+              publish(items, unchanged, listener);
+              unchanged = new ArrayList<Media>(LOAD_BATCH_SIZE);
+            }
+
+            continue;
+          }
+
+          if(attributes != null) {
+            parsedFiles.put(name, attributes);
+          }
+        }
+
+        batch.add(entry.toFile());
+
+        if(batch.size() == LOAD_BATCH_SIZE) {
+          if(executor == null) {
+            publish(items, createMedia(batch), listener);
+          } else {
+            pending.add(submit(executor, batch));
+
+            // wait on the oldest batch so we don't queue up the whole directory
+            if(pending.size() >= maxPending) {
+              publish(items, pending.poll().get(), listener);
+            }
+          }
+
+          batch = new ArrayList<File>(LOAD_BATCH_SIZE);
+        }
+      }
+
+      // read whatever is left over
+      if(unchanged.size() > 0) {
+        publish(items, unchanged, listener);
+      }
+
+      if(batch.size() > 0) {
+        if(executor == null) {
+          publish(items, createMedia(batch), listener);
+        } else {
+          pending.add(submit(executor, batch));
+        }
+      }
+
+      while(!pending.isEmpty()) {
+        publish(items, pending.poll().get(), listener);
+      }
+    } catch(IOException | DirectoryIteratorException e) {
+      throw new FileNotFoundException("No media files found in directory: " + directory.getAbsolutePath());
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof MediaCreationException) {
+        throw (MediaCreationException) e.getCause();
+      }
+
+      throw new MediaCreationException("Unable to load media: " + e.getCause());
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MediaCreationException("Media loading was interrupted");
+    } finally {
+      // stop any batches still running after a failure
+      if(executor != null) {
+        executor.shutdownNow();
+      }
+    }
+
+    // if no files throw exception
+    if(items.size() == 0) {
+      throw new FileNotFoundException("No media files found in directory: " + directory.getAbsolutePath());
+    }
+
+    // store directory for saving updates
+    MediaDirectory store = new MediaDirectory(directory, this.forceSaves);
+    this.store = store;
+
+    if(previous != null) {
+      // add the files that were parsed, as they were before the journal is applied
+      for(Media item: items) {
+        String name = store.getFile(item).getName();
+        long[] attributes = parsedFiles.get(name);
+
+        if(attributes != null) {
+          current.put(name, attributes[0], attributes[1], item);
+        }
+      }
+
+      this.manifest = current;
+      this.manifestChanged = (parsedFiles.size() > 0 || current.size() != previous.size());
+      saveManifest();
+    }
+
+    return items;
+  }
+
+  /**
+   * Uses the media read from a directory's snapshot, and uses the directory as the store for updates.
+   * 
+   * @param directory The directory the snapshot is of
+   * @param snapshot The snapshot of the directory
+   * @param listener Listener notified of the media read, or null if not needed
+   * @return The Media in the snapshot, sorted by id
+   * @throws FileNotFoundException If the snapshot contains no media.
+   * @throws MediaCreationException If loading was interrupted.
+   */
+  private ArrayList<Media> loadSnapshot(File directory, MediaSnapshot snapshot, MediaLoadListener listener) 
+      throws FileNotFoundException, MediaCreationException {
+    ArrayList<Media> items = snapshot.getMedia();
+
+    if(items.size() == 0) {
+      throw new FileNotFoundException("No media files found in directory: " + directory.getAbsolutePath());
+    }
+
+    try {
+      publish(new ArrayList<Media>(), items, listener);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MediaCreationException("Media loading was interrupted");
+    }
+
+    // store directory for saving updates
+    this.store = new MediaDirectory(directory, this.forceSaves);
+
+    return items;
+  }
+
+  /**
+   * Reads all media in an existing catalog file, and uses the catalog as the store for updates.  A
+   * file that is not a catalog is left as it is.
+   * 
+   * @param file The catalog file to read
+   * @param listener Listener notified of the media read, or null if not needed
+   * @return The Media read from the catalog, in the order they were first saved
+   * @throws FileNotFoundException If the catalog could not be opened or contains no media.
+   * @throws MediaCreationException If Media could not be created from the catalog.
+   */
+  private ArrayList<Media> loadCatalog(File file, MediaLoadListener listener) 
+      throws FileNotFoundException, MediaCreationException {
+    CatalogFile catalog;
+    ArrayList<Media> items;
+
+    try {
+      catalog = CatalogFile.open(file);
+    } catch(IOException e) {
+      throw new FileNotFoundException("Unable to open media catalog: " + e.getMessage());
+    }
+
+    try {
+      items = catalog.readAll();
+
+      if(items.size() == 0) {
+        throw new FileNotFoundException("No media found in catalog: " + file.getAbsolutePath());
+      }
+
+      publish(new ArrayList<Media>(), items, listener);
+    } catch(IOException e) {
+      closeQuietly(catalog);
+      throw new FileNotFoundException("Unable to read media catalog: " + e.getMessage());
+    } catch(InterruptedException e) {
+      closeQuietly(catalog);
+      Thread.currentThread().interrupt();
+      throw new MediaCreationException("Media loading was interrupted");
+    } catch(MediaCreationException e) {
+      closeQuietly(catalog);
+      throw e;
+    }
+
+    // store catalog for saving updates
+    this.store = catalog;
+
+    return items;
+  }
+
+  /**
+   * Adds a batch of loaded Media to the loaded items and notifies the listener, if any.
+   * 
+   * @param items All media loaded so far
+   * @param batch The batch of media that was just read
+   * @param listener Listener to notify, or null
+   * @throws InterruptedException If the loading thread has been interrupted
+   */
+  private static void publish(ArrayList<Media> items, ArrayList<Media> batch, MediaLoadListener listener) 
+      throws InterruptedException {
+    items.addAll(batch);
+
+    if(listener != null) {
+      listener.mediaLoaded(batch, items.size());
+    }
+
+    if(Thread.currentThread().isInterrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  /**
+   * Creates Media instances for a batch of files, in file order.
+   * 
+   * @param files The files to create Media from
+   * @return An ArrayList containing the Media created from the files
+   * @throws MediaCreationException If Media could not be created from one of the files
+   */
+  private static ArrayList<Media> createMedia(List<File> files) throws MediaCreationException {
+    ArrayList<Media> items = new ArrayList<Media>(files.size());
+
+    // one parser per batch, so its buffer is reused for every file without being shared between threads
+    MediaParser parser = new MediaParser();
+
+    for(File file: files) {
+      items.add(parser.parse(file));
+    }
+
+    return items;
+  }
+
+  /**
+   * Submits a batch of files to be parsed on the given executor.
+   * 
+   * @param executor The executor to parse the batch on
+   * @param files The batch of files to parse
+   * @return Future for the Media created from the batch
+   */
+  private static Future<ArrayList<Media>> submit(ExecutorService executor, final List<File> files) {
+    return executor.submit(new Callable<ArrayList<Media>>() {
+      public ArrayList<Media> call() throws MediaCreationException {
+        return createMedia(files);
+      }
+    });
+  }
+
+  /**
+   * Saves a given Media object.  This object will be saved in the previous directory (or catalog file)
+   * that was used for load().  With write-behind enabled the save is queued, and written later.
+   * 
+   * @param media The Media to save
+   * @throws FileNotFoundException If the directory has not be set yet
+   * @throws IOException If there was an issue saving the Media to file, or an earlier queued save 
+   *         could not be written
+   */
+  public void save(Media media) throws FileNotFoundException, IOException {
+    if(this.store == null) {
+      throw new FileNotFoundException("No directory available to save");
+    }
+
+    deleteSnapshot();
+
+    // the manifest isn't updated for queued saves, so their files are parsed again on the next load
+    if(this.writeBehind != null) {
+      this.writeBehind.save(media);
+    } else {
+      this.store.save(media);
+      recordSaved(media);
+    }
+  }
+
+  /**
+   * Waits until every save queued by write-behind has been written, and forces everything saved so 
+   * far to disk
+   * 
+   * @throws IOException If a queued save could not be written or saves could not be forced to disk
+   */
+  public void flush() throws IOException {
+    MediaWriteBehind writes = this.writeBehind;
+    MediaStore saved = this.store;
+
+    if(writes != null) {
+      writes.flush();
+    } else if(saved != null) {
+      saved.sync();
+    }
+  }
+
+  /**
+   * Closes the directory or catalog file used by load(), first saving any media with rentals in the
+   * journal to their files.  Media remains available for searching, but can no longer be saved until 
+   * load() is called again.
+   * 
+   * @throws IOException If the store could not be closed cleanly
+   */
+  public void close() throws IOException {
+    stopWatching();
+
+    try {
+      compactJournal();
+      closeWriteBehind();
+
+      // everything saved is on disk before the store is closed
+      if(this.store != null) {
+        this.store.sync();
+      }
+
+      saveManifest();
+
+      if(this.journal != null) {
+        RentalJournal closing = this.journal;
+        this.journal = null;
+        closing.close();
+      }
+
+      if(this.snapshotEnabled && this.store instanceof MediaDirectory) {
+        try {
+          saveSnapshot();
+        } catch(IOException e) {
+          // without a snapshot the next load reads the directory instead
+        }
+      }
+    } finally {
+      // release the journal file even if saving failed, its events are replayed by the next load
+      if(this.journal != null) {
+        try {
+          this.journal.close();
+        } catch(IOException e) {
+          // already failing with the first error
+        }
+
+        this.journal = null;
+      }
+
+      // stop the writer even if saving failed, queued saves are lost either way
+      if(this.writeBehind != null) {
+        try {
+          closeWriteBehind();
+        } catch(IOException e) {
+          // already failing with the first error
+        }
+      }
+
+      MediaStore closing = this.store;
+      this.store = null;
+
+      if(closing != null) {
+        closing.close();
+      }
+    }
+  }
+
+  /**
+   * Closes the current store and journal, if any, ignoring errors.  Used when the store is being 
+   * replaced.  Journaled rentals are not lost, they are replayed when the directory is next loaded.
+   */
+  private void closeStore() {
+    stopWatching();
+
+    try {
+      closeWriteBehind();
+    } catch(IOException e) {
+      // there is no one to report the lost saves to when the store is being replaced
+    }
+
+    saveManifest();
+    this.manifest = null;
+
+    try {
+      if(this.journal != null) {
+        this.journal.close();
+      }
+    } catch(IOException e) {
+      // events that were made durable are still in the journal file
+    }
+
+    this.journal = null;
+
+    closeQuietly(this.store);
+    this.store = null;
+  }
+
+  /**
+   * Writes any saves queued by write-behind and stops its writer, so media is saved directly until 
+   * the next load
+   * @throws IOException If a queued save could not be written
+   */
+  private void closeWriteBehind() throws IOException {
+    MediaWriteBehind closing = this.writeBehind;
+    this.writeBehind = null;
+
+    if(closing != null) {
+      closing.close();
+    }
+  }
+
+  /**
+   * Gets the rental journal file for the current store
+   * @return The journal file, or null if the current store doesn't use a journal
+   */
+  private File getJournalFile() {
+    if(this.store instanceof MediaDirectory) {
+      return new File(((MediaDirectory) this.store).getDirectory(), JOURNAL_NAME);
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the rental journal for the current store, opening it if needed
+   * @return The rental journal, or null if the current store doesn't use a journal
+   * @throws IOException If the journal could not be opened
+   */
+  private synchronized RentalJournal getJournal() throws IOException {
+    if(this.journal == null) {
+      File journalFile = getJournalFile();
+
+      if(journalFile != null) {
+        this.journal = new RentalJournal(journalFile);
+      }
+    }
+
+    return this.journal;
+  }
+
+  /**
+   * Records a rental change for each of the given media in the journal and waits for them to be 
+   * durable.  All of the events are made durable together.
+   * 
+   * @param items The media whose rental status changed
+   * @param event The journal event, RentalJournal.RENT or RentalJournal.RETURN
+   * @throws IOException If the events could not be written
+   */
+  private void journal(List<Media> items, byte event) throws IOException {
+    RentalJournal rentals = getJournal();
+    long sequence = 0;
+
+    for(Media item: items) {
+      sequence = rentals.append(event, item.getId());
+    }
+
+    rentals.sync(sequence);
+
+    synchronized(this.journaled) {
+      for(Media item: items) {
+        this.journaled.put(item);
+      }
+    }
+  }
+
+  /**
+   * Saves the rental status of the given media, either as journal events or by saving them to the
+   * store if there is no journal.
+   * 
+   * @param items The media whose rental status changed
+   * @param event The journal event, RentalJournal.RENT or RentalJournal.RETURN
+   * @throws FileNotFoundException If there is no store to save to
+   * @throws IOException If the rental status could not be saved
+   */
+  private void saveRentals(List<Media> items, byte event) throws FileNotFoundException, IOException {
+    if(getJournal() != null) {
+      journal(items, event);
+    } else if(this.store == null) {
+      throw new FileNotFoundException("No directory available to save");
+    } else if(this.writeBehind != null) {
+      deleteSnapshot();
+
+      for(Media item: items) {
+        this.writeBehind.save(item);
+      }
+    } else {
+      deleteSnapshot();
+      this.store.saveAll(items);
+
+      for(Media item: items) {
+        recordSaved(item);
+      }
+    }
+  }
+
+  /**
+   * Saves journaled media to the store and clears the journal once the journal has grown large 
+   * enough.  Rentals are already durable in the journal, so if this fails it is tried again later.
+   */
+  protected void compactJournalIfFull() {
+    RentalJournal rentals = this.journal;
+
+    if(rentals != null && rentals.size() >= JOURNAL_COMPACT_THRESHOLD) {
+      try {
+        compactJournal();
+      } catch(IOException e) {
+        // the journal keeps the rentals until compaction succeeds
+      }
+    }
+  }
+
+  /**
+   * Saves all media with rentals recorded in the journal to the store, then clears the journal.  
+   * This happens automatically as the journal grows and when the Manager is closed.
+   * 
+   * @throws IOException If media could not be saved or the journal could not be cleared
+   */
+  public void compactJournal() throws IOException {
+    if(this.journaled.size() == 0 && (this.journal == null || this.journal.size() == 0)) {
+      return;
+    }
+
+    for(Media item: this.journaled.values()) {
+      save(item);
+    }
+
+    // the journal can only be cleared once the saves are on disk
+    flush();
+
+    RentalJournal rentals = getJournal();
+
+    if(rentals != null) {
+      rentals.reset();
+    }
+
+    this.journaled.clear();
+  }
+
+  /**
+   * Starts watching the loaded directory for media files that are created, changed or deleted, such 
+   * as by another terminal sharing the directory, and applies each change without reloading the 
+   * whole directory.  Only the touched files are parsed, and the indexes are updated to match.  
+   * Rentals recorded in the rental journal by others are applied as well.
+   * 
+   * Changes are applied on a background thread, so a Manager that is watching should only be used 
+   * through a ConcurrentManager.  Watching stops when media is loaded again or the Manager is closed.
+   * 
+   * @param listener Listener told about each batch of changes applied, or null if not needed
+   * @throws FileNotFoundException If no directory was loaded
+   * @throws MediaUpdateException If the media can't be changed, as it was opened read-only or is 
+   *         stored in columns
+   * @throws IOException If the directory can't be watched
+   */
+  public void startWatching(MediaChangeListener listener) throws FileNotFoundException, MediaUpdateException, IOException {
+    if(!(this.store instanceof MediaDirectory)) {
+      throw new FileNotFoundException("No directory available to watch");
+    }
+
+    if(this.records != null) {
+      throw new MediaUpdateException("Unable to watch media: media was opened read-only or is stored in columns");
+    }
+
+    stopWatching();
+
+    this.changeListener = listener;
+    this.watcher = new MediaWatcher(this, ((MediaDirectory) this.store).getDirectory());
+    this.watcher.start();
+  }
+
+  /**
+   * Stops watching the loaded directory, if it is being watched
+   */
+  public void stopWatching() {
+    if(this.watcher != null) {
+      this.watcher.close();
+    }
+
+    this.watcher = null;
+    this.changeListener = null;
+  }
+
+  /**
+   * Indicates if the loaded directory is being watched for changes
+   * @return true if watching
+   */
+  public boolean isWatching() {
+    return this.watcher != null;
+  }
+
+  /**
+   * Applies changes to files in the watched directory.  Each media file named is parsed again and 
+   * replaces the media with the same id, or removes it if the file was deleted.  A file that can't 
+   * be parsed, such as one that is only partly written, is left as it was until its next change.  
+   * Files that still hold the same values, such as those just saved by this manager, are skipped, 
+   * as are files of media still waiting to be saved by write-behind.
+   * 
+   * @param source The watcher reporting the changes; they are ignored unless it is still the current 
+   *        watcher
+   * @param names The names of the files that changed
+   * @param overflow true if events were lost, so every media file must be checked
+   */
+  protected void applyDirectoryChanges(MediaWatcher source, Collection<String> names, boolean overflow) {
+    if(source != this.watcher || this.media == null) {
+      return;
+    }
+
+    File directory = source.getDirectory();
+    LinkedHashSet<String> changed = new LinkedHashSet<String>(names);
+
+    // events were lost, so check every file there is and every file there should be
+    if(overflow) {
+      String[] listed = directory.list();
+
+      if(listed != null) {
+        changed.addAll(Arrays.asList(listed));
+      }
+
+      for(Media item: this.media) {
+        changed.add(((MediaDirectory) this.store).getFile(item).getName());
+      }
+
+      changed.add(JOURNAL_NAME);
+    }
+
+    ArrayList<Media> updated = new ArrayList<Media>();
+    ArrayList<Media> removed = new ArrayList<Media>();
+    MediaParser parser = new MediaParser();
+
+    for(String name: changed) {
+      if(name.equals(JOURNAL_NAME)) {
+        applyJournalChanges(updated);
+      } else if(!name.startsWith(".")) {
+        applyFileChange(new File(directory, name), parser, updated, removed);
+      }
+    }
+
+    if(this.changeListener != null && (updated.size() > 0 || removed.size() > 0)) {
+      this.changeListener.mediaChanged(updated, removed);
+    }
+  }
+
+  /**
+   * Applies a change to one media file
+   * @param file The media file that changed
+   * @param parser The parser to read it with
+   * @param updated Media added or replaced are added to this list
+   * @param removed Media removed are added to this list
+   */
+  private void applyFileChange(File file, MediaParser parser, List<Media> updated, List<Media> removed) {
+    int id = idOfFile(file.getName());
+
+    if(id < 0) {
+      return;
+    }
+
+    // memory is ahead of the file until write-behind saves it, and the save overwrites the file anyway
+    MediaWriteBehind writes = this.writeBehind;
+
+    if(writes != null && writes.isPending(id)) {
+      return;
+    }
+
+    Media previous = this.index.get(id);
+
+    if(!file.exists()) {
+      // only remove the media if it was saved to this file, not a file for another type
+      if(previous != null && ((MediaDirectory) this.store).getFile(previous).equals(file)) {
+        removeMedia(previous);
+        removed.add(previous);
+      }
+
+      return;
+    }
+
+    Media item;
+
+    try {
+      item = parser.parse(file);
+    } catch(MediaCreationException e) {
+      // most likely still being written, so wait for its next change
+      return;
+    }
+
+    if(item.getId() != id) {
+      return;
+    }
+
+    // rentals in the journal haven't been saved to the file yet, so the journal has the latest status
+    if(previous != null && this.journaled.get(id) != null) {
+      item.setRented(previous.isRented());
+    }
+
+    if(previous != null && previous.hasSameValues(item)) {
+      return;
+    }
+
+    replaceMedia(previous, item);
+    updated.add(item);
+  }
+
+  /**
+   * Applies rentals recorded in the rental journal, such as by another terminal
+   * @param updated Media whose rental status changed are added to this list
+   */
+  private void applyJournalChanges(List<Media> updated) {
+    File journalFile = getJournalFile();
+
+    if(journalFile == null || !journalFile.exists()) {
+      return;
+    }
+
+    MediaIdIndex touched = new MediaIdIndex();
+
+    try {
+      RentalJournal.replay(journalFile, this.index, touched);
+    } catch(IOException e) {
+      // a journal that can't be read now will be read at its next change
+      return;
+    }
+
+    // the set of rented ids still has the status from before the replay
+    for(Media item: touched.values()) {
+      this.journaled.put(item);
+
+      if(item.isRented() != this.rented.contains(item.getId())) {
+        updateRentedIds(item, item.isRented());
+        updated.add(item);
+      }
+    }
+  }
+
+  /**
+   * Gets the id from a media file name in "type-id.txt" form
+   * @param name The file name
+   * @return The id, or -1 if the name isn't a media file name
+   */
+  private static int idOfFile(String name) {
+    int dash = name.lastIndexOf('-');
+
+    if(dash < 0 || !name.endsWith(".txt")) {
+      return -1;
+    }
+
+    try {
+      return Integer.parseInt(name.substring(dash + 1, name.length() - 4));
+    } catch(NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Replaces a media with a new one with the same id, or adds it if there was none, keeping the 
+   * indexes up to date.  New media is inserted in id order.
+   * 
+   * @param previous The Media to replace, or null to add
+   * @param item The new Media
+   */
+  private void replaceMedia(Media previous, Media item) {
+    if(previous != null) {
+      this.media.set(indexOfMedia(previous), item);
+
+      if(this.titleIndex != null) {
+        this.titleIndex.remove(previous);
+      }
+    } else {
+      this.media.add(firstPosition(item.getId()), item);
+    }
+
+    this.index.put(item);
+    this.attributes = null;
+
+    if(this.titleIndex != null) {
+      this.titleIndex.add(item);
+    }
+
+    if(this.journaled.get(item.getId()) != null) {
+      this.journaled.put(item);
+    }
+
+    updateRentedIds(item, item.isRented());
+  }
+
+  /**
+   * Finds the first position in the loaded media, which is sorted by id, with an id at least the 
+   * given one
+   * @param id The id
+   * @return The position, or the number of media if every id is smaller
+   */
+  private int firstPosition(int id) {
+    int low = 0;
+    int high = this.media.size();
+
+    while(low < high) {
+      int middle = (low + high) >>> 1;
+
+      if(this.media.get(middle).getId() < id) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Finds the position of a media in the loaded media by its id, rather than comparing it with 
+   * every media.  A directory can have the same id more than once, so the media with its id are 
+   * checked until the one given is found.
+   * 
+   * @param item The Media to find
+   * @return The position of the Media, or -1 if it isn't loaded
+   */
+  private int indexOfMedia(Media item) {
+    for(int i = firstPosition(item.getId()); i < this.media.size() && this.media.get(i).getId() == item.getId(); i++) {
+      if(this.media.get(i) == item) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Removes a media, keeping the indexes up to date
+   * @param item The Media to remove
+   */
+  private void removeMedia(Media item) {
+    int position = indexOfMedia(item);
+
+    if(position >= 0) {
+      this.media.remove(position);
+    }
+
+    this.index.remove(item.getId());
+    this.journaled.remove(item.getId());
+    this.attributes = null;
+
+    if(this.titleIndex != null) {
+      this.titleIndex.remove(item);
+    }
+
+    updateRentedIds(item, false);
+  }
+
+  /**
+   * Reads the manifest of a directory
+   * @param directory The media directory
+   * @return The manifest, or an empty manifest if there is none or it can't be read
+   */
+  private static MediaManifest readManifest(File directory) {
+    try {
+      return MediaManifest.read(MediaManifest.getFile(directory));
+    } catch(IOException e) {
+      // the manifest only saves parsing, so without it every file is parsed
+      return new MediaManifest();
+    }
+  }
+
+  /**
+   * Gets the size and modification time of a file
+   * @param file The file
+   * @return The size, and the modification time in milliseconds, or null if they can't be read
+   */
+  private static long[] fileAttributes(Path file) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      return new long[] {attributes.size(), attributes.lastModifiedTime().toMillis()};
+    } catch(IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the manifest of the loaded directory if it has changed.  Errors are ignored, since without 
+   * the manifest the next load parses every file instead.
+   */
+  private void saveManifest() {
+    if(this.manifest == null || !this.manifestChanged || !(this.store instanceof MediaDirectory)) {
+      return;
+    }
+
+    try {
+      this.manifest.write(MediaManifest.getFile(((MediaDirectory) this.store).getDirectory()));
+      this.manifestChanged = false;
+    } catch(IOException e) {
+      // tried again the next time the manifest is saved
+    }
+  }
+
+  /**
+   * Updates the manifest entry for a media that was just saved to its file
+   * @param media The Media that was saved
+   */
+  private void recordSaved(Media media) {
+    if(this.manifest == null || !(this.store instanceof MediaDirectory)) {
+      return;
+    }
+
+    File file = ((MediaDirectory) this.store).getFile(media);
+    long[] attributes = fileAttributes(file.toPath());
+
+    if(attributes != null) {
+      this.manifest.put(file.getName(), attributes[0], attributes[1], media);
+      this.manifestChanged = true;
+    }
+  }
+
+  /**
+   * Writes a binary snapshot of the loaded directory and its indexes, so the next load() with 
+   * snapshots enabled can read it instead of the media files.  Called by close() when snapshots are 
+   * enabled, or at any time to have an up to date snapshot, such as before a planned restart.  Saves 
+   * waiting for write-behind are written first, since the snapshot records each file as it is.  
+   * Files saved within a couple of seconds of the snapshot, such as those saved when close() 
+   * compacts the journal, are parsed again by the next load to check they still match it.
+   * 
+   * @throws FileNotFoundException If no directory was loaded
+   * @throws IOException If the snapshot could not be written
+   */
+  public void saveSnapshot() throws FileNotFoundException, IOException {
+    if(!(this.store instanceof MediaDirectory) || this.media == null) {
+      throw new FileNotFoundException("No directory available to snapshot");
+    }
+
+    flush();
+
+    MediaSnapshot.write(((MediaDirectory) this.store).getDirectory(), this.media, this.titleIndex, 
+      getAttributeIndex());
+
+    // the new snapshot has to be deleted again before the next save to a media file
+    this.snapshotDeleted = false;
+  }
+
+  /**
+   * Reads the snapshot of a directory
+   * @param directory The media directory
+   * @return The snapshot, or null if there is none, it is out of date or it can't be read
+   */
+  private static MediaSnapshot readSnapshot(File directory) {
+    try {
+      return MediaSnapshot.read(directory);
+    } catch(IOException e) {
+      // the snapshot only saves reading the directory, so the directory is read instead
+      return null;
+    }
+  }
+
+  /**
+   * Deletes the snapshot of the loaded directory, if there is one, before a media file is saved.  
+   * The saved file no longer matches the snapshot, so this only saves the next load reading a 
+   * snapshot it can't use.  Only the first save since the directory was loaded or snapshotted needs 
+   * to check.
+   * 
+   * @throws IOException If the snapshot could not be deleted, in which case nothing should be saved
+   */
+  private void deleteSnapshot() throws IOException {
+    if(!this.snapshotDeleted && this.store instanceof MediaDirectory) {
+      MediaSnapshot.delete(((MediaDirectory) this.store).getDirectory());
+      this.snapshotDeleted = true;
+    }
+  }
+
+  /**
+   * Closes the given store, ignoring errors
+   * @param store The store to close, or null
+   */
+  private static void closeQuietly(MediaStore store) {
+    try {
+      if(store != null) {
+        store.close();
+      }
+    } catch(IOException e) {
+      // nothing more can be done with a store that is being discarded
+    }
+  }
+
+  /**
+   * Adds a new Media instance to the Manager.  The media will be automatically saved to the directory 
+   * that was used for load()
+   * @param media The Media object to save
+   * @throws MediaUpdateException If the Media object could not be saved
+   */
+  public void add(Media media) throws MediaUpdateException {
+    if(isReadOnly()) {
+      throw new MediaUpdateException("Unable to add media: media was opened read-only");
+    }
+
+    if(this.records != null) {
+      throw new MediaUpdateException("Unable to add media: media stored in columns can only be rented");
+    }
+
+    try {
+      save(media);
+
+      // keep the journal from replaying an older rental status over the new media
+      if(this.journaled.get(media.getId()) != null) {
+        journal(Collections.singletonList(media), media.isRented() ? RentalJournal.RENT : RentalJournal.RETURN);
+      }
+
+      // keep media sorted by id, after any media it replaces
+      int position = firstPosition(media.getId());
+
+      while(position < this.media.size() && this.media.get(position).getId() == media.getId()) {
+        position++;
+      }
+
+      this.media.add(position, media);
+      this.attributes = null;
+
+      Media previous = this.index.put(media);
+
+      updateRentedIds(media, media.isRented());
+
+      if(this.titleIndex != null) {
+        if(previous != null) {
+          this.titleIndex.remove(previous);
+        }
+
+        this.titleIndex.add(media);
+      }
+    } catch( FileNotFoundException e ) {
+      throw new MediaUpdateException("Unable to add media: " + e.getMessage());
+    } catch( IOException e ) {
+      throw new MediaUpdateException("Unable to add media: " + e.getMessage());
+    }
+  }
+  
+  /**
+   * Searches the current collection of Media objects for the given title, returning 
+   * any that match;
+   * 
+   * @param title The title to search for
+   * @return An ArrayList containing all Media with titles that match the given String
+   */
+  public ArrayList<Media> find(String title) {
+    return find(title, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Searches the current collection of Media objects for the given title, stopping once the given 
+   * number of matches have been found.  Matches are returned in the same order as find(), so asking 
+   * for more matches returns the same ones first.
+   * 
+   * @param title The title to search for
+   * @param limit The most matches to return
+   * @return An ArrayList containing up to limit Media with titles that match the given String
+   */
+  public ArrayList<Media> find(String title, int limit) {
+    return find(title, limit, false);
+  }
+
+  /**
+   * Searches the current collection of Media objects for the given title, optionally skipping 
+   * rented media, and stopping once the given number of matches have been found.  Rented media are 
+   * skipped using the set of rented ids before their titles are checked.
+   * 
+   * @param title The title to search for
+   * @param limit The most matches to return
+   * @param availableOnly true to only return media that isn't rented
+   * @return An ArrayList containing up to limit Media with titles that match the given String
+   */
+  public ArrayList<Media> find(String title, int limit, boolean availableOnly) {
+    ArrayList<Media> matches = new ArrayList<Media>();
+    String query = title.toLowerCase();
+
+    // only check titles the index says could match
+    int[] candidates = null;
+
+    if(this.titleIndex != null && !this.readOnly) {
+      candidates = this.titleIndex.candidates(query);
+    }
+
+    if(candidates != null) {
+      for(int i = 0; i < candidates.length && matches.size() < limit; i++) {
+        if(availableOnly && this.rented.contains(candidates[i])) {
+          continue;
+        }
+
+        Media item = lookup(candidates[i]);
+
+        if(item.getTitle().toLowerCase().contains(query)) {
+          matches.add(item);
+        }
+      }
+
+      return matches;
+    }
+
+    // columns can be searched without decoding most titles
+    if(this.media instanceof ColumnarCatalog) {
+      return ((ColumnarCatalog) this.media).find(query, limit, availableOnly);
+    }
+
+    for(int i = 0; i < this.media.size() && matches.size() < limit; i++) {
+      Media item = this.media.get(i);
+
+      if(availableOnly && this.rented.contains(item.getId())) {
+        continue;
+      }
+
+      if(item.getTitle().toLowerCase().contains(query)) {
+        matches.add(item);
+      }
+    }
+
+    return matches;
+  }
+
+  /**
+   * Finds media matching every predicate of a query.  A small planner estimates how many media each 
+   * usable index would give for the query: the id index, the title gram index, the year index, 
+   * the type partitions and the set of rented ids.  Only the media from the index with the fewest 
+   * are checked against the query, and if no index narrows the search every media is checked.
+   * 
+   * @param query The query to match
+   * @param limit The most matches to return
+   * @return An ArrayList containing up to limit matching Media, in id order
+   */
+  public ArrayList<Media> query(MediaQuery query, int limit) {
+    ArrayList<Media> matches = new ArrayList<Media>();
+
+    if(this.media == null) {
+      return matches;
+    }
+
+    int[] estimates = estimatePlans(query);
+    int plan = choosePlan(estimates);
+
+    if(plan == PLAN_SCAN) {
+      for(int i = 0; i < this.media.size() && matches.size() < limit; i++) {
+        Media item = this.media.get(i);
+
+        // skip media replaced by a later add() with the same id
+        if(query.matches(item) && (this.records != null || this.index.get(item.getId()) == item)) {
+          matches.add(item);
+        }
+      }
+
+      return matches;
+    }
+
+    int[] candidates = planCandidates(query, plan);
+
+    for(int i = 0; i < candidates.length && matches.size() < limit; i++) {
+      Media item = lookup(candidates[i]);
+
+      if(item != null && query.matches(item)) {
+        matches.add(item);
+      }
+    }
+
+    return matches;
+  }
+
+  /**
+   * Describes how query() would find the media for a query, such as "year index (1200 of 50000)"
+   * @param query The query to plan
+   * @return The index that would be used, with the number of media it gives and the total
+   */
+  public String explain(MediaQuery query) {
+    if(this.media == null) {
+      return "no media";
+    }
+
+    int[] estimates = estimatePlans(query);
+    int plan = choosePlan(estimates);
+
+    return PLAN_NAMES[plan] + " (" + estimates[plan] + " of " + estimates[PLAN_SCAN] + ")";
+  }
+
+  /**
+   * Estimates the number of media each plan would check for a query
+   * @param query The query to plan
+   * @return The number of media for each plan, or -1 for plans that can't be used for the query
+   */
+  private int[] estimatePlans(MediaQuery query) {
+    int[] estimates = new int[PLAN_NAMES.length];
+    Arrays.fill(estimates, -1);
+
+    if(query.getId() != MediaQuery.ANY) {
+      estimates[PLAN_ID] = 1;
+    }
+
+    if(query.getTitleQuery() != null && this.titleIndex != null && !this.readOnly) {
+      estimates[PLAN_TITLE] = this.titleIndex.estimate(query.getTitleQuery());
+    }
+
+    if(query.hasYearRange()) {
+      estimates[PLAN_YEAR] = getAttributeIndex().countYears(query.getMinYear(), query.getMaxYear());
+    }
+
+    if(query.getType() != null) {
+      estimates[PLAN_TYPE] = getAttributeIndex().countType(query.getType());
+    }
+
+    if(Boolean.TRUE.equals(query.getRented())) {
+      estimates[PLAN_RENTED] = this.rented.size();
+    }
+
+    estimates[PLAN_SCAN] = this.media.size();
+
+    return estimates;
+  }
+
+  /**
+   * Chooses the plan that checks the fewest media
+   * @param estimates The estimates from estimatePlans()
+   * @return The chosen plan
+   */
+  private static int choosePlan(int[] estimates) {
+    int best = PLAN_SCAN;
+
+    for(int plan = 0; plan < estimates.length; plan++) {
+      // the earlier plan wins a tie, as it is cheaper to get its candidates
+      if(estimates[plan] >= 0 && estimates[plan] < estimates[best]) {
+        best = plan;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Gets the ids of the media a plan would check for a query
+   * @param query The query
+   * @param plan The plan, other than PLAN_SCAN
+   * @return The candidate ids, in increasing order
+   */
+  private int[] planCandidates(MediaQuery query, int plan) {
+    switch(plan) {
+      case PLAN_ID:
+        return new int[] {query.getId()};
+      case PLAN_TITLE:
+        // posting lists are in the order titles were added, which was id order when loaded
+        int[] ids = this.titleIndex.candidates(query.getTitleQuery());
+        Arrays.sort(ids);
+        return ids;
+      case PLAN_YEAR:
+        return getAttributeIndex().getYearIds(query.getMinYear(), query.getMaxYear());
+      case PLAN_TYPE:
+        return getAttributeIndex().getTypeIds(query.getType());
+      default:
+        int[] rentedIds = this.rented.toArray();
+        Arrays.sort(rentedIds);
+        return rentedIds;
+    }
+  }
+
+  /**
+   * Gets the year and type indexes of the current media, building them if needed.  Synchronized as 
+   * queries may run on several threads at once.
+   * @return The AttributeIndex for the current media
+   */
+  private synchronized AttributeIndex getAttributeIndex() {
+    if(this.attributes != null) {
+      return this.attributes;
+    }
+
+    int count = (this.records != null ? this.records.size() : this.index.size());
+    int[] ids = new int[count];
+    int[] years = new int[count];
+    MediaType[] types = new MediaType[count];
+    int n = 0;
+
+    if(this.records != null) {
+      for(int i = 0; i < count; i++) {
+        ids[i] = this.records.getId(i);
+        years[i] = this.records.getYearPublished(i);
+        types[i] = this.records.getType(i);
+      }
+
+      n = count;
+    } else {
+      for(Media item: this.media) {
+        if(this.index.get(item.getId()) == item) {
+          ids[n] = item.getId();
+          years[n] = item.getYearPublished();
+          types[n] = item.getType();
+          n++;
+        }
+      }
+    }
+
+    this.attributes = new AttributeIndex(ids, years, types, n);
+
+    return this.attributes;
+  }
+
+  /**
+   * Changes the title of the Media object with the given ID, keeping the title index up to date 
+   * and saving the change to the directory given in load().
+   * 
+   * @param id The id of the Media object
+   * @param title The new title
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media could not be properly saved
+   */
+  public void setTitle(int id, String title) throws MediaNotFoundException, MediaUpdateException {
+    Media item = getById(id);
+
+    if(isReadOnly()) {
+      throw new MediaUpdateException("Unable to update media: media was opened read-only");
+    }
+
+    if(this.records != null) {
+      throw new MediaUpdateException("Unable to update media: media stored in columns can only be rented");
+    }
+
+    if(this.titleIndex != null) {
+      this.titleIndex.remove(item);
+    }
+
+    item.setTitle(title);
+
+    if(this.titleIndex != null) {
+      this.titleIndex.add(item);
+    }
+
+    try {
+      save(item);
+    } catch( FileNotFoundException e ) {
+      throw new MediaUpdateException("Unable to update media: " + e.getMessage());
+    } catch( IOException e ) {
+      throw new MediaUpdateException("Unable to update media: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Gets all the current media in the Manager instance
+   * @return A List containing all the Media
+   */
+  public List<Media> getAllMedia() {
+    return this.media;
+  }
+
+  /**
+   * Gets the number of media in the Manager instance, without copying or checking any media
+   * @return The number of media getAllMedia() would return, 0 if no media is loaded
+   */
+  public int size() {
+    return (this.media == null ? 0 : this.media.size());
+  }
+
+  /**
+   * Checks if the Manager instance has any media, without copying or checking any media
+   * @return true if no media is loaded
+   */
+  public boolean isEmpty() {
+    return (size() == 0);
+  }
+
+  /**
+   * Gets all the media that isn't rented, in the same order as getAllMedia()
+   * @return A new List containing the available Media, empty if no media is loaded
+   */
+  public List<Media> getAvailableMedia() {
+    ArrayList<Media> available = new ArrayList<Media>();
+
+    if(this.media == null) {
+      return available;
+    }
+
+    for(int i = 0; i < this.media.size(); i++) {
+      Media item = this.media.get(i);
+
+      if(!this.rented.contains(item.getId())) {
+        available.add(item);
+      }
+    }
+
+    return available;
+  }
+
+  /**
+   * Gets all the media that is rented
+   * @return A new List containing the rented Media, in id order
+   */
+  public List<Media> getRentedMedia() {
+    int[] ids = this.rented.toArray();
+    ArrayList<Media> rentals = new ArrayList<Media>(ids.length);
+
+    for(int id: ids) {
+      Media item = lookup(id);
+
+      if(item != null) {
+        rentals.add(item);
+      }
+    }
+
+    return rentals;
+  }
+
+  /**
+   * Gets the number of media that is rented, without checking each media
+   * @return The number of rented media
+   */
+  public int getRentedCount() {
+    return this.rented.size();
+  }
+
+  /**
+   * Gets the number of media that isn't rented, without checking each media
+   * @return The number of available media
+   */
+  public int getAvailableCount() {
+    if(this.media == null) {
+      return 0;
+    }
+
+    // media with duplicate ids are only counted once
+    int total = (this.records != null ? this.records.size() : this.index.size());
+
+    return total - this.rented.size();
+  }
+
+  /**
+   * Checks if the Media object with the given ID can be rented
+   * @param id The id of the Media object
+   * @return true if the media isn't rented
+   * @throws MediaNotFoundException If the given ID could not be found
+   */
+  public boolean isAvailable(int id) throws MediaNotFoundException {
+    if(lookup(id) == null) {
+      throw new MediaNotFoundException("could not find media for id: " + id);
+    }
+
+    return !this.rented.contains(id);
+  }
+
+  /**
+   * Calculates the rental fee of every media using the pricing rules, such as for a report over the 
+   * whole catalog
+   * @return The fee of each Media, in the same order as getAllMedia(), or an empty array if no media 
+   *         is loaded
+   */
+  public double[] getRentalFees() {
+    if(this.media == null) {
+      return new double[0];
+    }
+
+    return this.pricing.calculateFees(this.media);
+  }
+
+  /**
+   * Gets the Media object at the given index.
+   * 
+   * @param index The index of the Media object to get
+   * @return The Media object at the given index
+   * @throws MediaNotFoundException If the Media object could not be found
+   */
+  public Media get(int index) throws MediaNotFoundException {
+    if(this.media != null && this.media.size() > 0) {
+      return this.media.get(index);
+    }
+
+    throw new MediaNotFoundException("No media available at index: " + index);
+  }
+
+  /**
+   * Gets the Media object with the given ID.
+   * 
+   * @param id The id of the Media object
+   * @return The Media object with the given ID
+   * @throws MediaNotFoundException If the given ID could not be found
+   */
+  public Media getById(int id) throws MediaNotFoundException {
+    Media item = lookup(id);
+
+    if(item == null) {
+      throw new MediaNotFoundException("could not find media for id: " + id);
+    }
+
+    return item;
+  }
+
+  /**
+   * Looks up the Media object with the given ID
+   * @param id The id of the Media object
+   * @return The Media object with the given ID, or null if there is none
+   */
+  private Media lookup(int id) {
+    if(this.records != null) {
+      int position = this.records.indexOfId(id);
+      return (position >= 0 ? this.media.get(position) : null);
+    }
+
+    return this.index.get(id);
+  }
+
+  /**
+   * Rents the Media object with the given ID. Will set the 'rented' flag to 'true' on the Media item 
+   * and record it in the rental journal for the directory given in load() (or save it to the catalog 
+   * file given in load()).  
+   * 
+   * Returns the rental fee for the rented Media object, as priced by the pricing rules.
+   *
+   * @param id The id of the Media object
+   * @return The rental fee for the Media object
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media is already rented or could not be properly saved
+   */
+  public double rent(int id) throws MediaNotFoundException, MediaUpdateException {
+    double fee = rentMedia(id);
+
+    compactJournalIfFull();
+
+    return fee;
+  }
+
+  /**
+   * Rents the Media object with the given ID, without compacting the rental journal afterwards.
+   * The 'rented' flag is changed atomically, so if several threads rent the same ID at once only
+   * one of them succeeds.  If the rental can't be recorded the flag is set back to 'false'.
+   *
+   * @param id The id of the Media object
+   * @return The rental fee for the Media object
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media is already rented or could not be properly saved
+   */
+  protected double rentMedia(int id) throws MediaNotFoundException, MediaUpdateException {
+    Media rental = changeRented(id, true);
+    
+    return this.pricing.getFee(rental);
+  }
+
+  /**
+   * Rents all of the Media objects with the given IDs as a single transaction.  Either every item is
+   * rented or, if any item can't be found, is already rented or the rentals can't be saved, none 
+   * are.  All rentals are recorded with a single write to the journal (or store).
+   * 
+   * @param ids The ids of the Media objects to rent
+   * @return A RentalReceipt with the fee for each item and the total fee
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media is already rented or the rentals could not be saved
+   */
+  public RentalReceipt rentAll(int[] ids) throws MediaNotFoundException, MediaUpdateException {
+    RentalReceipt receipt = rentAllMedia(ids);
+
+    compactJournalIfFull();
+
+    return receipt;
+  }
+
+  /**
+   * Rents all of the Media objects with the given IDs as a single transaction, without compacting 
+   * the rental journal afterwards.
+   * 
+   * @param ids The ids of the Media objects to rent
+   * @return A RentalReceipt with the fee for each item and the total fee
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media is already rented or the rentals could not be saved
+   */
+  protected RentalReceipt rentAllMedia(int[] ids) throws MediaNotFoundException, MediaUpdateException {
+    ArrayList<Media> rentals = changeAllRented(ids, true);
+
+    return new RentalReceipt(ids, this.pricing.calculateFees(rentals));
+  }
+
+  /**
+   * Returns (checks in) the rented Media object with the given ID.  Will set the 'rented' flag to 
+   * 'false' on the Media item and record it the same way as a rental, in the rental journal for the 
+   * directory given in load() (or by saving it to the catalog file given in load()).
+   *
+   * @param id The id of the Media object
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media isn't rented or could not be properly saved
+   */
+  public void returnMedia(int id) throws MediaNotFoundException, MediaUpdateException {
+    returnRental(id);
+
+    compactJournalIfFull();
+  }
+
+  /**
+   * Returns the rented Media object with the given ID, without compacting the rental journal 
+   * afterwards.  As with renting, if several threads return the same ID at once only one of them 
+   * succeeds.
+   *
+   * @param id The id of the Media object
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media isn't rented or could not be properly saved
+   */
+  protected void returnRental(int id) throws MediaNotFoundException, MediaUpdateException {
+    changeRented(id, false);
+  }
+
+  /**
+   * Returns all of the rented Media objects with the given IDs as a single transaction.  Either 
+   * every item is returned or, if any item can't be found, isn't rented or the returns can't be 
+   * saved, none are.  All returns are recorded with a single write to the journal (or store).
+   * 
+   * @param ids The ids of the Media objects to return
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media isn't rented or the returns could not be saved
+   */
+  public void returnAll(int[] ids) throws MediaNotFoundException, MediaUpdateException {
+    returnAllRentals(ids);
+
+    compactJournalIfFull();
+  }
+
+  /**
+   * Returns all of the rented Media objects with the given IDs as a single transaction, without 
+   * compacting the rental journal afterwards.
+   * 
+   * @param ids The ids of the Media objects to return
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media isn't rented or the returns could not be saved
+   */
+  protected void returnAllRentals(int[] ids) throws MediaNotFoundException, MediaUpdateException {
+    changeAllRented(ids, false);
+  }
+
+  /**
+   * Rents or returns the Media object with the given ID and records the change.  If the change 
+   * can't be recorded the 'rented' flag is set back.
+   * 
+   * @param id The id of the Media object
+   * @param rented true to rent the media, false to return it
+   * @return The Media object that was changed
+   * @throws MediaNotFoundException If the given ID could not be found
+   * @throws MediaUpdateException If the Media already has that status or could not be properly saved
+   */
+  private Media changeRented(int id, boolean rented) throws MediaNotFoundException, MediaUpdateException {
+    // look up the media for the ID, throws exception if it couldn't be found
+    Media item = getById(id);
+
+    if(isReadOnly()) {
+      throw new MediaUpdateException("Unable to update media: media was opened read-only");
+    }
+
+    // set rental status, only one caller can change it
+    if(!item.compareAndSetRented(!rented, rented)) {
+      throw new MediaUpdateException((rented ? "Media is already rented: " : "Media is not rented: ") + id);
+    }
+
+    updateRentedIds(item, rented);
+
+    // record the change in the journal, or save the media if there is no journal
+    try {
+      saveRentals(Collections.singletonList(item), rented ? RentalJournal.RENT : RentalJournal.RETURN);
+    } catch( FileNotFoundException e ) {
+      updateRentedIds(item, !rented);
+      item.setRented(!rented);
+      throw new MediaUpdateException("Unable to update media: " + e.getMessage());
+    } catch( IOException e ) {
+      updateRentedIds(item, !rented);
+      item.setRented(!rented);
+      throw new MediaUpdateException("Unable to update media: " + e.getMessage());
+    }
+
+    return item;
+  }
+
+  /**
+   * Rents or returns all of the Media objects with the given IDs as a single transaction, recording 
+   * every change with a single write.  If anything fails nothing is changed.
+   * 
+   * @param ids The ids of the Media objects
+   * @param rented true to rent the media, false to return it
+   * @return The Media objects that were changed, in the same order as the ids
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   * @throws MediaUpdateException If any Media already has that status or the changes could not be saved
+   */
+  private ArrayList<Media> changeAllRented(int[] ids, boolean rented) throws MediaNotFoundException, MediaUpdateException {
+    if(isReadOnly()) {
+      throw new MediaUpdateException("Unable to update media: media was opened read-only");
+    }
+
+    // look up every item first so nothing is changed if one is missing
+    ArrayList<Media> items = new ArrayList<Media>(ids.length);
+    MediaIdIndex requested = new MediaIdIndex();
+
+    for(int id: ids) {
+      Media item = getById(id);
+
+      if(requested.put(item) != null) {
+        throw new MediaUpdateException("Media requested more than once: " + id);
+      }
+
+      items.add(item);
+    }
+
+    // set rental status of each item, undoing the ones already set if any already has it
+    for(int i = 0; i < items.size(); i++) {
+      if(!items.get(i).compareAndSetRented(!rented, rented)) {
+        for(int j = 0; j < i; j++) {
+          items.get(j).setRented(!rented);
+        }
+
+        throw new MediaUpdateException((rented ? "Media is already rented: " : "Media is not rented: ") + items.get(i).getId());
+      }
+    }
+
+    for(Media item: items) {
+      updateRentedIds(item, rented);
+    }
+
+    // record all changes together
+    try {
+      saveRentals(items, rented ? RentalJournal.RENT : RentalJournal.RETURN);
+    } catch(IOException e) {
+      for(Media item: items) {
+        updateRentedIds(item, !rented);
+        item.setRented(!rented);
+      }
+
+      throw new MediaUpdateException("Unable to update media: " + e.getMessage());
+    }
+
+    return items;
+  }
+
+  /**
+   * Adds or removes the id of a Media object in the set of rented ids
+   * @param item The Media object
+   * @param rented true if the media is now rented
+   */
+  private void updateRentedIds(Media item, boolean rented) {
+    if(rented) {
+      this.rented.add(item.getId());
+    } else {
+      this.rented.remove(item.getId());
+    }
+  }
+
+  /**
+   * Prices the Media objects with the given IDs without renting them
+   * 
+   * @param ids The ids of the Media objects to price
+   * @return A RentalReceipt with the fee each item would have and the total fee
+   * @throws MediaNotFoundException If any of the given IDs could not be found
+   */
+  public RentalReceipt quoteAll(int[] ids) throws MediaNotFoundException {
+    ArrayList<Media> items = new ArrayList<Media>(ids.length);
+
+    for(int id: ids) {
+      items.add(getById(id));
+    }
+
+    return new RentalReceipt(ids, this.pricing.calculateFees(items));
+  }
+}
@@ -0,0 +1,252 @@
+package mediarental;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Read-only view of a CatalogFile that is memory mapped rather than read into Media objects.  The
+ * only per-record heap used is the offset of each record, and fields are decoded from the mapped
+ * file only when asked for.  Records are ordered by id, and only the most recent record for each id
+ * is visible.
+ *
+ * As a List, each get() returns a new MediaView over the mapped record.
+ */
+public class MappedCatalog extends AbstractList<Media> implements MediaRecords {
+  // the mapped catalog file
+  private File file;
+  private MappedByteBuffer buffer;
+
+  // offsets of the visible records in the mapped file, sorted by id
+  private int[] offsets;
+
+  /**
+   * Maps the given catalog file and indexes its records
+   * @param file The catalog file to map
+   * @throws IOException If the file could not be mapped or is not a catalog file
+   * @throws MediaCreationException If a record in the catalog is not valid
+   */
+  public MappedCatalog(File file) throws IOException, MediaCreationException {
+    this.file = file;
+
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+
+      if(size > Integer.MAX_VALUE) {
+        throw new IOException("Media catalog is too large to map: " + file.getAbsolutePath());
+      }
+
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    if(this.buffer.limit() < CatalogFile.HEADER_SIZE || this.buffer.getInt(0) != CatalogFile.MAGIC ||
+        this.buffer.getShort(4) != CatalogFile.VERSION) {
+      throw new IOException("Not a supported media catalog file: " + file.getAbsolutePath());
+    }
+
+    this.offsets = indexRecords();
+  }
+
+  /**
+   * Gets the mapped catalog file
+   * @return The catalog file
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Scans the mapped file for records, keeping the most recent record for each id.  An incomplete
+   * record at the end of the file is ignored.
+   *
+   * @return Offsets of the visible records, sorted by id
+   * @throws MediaCreationException If a record has an unknown type
+   */
+  private int[] indexRecords() throws MediaCreationException {
+    int[] found = new int[1024];
+    int count = 0;
+    int limit = this.buffer.limit();
+    int position = CatalogFile.HEADER_SIZE;
+
+    while(position + CatalogFile.RECORD_HEADER_SIZE <= limit) {
+      int next = position + CatalogFile.RECORD_HEADER_SIZE + titleLength(position);
+
+      if(next > limit) {
+        break;
+      }
+
+      if(MediaType.forTag(this.buffer.get(position + CatalogFile.TAG_OFFSET)) == null) {
+        throw new MediaCreationException("Unknown media type in catalog " + this.file.getName() +
+          " at position " + position);
+      }
+
+      if(count == found.length) {
+        found = Arrays.copyOf(found, count * 2);
+      }
+
+      found[count++] = position;
+      position = next;
+    }
+
+    // sort by id, then by order saved, so the last record of each id comes last
+    long[] keys = new long[count];
+
+    for(int i = 0; i < count; i++) {
+      keys[i] = ((long) this.buffer.getInt(found[i] + CatalogFile.ID_OFFSET) << 32) | i;
+    }
+
+    Arrays.sort(keys);
+
+    int[] offsets = new int[count];
+    int visible = 0;
+
+    for(int i = 0; i < count; i++) {
+      if(i + 1 < count && (keys[i + 1] >> 32) == (keys[i] >> 32)) {
+        continue;
+      }
+
+      offsets[visible++] = found[(int) keys[i]];
+    }
+
+    return Arrays.copyOf(offsets, visible);
+  }
+
+  /**
+   * Gets a view of the record at the given index
+   * @param index The record index
+   * @return A MediaView for the record
+   */
+  public Media get(int index) {
+    if(index < 0 || index >= this.offsets.length) {
+      throw new IndexOutOfBoundsException("No media at index: " + index);
+    }
+
+    return new MediaView(this, index);
+  }
+
+  /**
+   * Gets the number of records
+   * @return The number of records
+   */
+  public int size() {
+    return this.offsets.length;
+  }
+
+  /**
+   * Finds the record index for a media id
+   * @param id The id to look for
+   * @return The index of the record with the id, or -1 if there is none
+   */
+  public int indexOfId(int id) {
+    int low = 0;
+    int high = this.offsets.length - 1;
+
+    while(low <= high) {
+      int middle = (low + high) >>> 1;
+      int middleId = getId(middle);
+
+      if(middleId < id) {
+        low = middle + 1;
+      } else if(middleId > id) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Gets the type of a record
+   * @param index The record index
+   * @return The MediaType of the record
+   */
+  public MediaType getType(int index) {
+    return MediaType.forTag(this.buffer.get(this.offsets[index] + CatalogFile.TAG_OFFSET));
+  }
+
+  /**
+   * Gets the id of a record
+   * @param index The record index
+   * @return The id of the record
+   */
+  public int getId(int index) {
+    return this.buffer.getInt(this.offsets[index] + CatalogFile.ID_OFFSET);
+  }
+
+  /**
+   * Gets the title of a record, decoding it from the mapped file
+   * @param index The record index
+   * @return The title of the record
+   */
+  public String getTitle(int index) {
+    int offset = this.offsets[index];
+    byte[] title = new byte[titleLength(offset)];
+
+    // read through a duplicate so concurrent readers don't share a position
+    ByteBuffer source = this.buffer.duplicate();
+    source.position(offset + CatalogFile.RECORD_HEADER_SIZE);
+    source.get(title);
+
+    return new String(title, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the year of publication of a record
+   * @param index The record index
+   * @return The 4-digit year of the record
+   */
+  public int getYearPublished(int index) {
+    return this.buffer.getInt(this.offsets[index] + CatalogFile.YEAR_OFFSET);
+  }
+
+  /**
+   * Gets the rental status of a record
+   * @param index The record index
+   * @return true if rented, false if not
+   */
+  public boolean isRented(int index) {
+    return this.buffer.get(this.offsets[index] + CatalogFile.RENTED_OFFSET) != 0;
+  }
+
+  /**
+   * Gets the type specific attribute (chapters, length or size) of a record
+   * @param index The record index
+   * @return The type attribute of the record
+   */
+  public double getTypeAttribute(int index) {
+    return this.buffer.getDouble(this.offsets[index] + CatalogFile.ATTRIBUTE_OFFSET);
+  }
+
+  /**
+   * Gets the length of the title of the record at the given file offset
+   * @param offset The offset of the record
+   * @return The length of the title in bytes
+   */
+  private int titleLength(int offset) {
+    return this.buffer.getShort(offset + CatalogFile.TITLE_LENGTH_OFFSET) & 0xFFFF;
+  }
+
+  /**
+   * The mapped catalog is read-only
+   * @throws UnsupportedOperationException always
+   */
+  public void setRented(int index, boolean rented) {
+    throw new UnsupportedOperationException("Media catalog was opened read-only");
+  }
+
+  /**
+   * The mapped catalog is read-only
+   * @throws UnsupportedOperationException always
+   */
+  public boolean compareAndSetRented(int index, boolean expected, boolean rented) {
+    throw new UnsupportedOperationException("Media catalog was opened read-only");
+  }
+}
@@ -1,6 +1,7 @@
+package mediarental;
+
 import java.io.*;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Class that represents media to be rented
@@ -9,19 +10,17 @@ import java.util.Scanner;
  * Date: 3/8/2022
  */
 public abstract class Media {
-  // default rental fee
-  private static final double RENTAL_FEE = 3.50;
-
-  // types of media - used for loading media from files
-  private static final String TYPE_EBOOK = "EBook";
-  private static final String TYPE_MOVIE = "MovieDVD";
-  private static final String TYPE_MUSIC = "MusicCD";
-
   // attributes
   private int id;
   private String title;
   private int yearPublished;
-  private boolean rented;
+
+  // rental status, 1 if rented or 0 if not.  An int so compareAndSetRented() can change it atomically
+  private volatile int rented;
+
+  // updates the rented field atomically
+  private static final AtomicIntegerFieldUpdater<Media> RENTED = 
+    AtomicIntegerFieldUpdater.newUpdater(Media.class, "rented");
 
   /**
    * Creates a new Media object from the given comma-delimited string.  
@@ -31,8 +30,17 @@ public abstract class Media {
    * @throws MediaCreationException if the Media object could to be properly created from the data given
    */
   public Media(String data) throws MediaCreationException {
-    String[] segements = data.split(",");
+    this(data.split(","));
+  }
 
+  /**
+   * Creates a new Media object from a comma-delimited string that has already been split, so 
+   * subclasses can read their own fields without splitting the string again.
+   * 
+   * @param segements The fields for the Media instance: id, title, yearPublished, rented, ...
+   * @throws MediaCreationException if the Media object could to be properly created from the data given
+   */
+  protected Media(String[] segements) throws MediaCreationException {
     // ensure we have all elements in the string first
     if(segements.length < 4) {
       throw new MediaCreationException("Incorrect media data format");
@@ -43,7 +51,7 @@ public abstract class Media {
       this.id = Integer.parseInt(segements[0]);
       this.title = segements[1];
       this.yearPublished = Integer.parseInt(segements[2]);
-      this.rented = Boolean.parseBoolean(segements[3]);
+      this.rented = Boolean.parseBoolean(segements[3]) ? 1 : 0;
     } catch( Exception e ) {
       throw new MediaCreationException("Unable to read media: " + e.getMessage());
     }
@@ -61,9 +69,16 @@ public abstract class Media {
     this.id = id;
     this.title = title;
     this.yearPublished = yearPublished;
-    this.rented = rented;
+    this.rented = rented ? 1 : 0;
   }
 
+  /**
+   * Gets the type of the Media instance
+   * 
+   * @return The MediaType for this Media
+   */
+  public abstract MediaType getType();
+
   /**
    * Gets the id of the Media instance
    * 
@@ -110,7 +125,19 @@ public abstract class Media {
    * @param rented true if rented, false if not
    */
   public void setRented(boolean rented) {
-    this.rented = rented;
+    this.rented = rented ? 1 : 0;
+  }
+
+  /**
+   * Atomically sets the rented indicator if it currently has the expected value.  When several 
+   * threads try to rent the same Media, only one of them will succeed.
+   * 
+   * @param expected The rental status the Media is expected to have
+   * @param rented The new rental status
+   * @return true if the status was changed, false if it didn't have the expected value
+   */
+  public boolean compareAndSetRented(boolean expected, boolean rented) {
+    return RENTED.compareAndSet(this, expected ? 1 : 0, rented ? 1 : 0);
   }
 
   /**
@@ -118,15 +145,36 @@ public abstract class Media {
    * @return true if rented, false if not
    */
   public boolean isRented() {
-    return this.rented;
+    return this.rented != 0;
   }
 
   /**
-   * Calculates the rental fee for the Media instance. 
-   * @return The default rental fee
+   * Calculates the rental fee for the Media instance, as priced by the default PricingRules.  A 
+   * Manager prices its rentals with its own rules, which may differ.
+   * @return The rental fee
    */
   public double caculateRentalFee() {
-    return RENTAL_FEE;
+    return PricingRules.getDefault().getFee(this);
+  }
+
+  /**
+   * Checks if another media holds the same values as this one, such as one parsed again from the 
+   * file this one was saved to
+   * @param other The other Media
+   * @return true if the type, id, title, year, rental status and type attribute are the same
+   */
+  public boolean hasSameValues(Media other) {
+    return getType() == other.getType() && getId() == other.getId() && getTitle().equals(other.getTitle()) && 
+      getYearPublished() == other.getYearPublished() && isRented() == other.isRented() && 
+      getTypeAttribute() == other.getTypeAttribute();
+  }
+
+  /**
+   * Gets the numeric attribute specific to the type of Media (chapters, length or size)
+   * @return The type attribute, or 0 if the type has none
+   */
+  public double getTypeAttribute() {
+    return 0;
   }
 
   /**
@@ -147,59 +195,21 @@ public abstract class Media {
       this.id + "," +
       this.title + "," +
       this.yearPublished + "," +
-      this.rented
+      isRented()
     );
   }
 
   /**
    * Static method that creates a specific Media instance from the given file.  This method uses
    * the file's name to determine which type of Media instance to create, then reads the data 
-   * from the file, setting the attributes of the instance from the data.
+   * from the file, setting the attributes of the instance from the data.  When reading many files,
+   * reuse a MediaParser instead.
    * 
    * @param file The file the create Media from
    * @return A Media-based instance containing data read from the file
    * @throws MediaCreationException If a Media instance could not be created
    */
   public static final Media createMedia(File file) throws MediaCreationException {
-    // filenames are in "type-id.txt" form, so get the type name form the file name
-    String name = file.getName();
-    String[] segments = name.split("-");
-
-    // verify that the name is formatted correctly
-    if(segments == null || segments.length == 0) {
-      throw new MediaCreationException("Incorrect name format for media file: " + file.getName());
-    }
-
-    // get the type
-    String type = segments[0];
-    Media media = null;
-
-    try {
-      // Read the data from the file
-      Scanner scanner = new Scanner(file);
-      String data = scanner.nextLine();
-      scanner.close();
-
-      // figure out which Media type to create from the name parsed above
-      switch(type) {
-        case TYPE_EBOOK:  
-          media =  new EBook(data);
-          break;
-        case TYPE_MUSIC:
-          media =  new MusicCD(data);
-          break;
-        case TYPE_MOVIE:
-          media =  new MovieDVD(data);
-          break;
-        default:
-          throw new MediaCreationException("Could not determine media type");
-      }
-    } catch(FileNotFoundException e) {
-      throw new MediaCreationException("Media file was not found: " + file.getName()) ;
-    } catch(NoSuchElementException e) {
-      throw new MediaCreationException("Could not read data from file: " + file.getName());
-    }
-    
-    return media;
+    return new MediaParser().parse(file);
   }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package mediarental;
+
+import java.util.List;
+
+/**
+ * Listener that is notified when a Manager watching its directory has applied changes made to the
+ * media files, such as by another terminal sharing the directory.
+ */
+public interface MediaChangeListener {
+  /**
+   * Called each time changes to the media files have been applied to the manager.  Called on the
+   * watching thread, so user interfaces should hand the update over to their own thread.
+   *
+   * @param updated The Media that were added, changed or had their rental status changed
+   * @param removed The Media that were removed because their files were deleted
+   */
+  void mediaChanged(List<Media> updated, List<Media> removed);
+}
@@ -1,3 +1,5 @@
+package mediarental;
+
 /**
  * Exception representing an error in loading/creating a Media instance
  */
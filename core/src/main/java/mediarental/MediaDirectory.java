@@ -0,0 +1,204 @@
+package mediarental;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * MediaStore that keeps each Media in its own "type-id.txt" file within a directory.
+ *
+ * Each save writes the whole file to a hidden temporary file next to it and then renames it over the
+ * media file, so readers (and a crash part way through a save) only ever see the old file or the new
+ * one, never a truncated or half written file.  Saves aren't forced to disk unless the directory is
+ * created with force set or sync() is called.
+ */
+public class MediaDirectory implements MediaStore {
+  // character set media files are written in, the same one MediaParser reads them with
+  private static final Charset CHARSET = Charset.defaultCharset();
+
+  // directory media files are saved in
+  private File directory;
+
+  // true to force each file to disk before it replaces the previous one
+  private boolean force;
+
+  // files saved without being forced to disk, forced by the next sync()
+  private LinkedHashSet<Path> unsynced;
+
+  /**
+   * Creates a new MediaDirectory for the given directory
+   * @param directory The directory containing the media files
+   */
+  public MediaDirectory(File directory) {
+    this(directory, false);
+  }
+
+  /**
+   * Creates a new MediaDirectory for the given directory
+   * @param directory The directory containing the media files
+   * @param force true to force each saved file to disk before it replaces the previous one, so a
+   *        save survives a power failure, at the cost of waiting for the disk on every save
+   */
+  public MediaDirectory(File directory, boolean force) {
+    this.directory = directory;
+    this.force = force;
+    this.unsynced = new LinkedHashSet<Path>();
+  }
+
+  /**
+   * Gets the directory media files are saved in
+   * @return The media directory
+   */
+  public File getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Indicates if saved files are forced to disk
+   * @return true if each save waits for its file to be on disk
+   */
+  public boolean isForce() {
+    return this.force;
+  }
+
+  /**
+   * Gets the file a given Media is saved to
+   * @param media The Media to get the file for
+   * @return The file for the Media, in "type-id.txt" form
+   */
+  public File getFile(Media media) {
+    return new File(this.directory, media.getType().getName() + "-" + media.getId() + ".txt");
+  }
+
+  /**
+   * Saves the given Media to its file, replacing any previous contents.  The media is written to a
+   * temporary file with a single channel write, optionally forced to disk, and then moved over the
+   * media file.  The media file is left as it was if anything fails.
+   *
+   * @param media The Media to save
+   * @throws IOException If there was an issue saving the Media to file
+   */
+  public void save(Media media) throws IOException {
+    replace(media);
+
+    if(this.force) {
+      syncDirectory();
+    }
+  }
+
+  /**
+   * Saves each of the given Media to its own file.  When files are forced to disk, the directory is 
+   * forced once for the whole batch rather than once per file.
+   * 
+   * @param items The Media to save
+   * @throws IOException If there was an issue saving the Media to file
+   */
+  public void saveAll(List<Media> items) throws IOException {
+    for(Media item: items) {
+      replace(item);
+    }
+
+    if(this.force && items.size() > 0) {
+      syncDirectory();
+    }
+  }
+
+  /**
+   * Forces every file saved since the last sync to disk, along with the directory so that the 
+   * renames replacing them are kept too
+   * @throws IOException If a file could not be forced to disk
+   */
+  public void sync() throws IOException {
+    ArrayList<Path> files;
+
+    synchronized(this.unsynced) {
+      files = new ArrayList<Path>(this.unsynced);
+      this.unsynced.clear();
+    }
+
+    for(Path file: files) {
+      try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.force(false);
+      } catch(NoSuchFileException e) {
+        // deleted since it was saved, so there is nothing left to keep
+      }
+    }
+
+    syncDirectory();
+  }
+
+  /**
+   * Writes a Media to a temporary file and moves it over the media file
+   * @param media The Media to save
+   * @throws IOException If there was an issue saving the Media to file
+   */
+  private void replace(Media media) throws IOException {
+    File file = getFile(media);
+
+    // hidden, so it is never loaded or watched as media
+    File temporary = new File(this.directory, "." + file.getName() + ".tmp");
+
+    StringWriter text = new StringWriter();
+    media.save(text);
+    ByteBuffer bytes = CHARSET.encode(text.toString());
+
+    try(FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while(bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+
+      if(this.force) {
+        channel.force(false);
+      }
+    } catch(IOException e) {
+      Files.deleteIfExists(temporary.toPath());
+      throw e;
+    }
+
+    try {
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch(AtomicMoveNotSupportedException e) {
+      // the file system can't rename atomically, so replace the file as closely as it allows
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch(IOException e) {
+      Files.deleteIfExists(temporary.toPath());
+      throw e;
+    }
+
+    if(!this.force) {
+      synchronized(this.unsynced) {
+        this.unsynced.add(file.toPath());
+      }
+    }
+  }
+
+  /**
+   * Forces the directory itself to disk, so renames into it are kept
+   */
+  private void syncDirectory() {
+    try(FileChannel channel = FileChannel.open(this.directory.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch(IOException e) {
+      // not every platform can open a directory to force it, the renames are kept when the system flushes
+    }
+  }
+
+  /**
+   * Nothing is held open between saves, so there is nothing to close
+   */
+  public void close() {
+  }
+}
@@ -0,0 +1,186 @@
+package mediarental;
+
+import java.util.ArrayList;
+
+/**
+ * Hash index of Media keyed by id.  Ids are stored as primitive ints in an open-addressing table
+ * so lookups don't box the key or allocate.
+ */
+public class MediaIdIndex {
+  // initial number of slots, must be a power of two
+  private static final int INITIAL_CAPACITY = 16;
+
+  // ids and media stored at matching slots, an empty slot has null media
+  private int[] ids;
+  private Media[] media;
+
+  // number of media in the index
+  private int size;
+
+  /**
+   * Creates a new, empty MediaIdIndex
+   */
+  public MediaIdIndex() {
+    this.ids = new int[INITIAL_CAPACITY];
+    this.media = new Media[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Gets the Media with the given id
+   * @param id The id to look up
+   * @return The Media with the given id, or null if it is not in the index
+   */
+  public Media get(int id) {
+    int mask = this.ids.length - 1;
+
+    for(int slot = hash(id) & mask; this.media[slot] != null; slot = (slot + 1) & mask) {
+      if(this.ids[slot] == id) {
+        return this.media[slot];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Adds the given Media to the index, replacing any Media already indexed with the same id
+   * @param item The Media to add
+   * @return The Media previously indexed with the same id, or null if there was none
+   */
+  public Media put(Media item) {
+    // keep the table at most half full so probe sequences stay short
+    if((this.size + 1) * 2 > this.ids.length) {
+      resize(this.ids.length * 2);
+    }
+
+    int id = item.getId();
+    int mask = this.ids.length - 1;
+    int slot = hash(id) & mask;
+
+    while(this.media[slot] != null) {
+      if(this.ids[slot] == id) {
+        Media previous = this.media[slot];
+        this.media[slot] = item;
+        return previous;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    this.ids[slot] = id;
+    this.media[slot] = item;
+    this.size++;
+
+    return null;
+  }
+
+  /**
+   * Removes the Media with the given id from the index
+   * @param id The id to remove
+   * @return The Media that was removed, or null if it was not in the index
+   */
+  public Media remove(int id) {
+    int mask = this.ids.length - 1;
+    int slot = hash(id) & mask;
+
+    while(this.media[slot] != null && this.ids[slot] != id) {
+      slot = (slot + 1) & mask;
+    }
+
+    Media removed = this.media[slot];
+
+    if(removed == null) {
+      return null;
+    }
+
+    // shift following entries back into the gap so lookups don't stop early
+    int gap = slot;
+
+    for(slot = (gap + 1) & mask; this.media[slot] != null; slot = (slot + 1) & mask) {
+      int home = hash(this.ids[slot]) & mask;
+
+      // move the entry if the gap lies between its home slot and its current slot
+      if(((slot - home) & mask) >= ((slot - gap) & mask)) {
+        this.ids[gap] = this.ids[slot];
+        this.media[gap] = this.media[slot];
+        gap = slot;
+      }
+    }
+
+    this.media[gap] = null;
+    this.size--;
+
+    return removed;
+  }
+
+  /**
+   * Gets all Media in the index, in no particular order
+   * @return An ArrayList containing the indexed Media
+   */
+  public ArrayList<Media> values() {
+    ArrayList<Media> values = new ArrayList<Media>(this.size);
+
+    for(Media item: this.media) {
+      if(item != null) {
+        values.add(item);
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * Removes all Media from the index
+   */
+  public void clear() {
+    this.ids = new int[INITIAL_CAPACITY];
+    this.media = new Media[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Gets the number of Media in the index
+   * @return The number of indexed Media
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Grows the table to the given number of slots and re-inserts all entries
+   * @param capacity The new number of slots, must be a power of two
+   */
+  private void resize(int capacity) {
+    int[] oldIds = this.ids;
+    Media[] oldMedia = this.media;
+
+    this.ids = new int[capacity];
+    this.media = new Media[capacity];
+
+    int mask = capacity - 1;
+
+    for(int i = 0; i < oldMedia.length; i++) {
+      if(oldMedia[i] != null) {
+        int slot = hash(oldIds[i]) & mask;
+
+        while(this.media[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+
+        this.ids[slot] = oldIds[i];
+        this.media[slot] = oldMedia[i];
+      }
+    }
+  }
+
+  /**
+   * Spreads the bits of an id so sequential ids don't cluster in the table
+   * @param id The id to hash
+   * @return The hash for the id
+   */
+  private static int hash(int id) {
+    int h = id * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
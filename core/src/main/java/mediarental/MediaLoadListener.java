@@ -0,0 +1,17 @@
+package mediarental;
+
+import java.util.List;
+
+/**
+ * Listener that is notified as Media is read during Manager.load(), allowing partial 
+ * results to be shown before the whole directory has been read.
+ */
+public interface MediaLoadListener {
+  /**
+   * Called each time a batch of Media has been read.  Called on the thread that invoked load().
+   * 
+   * @param batch The Media read in this batch, in directory order
+   * @param loaded The total number of Media read so far
+   */
+  void mediaLoaded(List<Media> batch, int loaded);
+}
@@ -0,0 +1,327 @@
+package mediarental;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Manifest of the media files in a directory: the name, size and modification time of each file,
+ * along with the media record parsed from it.  When a directory is loaded again, a file whose size
+ * and modification time still match its manifest entry doesn't need to be read or parsed; the media
+ * is created from the record in the manifest instead.
+ *
+ * The manifest is kept as a hidden file in the directory:
+ *
+ *   magic number (4 bytes), version (2), time written (8), entry count (4), then for each entry:
+ *   name (UTF), size (8), modified (8), type tag (1), id (4), yearPublished (4), rented (1),
+ *   type attribute (8), title (UTF), record hash (8)
+ *
+ * The hash of each record guards against a damaged manifest giving wrong media; entries that don't
+ * match their hash are ignored.  Files modified shortly before the manifest was written are always
+ * read again, since a change made in the same clock tick as the one recorded wouldn't change the
+ * modification time.
+ */
+public class MediaManifest {
+  // name of the manifest file in a media directory, hidden so it isn't loaded as media
+  public static final String NAME = ".media.manifest";
+
+  // identifies manifest files ("MRMF")
+  private static final int MAGIC = 0x4D524D46;
+
+  // current version of the manifest layout
+  private static final short VERSION = 1;
+
+  // files modified this close to when the manifest was written are read again, in milliseconds
+  static final long RACY_WINDOW = 2000;
+
+  // initial number of entries
+  private static final int INITIAL_CAPACITY = 64;
+
+  // position of each entry by file name
+  private HashMap<String, Integer> positions;
+
+  // file attributes and media record of each entry, stored at matching positions
+  private String[] names;
+  private long[] sizes;
+  private long[] modified;
+  private byte[] tags;
+  private int[] ids;
+  private int[] years;
+  private boolean[] rented;
+  private double[] attributes;
+  private String[] titles;
+
+  // number of entries
+  private int size;
+
+  // when the manifest these entries were read from was written, or 0 for a new manifest
+  private long written;
+
+  /**
+   * Creates a new, empty MediaManifest
+   */
+  public MediaManifest() {
+    this.positions = new HashMap<String, Integer>();
+    this.names = new String[INITIAL_CAPACITY];
+    this.sizes = new long[INITIAL_CAPACITY];
+    this.modified = new long[INITIAL_CAPACITY];
+    this.tags = new byte[INITIAL_CAPACITY];
+    this.ids = new int[INITIAL_CAPACITY];
+    this.years = new int[INITIAL_CAPACITY];
+    this.rented = new boolean[INITIAL_CAPACITY];
+    this.attributes = new double[INITIAL_CAPACITY];
+    this.titles = new String[INITIAL_CAPACITY];
+    this.size = 0;
+    this.written = 0;
+  }
+
+  /**
+   * Gets the manifest file for a media directory
+   * @param directory The media directory
+   * @return The manifest file within the directory
+   */
+  public static File getFile(File directory) {
+    return new File(directory, NAME);
+  }
+
+  /**
+   * Gets the number of entries
+   * @return The number of files in the manifest
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Creates the media recorded for a file, if the file hasn't changed since it was recorded
+   *
+   * @param name The file name
+   * @param size The current size of the file
+   * @param modified The current modification time of the file, in milliseconds
+   * @return A new Media from the recorded values, or null if the file isn't in the manifest or may
+   *         have changed
+   */
+  public Media get(String name, long size, long modified) {
+    Integer position = this.positions.get(name);
+
+    if(position == null) {
+      return null;
+    }
+
+    int i = position.intValue();
+
+    if(this.sizes[i] != size || this.modified[i] != modified || modified >= this.written - RACY_WINDOW) {
+      return null;
+    }
+
+    return MediaType.forTag(this.tags[i]).create(this.ids[i], this.titles[i], this.years[i], this.rented[i],
+      this.attributes[i]);
+  }
+
+  /**
+   * Records the media in a file, replacing any entry for the file
+   *
+   * @param name The file name
+   * @param size The size of the file
+   * @param modified The modification time of the file, in milliseconds
+   * @param media The media the file holds
+   */
+  public void put(String name, long size, long modified, Media media) {
+    put(name, size, modified, media.getType().getTag(), media.getId(), media.getYearPublished(), media.isRented(),
+      media.getTypeAttribute(), media.getTitle());
+  }
+
+  /**
+   * Records the values of the media in a file, replacing any entry for the file
+   * @param name The file name
+   * @param size The size of the file
+   * @param modified The modification time of the file, in milliseconds
+   * @param tag The type tag of the media
+   * @param id The id of the media
+   * @param yearPublished The year the media was published
+   * @param rented The rental status of the media
+   * @param attribute The type attribute of the media
+   * @param title The title of the media
+   */
+  private void put(String name, long size, long modified, byte tag, int id, int yearPublished, boolean rented,
+      double attribute, String title) {
+    Integer position = this.positions.get(name);
+    int i;
+
+    if(position != null) {
+      i = position.intValue();
+    } else {
+      if(this.size == this.names.length) {
+        grow();
+      }
+
+      i = this.size++;
+      this.positions.put(name, i);
+    }
+
+    this.names[i] = name;
+    this.sizes[i] = size;
+    this.modified[i] = modified;
+    this.tags[i] = tag;
+    this.ids[i] = id;
+    this.years[i] = yearPublished;
+    this.rented[i] = rented;
+    this.attributes[i] = attribute;
+    this.titles[i] = title;
+  }
+
+  /**
+   * Reads a manifest file
+   * @param file The manifest file
+   * @return The manifest read, or an empty manifest if the file doesn't exist
+   * @throws IOException If the manifest could not be read or is not a manifest file
+   */
+  public static MediaManifest read(File file) throws IOException {
+    MediaManifest manifest = new MediaManifest();
+
+    if(!file.exists()) {
+      return manifest;
+    }
+
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if(in.readInt() != MAGIC || in.readShort() != VERSION) {
+        throw new IOException("Not a media manifest: " + file.getName());
+      }
+
+      long written = in.readLong();
+      int count = in.readInt();
+
+      for(int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        long size = in.readLong();
+        long modified = in.readLong();
+        byte tag = in.readByte();
+        int id = in.readInt();
+        int yearPublished = in.readInt();
+        boolean rented = in.readBoolean();
+        double attribute = in.readDouble();
+        String title = in.readUTF();
+        long hash = in.readLong();
+
+        // skip damaged entries, so their files are read again
+        if(MediaType.forTag(tag) == null || hash != hash(name, size, modified, tag, id, yearPublished, rented, attribute, title)) {
+          continue;
+        }
+
+        manifest.put(name, size, modified, tag, id, yearPublished, rented, attribute, title);
+      }
+
+      manifest.written = written;
+    }
+
+    return manifest;
+  }
+
+  /**
+   * Writes the manifest to a file.  It is written to a temporary file first and then moved into
+   * place, so an interrupted write leaves the previous manifest.
+   *
+   * @param file The manifest file
+   * @throws IOException If the manifest could not be written
+   */
+  public void write(File file) throws IOException {
+    File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeLong(System.currentTimeMillis());
+      out.writeInt(this.size);
+
+      for(int i = 0; i < this.size; i++) {
+        out.writeUTF(this.names[i]);
+        out.writeLong(this.sizes[i]);
+        out.writeLong(this.modified[i]);
+        out.writeByte(this.tags[i]);
+        out.writeInt(this.ids[i]);
+        out.writeInt(this.years[i]);
+        out.writeBoolean(this.rented[i]);
+        out.writeDouble(this.attributes[i]);
+        out.writeUTF(this.titles[i]);
+        out.writeLong(hash(this.names[i], this.sizes[i], this.modified[i], this.tags[i], this.ids[i], this.years[i],
+          this.rented[i], this.attributes[i], this.titles[i]));
+      }
+    }
+
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Calculates the hash of an entry, using 64 bit FNV-1a over its values
+   * @param name The file name
+   * @param size The size of the file
+   * @param modified The modification time of the file, in milliseconds
+   * @param tag The type tag of the media
+   * @param id The id of the media
+   * @param yearPublished The year the media was published
+   * @param rented The rental status of the media
+   * @param attribute The type attribute of the media
+   * @param title The title of the media
+   * @return The hash of the entry
+   */
+  private static long hash(String name, long size, long modified, byte tag, int id, int yearPublished,
+      boolean rented, double attribute, String title) {
+    long hash = 0xCBF29CE484222325L;
+
+    hash = mix(hash, name.hashCode());
+    hash = mix(hash, size);
+    hash = mix(hash, modified);
+    hash = mix(hash, tag);
+    hash = mix(hash, id);
+    hash = mix(hash, yearPublished);
+    hash = mix(hash, rented ? 1 : 0);
+    hash = mix(hash, Double.doubleToLongBits(attribute));
+
+    for(int i = 0; i < title.length(); i++) {
+      hash = mix(hash, title.charAt(i));
+    }
+
+    return hash;
+  }
+
+  /**
+   * Mixes a value into an FNV-1a hash, a byte at a time
+   * @param hash The hash so far
+   * @param value The value to mix in
+   * @return The new hash
+   */
+  private static long mix(long hash, long value) {
+    for(int i = 0; i < 8; i++) {
+      hash ^= (value >>> (i * 8)) & 0xFF;
+      hash *= 0x100000001B3L;
+    }
+
+    return hash;
+  }
+
+  /**
+   * Doubles the space for entries
+   */
+  private void grow() {
+    int capacity = this.names.length * 2;
+
+    this.names = Arrays.copyOf(this.names, capacity);
+    this.sizes = Arrays.copyOf(this.sizes, capacity);
+    this.modified = Arrays.copyOf(this.modified, capacity);
+    this.tags = Arrays.copyOf(this.tags, capacity);
+    this.ids = Arrays.copyOf(this.ids, capacity);
+    this.years = Arrays.copyOf(this.years, capacity);
+    this.rented = Arrays.copyOf(this.rented, capacity);
+    this.attributes = Arrays.copyOf(this.attributes, capacity);
+    this.titles = Arrays.copyOf(this.titles, capacity);
+  }
+}
@@ -1,3 +1,5 @@
+package mediarental;
+
 /**
  * Exception representing a error searching for Media
  */
@@ -0,0 +1,352 @@
+package mediarental;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Reads Media from "type-id.txt" files in a single pass.  The file is read into a buffer that is
+ * reused for every file, the fields are found by scanning for commas, and numbers are parsed
+ * straight from the bytes, so the title is the only String created for each record.
+ *
+ * A MediaParser is not thread safe; each thread loading media should use its own.
+ */
+public class MediaParser {
+  // number of comma-delimited fields in a media file: id,title,yearPublished,rented,attribute
+  private static final int FIELDS = 5;
+
+  // starting size of the read buffer, grown if a file is larger
+  private static final int BUFFER_SIZE = 256;
+
+  // largest mantissa that converts to a double exactly (2^53)
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  // powers of ten that are exact doubles, used by the fast path of parseDouble()
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // media files are written with the default charset
+  private static final Charset CHARSET = Charset.defaultCharset();
+
+  // bytes of the file being parsed
+  private byte[] buffer = new byte[BUFFER_SIZE];
+
+  // start and end of each field in the buffer, and the number of fields found
+  private int[] starts = new int[FIELDS];
+  private int[] ends = new int[FIELDS];
+  private int fields;
+
+  /**
+   * Creates a new MediaParser
+   */
+  public MediaParser() {
+  }
+
+  /**
+   * Creates a Media instance from the given file.  The file's name determines which type of Media
+   * is created, and the first line of the file holds its fields.
+   *
+   * @param file The file to create Media from
+   * @return A Media-based instance containing data read from the file
+   * @throws MediaCreationException If a Media instance could not be created
+   */
+  public Media parse(File file) throws MediaCreationException {
+    int length;
+
+    try {
+      length = read(file);
+    } catch(FileNotFoundException e) {
+      throw new MediaCreationException("Media file was not found: " + file.getName());
+    } catch(IOException e) {
+      throw new MediaCreationException("Could not read data from file: " + file.getName());
+    }
+
+    if(length == 0) {
+      throw new MediaCreationException("Could not read data from file: " + file.getName());
+    }
+
+    MediaType type = getType(file.getName());
+
+    if(type == null) {
+      throw new MediaCreationException("Could not determine media type");
+    }
+
+    split(lineLength(length));
+
+    // the same checks, in the same order, as the comma-delimited constructors
+    if(this.fields < 4) {
+      throw new MediaCreationException("Incorrect media data format");
+    }
+
+    int id = parseInt(0);
+    String title = new String(this.buffer, this.starts[1], this.ends[1] - this.starts[1], CHARSET);
+    int yearPublished = parseInt(2);
+    boolean rented = parseBoolean(3);
+
+    switch(type) {
+      case EBOOK:
+        if(this.fields < FIELDS) {
+          throw new MediaCreationException("Incorrect Ebook data format");
+        }
+
+        return new EBook(id, title, yearPublished, rented, parseInt(4));
+      case MUSIC_CD:
+        if(this.fields < FIELDS) {
+          throw new MediaCreationException("Incorrect MusicCD format");
+        }
+
+        return new MusicCD(id, title, yearPublished, rented, parseInt(4));
+      default:
+        if(this.fields < FIELDS) {
+          throw new MediaCreationException("Incorrect MovieDVD format");
+        }
+
+        return new MovieDVD(id, title, yearPublished, rented, parseDouble(4));
+    }
+  }
+
+  /**
+   * Reads the whole file into the buffer, growing it if needed
+   * @param file The file to read
+   * @return The number of bytes read
+   * @throws IOException If the file could not be read
+   */
+  private int read(File file) throws IOException {
+    int length = 0;
+
+    try(FileInputStream in = new FileInputStream(file)) {
+      while(true) {
+        if(length == this.buffer.length) {
+          byte[] larger = new byte[this.buffer.length * 2];
+          System.arraycopy(this.buffer, 0, larger, 0, length);
+          this.buffer = larger;
+        }
+
+        int read = in.read(this.buffer, length, this.buffer.length - length);
+
+        if(read < 0) {
+          return length;
+        }
+
+        length += read;
+      }
+    }
+  }
+
+  /**
+   * Gets the length of the first line in the buffer
+   * @param length The number of bytes in the buffer
+   * @return The number of bytes before the first line break
+   */
+  private int lineLength(int length) {
+    for(int i = 0; i < length; i++) {
+      if(this.buffer[i] == '\n' || this.buffer[i] == '\r') {
+        return i;
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Finds the comma-delimited fields in the first line.  Fields after the last one needed are
+   * ignored, and trailing empty fields aren't counted, the same as String.split().
+   * @param length The length of the line
+   */
+  private void split(int length) {
+    int start = 0;
+    this.fields = 0;
+
+    for(int i = 0; i <= length && this.fields < FIELDS; i++) {
+      if(i == length || this.buffer[i] == ',') {
+        this.starts[this.fields] = start;
+        this.ends[this.fields] = i;
+        this.fields++;
+        start = i + 1;
+      }
+    }
+
+    while(this.fields > 0 && this.starts[this.fields - 1] == this.ends[this.fields - 1]) {
+      this.fields--;
+    }
+  }
+
+  /**
+   * Gets the type of media from a "type-id.txt" file name
+   * @param name The file name
+   * @return The matching MediaType, or null if there is none
+   */
+  private static MediaType getType(String name) {
+    for(MediaType type: MediaType.values()) {
+      String typeName = type.getName();
+      int length = typeName.length();
+
+      if(name.startsWith(typeName) && (name.length() == length || name.charAt(length) == '-')) {
+        return type;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parses a field as an int, accepting the same input as Integer.parseInt()
+   * @param field The index of the field
+   * @return The value of the field
+   * @throws MediaCreationException If the field is not a valid int
+   */
+  private int parseInt(int field) throws MediaCreationException {
+    int start = this.starts[field];
+    int end = this.ends[field];
+    boolean negative = false;
+
+    if(start < end && (this.buffer[start] == '-' || this.buffer[start] == '+')) {
+      negative = (this.buffer[start] == '-');
+      start++;
+    }
+
+    if(start == end) {
+      throw invalid(field);
+    }
+
+    long value = 0;
+
+    for(int i = start; i < end; i++) {
+      int digit = this.buffer[i] - '0';
+
+      if(digit < 0 || digit > 9) {
+        throw invalid(field);
+      }
+
+      value = value * 10 + digit;
+
+      // past the range of an int
+      if(value > (long) Integer.MAX_VALUE + 1) {
+        throw invalid(field);
+      }
+    }
+
+    if(negative) {
+      value = -value;
+    }
+
+    if(value > Integer.MAX_VALUE) {
+      throw invalid(field);
+    }
+
+    return (int) value;
+  }
+
+  /**
+   * Parses a field as a boolean the same way as Boolean.parseBoolean(), so anything other than
+   * "true" (ignoring case) is false
+   * @param field The index of the field
+   * @return The value of the field
+   */
+  private boolean parseBoolean(int field) {
+    int start = this.starts[field];
+
+    if(this.ends[field] - start != 4) {
+      return false;
+    }
+
+    return (this.buffer[start] | 0x20) == 't' && (this.buffer[start + 1] | 0x20) == 'r' &&
+      (this.buffer[start + 2] | 0x20) == 'u' && (this.buffer[start + 3] | 0x20) == 'e';
+  }
+
+  /**
+   * Parses a field as a double.  Plain decimals, with or without an exponent, whose digits fit in a
+   * double exactly are converted directly; anything else is left to Double.parseDouble().
+   * @param field The index of the field
+   * @return The value of the field
+   * @throws MediaCreationException If the field is not a valid double
+   */
+  private double parseDouble(int field) throws MediaCreationException {
+    int start = this.starts[field];
+    int end = this.ends[field];
+    int i = start;
+    boolean negative = false;
+
+    if(i < end && (this.buffer[i] == '-' || this.buffer[i] == '+')) {
+      negative = (this.buffer[i] == '-');
+      i++;
+    }
+
+    long mantissa = 0;
+    int exponent = 0;
+    int digits = 0;
+    boolean exact = true;
+
+    // integer part
+    for(; i < end && this.buffer[i] >= '0' && this.buffer[i] <= '9'; i++, digits++) {
+      mantissa = mantissa * 10 + (this.buffer[i] - '0');
+      exact &= mantissa < MAX_EXACT_MANTISSA;
+    }
+
+    // fraction part
+    if(i < end && this.buffer[i] == '.') {
+      for(i++; i < end && this.buffer[i] >= '0' && this.buffer[i] <= '9'; i++, digits++) {
+        mantissa = mantissa * 10 + (this.buffer[i] - '0');
+        exponent--;
+        exact &= mantissa < MAX_EXACT_MANTISSA;
+      }
+    }
+
+    // exponent part
+    if(i < end && digits > 0 && (this.buffer[i] == 'e' || this.buffer[i] == 'E')) {
+      int j = i + 1;
+      boolean negativeExponent = false;
+      int power = 0;
+
+      if(j < end && (this.buffer[j] == '-' || this.buffer[j] == '+')) {
+        negativeExponent = (this.buffer[j] == '-');
+        j++;
+      }
+
+      if(j == end) {
+        exact = false;
+      }
+
+      for(; j < end && this.buffer[j] >= '0' && this.buffer[j] <= '9' && power < 1000; j++) {
+        power = power * 10 + (this.buffer[j] - '0');
+      }
+
+      exponent += (negativeExponent ? -power : power);
+      i = j;
+    }
+
+    if(exact && digits > 0 && i == end && exponent >= -22 && exponent <= 22) {
+      double value = mantissa;
+
+      if(exponent < 0) {
+        value /= POWERS_OF_TEN[-exponent];
+      } else {
+        value *= POWERS_OF_TEN[exponent];
+      }
+
+      return (negative ? -value : value);
+    }
+
+    // not a simple decimal, or too many digits to convert exactly
+    try {
+      return Double.parseDouble(new String(this.buffer, start, end - start, CHARSET));
+    } catch(NumberFormatException e) {
+      throw new MediaCreationException("Unable to read media: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Creates the exception for a field that could not be parsed, with the same message as the
+   * comma-delimited constructors
+   * @param field The index of the field
+   * @return The exception to throw
+   */
+  private MediaCreationException invalid(int field) {
+    String value = new String(this.buffer, this.starts[field], this.ends[field] - this.starts[field], CHARSET);
+    return new MediaCreationException("Unable to read media: For input string: \"" + value + "\"");
+  }
+}
@@ -0,0 +1,289 @@
+package mediarental;
+
+/**
+ * A query over media, made up of optional predicates that must all match: an id, text in the title,
+ * a type, a range of years published, a range of the type attribute (chapters, length or size) and
+ * the rental status.  Predicates that aren't set match any media.
+ *
+ * Queries are run by Manager.query(), which uses the most selective index it has for the query
+ * before checking the remaining predicates.
+ */
+public class MediaQuery {
+  // no id or year limit
+  public static final int ANY = -1;
+
+  // the id to match, or ANY
+  private int id;
+
+  // text the title must contain, ignoring case, or null for any title
+  private String title;
+  private String titleQuery;
+
+  // the type to match, or null for any type
+  private MediaType type;
+
+  // range of years published, inclusive, either of which may be ANY
+  private int minYear;
+  private int maxYear;
+
+  // range of the type attribute, inclusive
+  private double minAttribute;
+  private double maxAttribute;
+
+  // the rental status to match, or null for either
+  private Boolean rented;
+
+  /**
+   * Creates a new MediaQuery that matches all media
+   */
+  public MediaQuery() {
+    this.id = ANY;
+    this.title = null;
+    this.titleQuery = null;
+    this.type = null;
+    this.minYear = ANY;
+    this.maxYear = ANY;
+    this.minAttribute = Double.NEGATIVE_INFINITY;
+    this.maxAttribute = Double.POSITIVE_INFINITY;
+    this.rented = null;
+  }
+
+  /**
+   * Gets the id to match
+   * @return The id, or ANY
+   */
+  public int getId() {
+    return this.id;
+  }
+
+  /**
+   * Sets the id to match
+   * @param id The id, or ANY for any id
+   */
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Gets the text the title must contain
+   * @return The text, or null for any title
+   */
+  public String getTitle() {
+    return this.title;
+  }
+
+  /**
+   * Sets the text the title must contain, ignoring case
+   * @param title The text, or null or empty for any title
+   */
+  public void setTitle(String title) {
+    if(title == null || title.length() == 0) {
+      this.title = null;
+      this.titleQuery = null;
+    } else {
+      this.title = title;
+      this.titleQuery = title.toLowerCase();
+    }
+  }
+
+  /**
+   * Gets the lower cased text the title must contain, as used for searching
+   * @return The lower cased text, or null for any title
+   */
+  public String getTitleQuery() {
+    return this.titleQuery;
+  }
+
+  /**
+   * Gets the type to match
+   * @return The MediaType, or null for any type
+   */
+  public MediaType getType() {
+    return this.type;
+  }
+
+  /**
+   * Sets the type to match
+   * @param type The MediaType, or null for any type
+   */
+  public void setType(MediaType type) {
+    this.type = type;
+  }
+
+  /**
+   * Gets the earliest year published to match
+   * @return The 4-digit year, or ANY
+   */
+  public int getMinYear() {
+    return this.minYear;
+  }
+
+  /**
+   * Gets the latest year published to match
+   * @return The 4-digit year, or ANY
+   */
+  public int getMaxYear() {
+    return this.maxYear;
+  }
+
+  /**
+   * Sets the range of years published to match
+   * @param minYear The earliest 4-digit year, or ANY
+   * @param maxYear The latest 4-digit year, or ANY
+   */
+  public void setYearRange(int minYear, int maxYear) {
+    if(minYear != ANY && maxYear != ANY && minYear > maxYear) {
+      throw new IllegalArgumentException("Earliest year is after latest year: " + minYear + " > " + maxYear);
+    }
+
+    this.minYear = minYear;
+    this.maxYear = maxYear;
+  }
+
+  /**
+   * Checks if the query limits the year published
+   * @return true if there is an earliest or latest year
+   */
+  public boolean hasYearRange() {
+    return this.minYear != ANY || this.maxYear != ANY;
+  }
+
+  /**
+   * Gets the smallest type attribute to match
+   * @return The smallest chapters, length or size
+   */
+  public double getMinAttribute() {
+    return this.minAttribute;
+  }
+
+  /**
+   * Gets the largest type attribute to match
+   * @return The largest chapters, length or size
+   */
+  public double getMaxAttribute() {
+    return this.maxAttribute;
+  }
+
+  /**
+   * Sets the range of the type attribute to match: chapters for EBooks, length for MusicCDs and size
+   * for MovieDVDs.  Usually combined with setType(), since the attributes of different types aren't
+   * comparable.
+   *
+   * @param minAttribute The smallest attribute, or Double.NEGATIVE_INFINITY
+   * @param maxAttribute The largest attribute, or Double.POSITIVE_INFINITY
+   */
+  public void setAttributeRange(double minAttribute, double maxAttribute) {
+    if(minAttribute > maxAttribute) {
+      throw new IllegalArgumentException("Smallest attribute is more than largest: " + minAttribute + " > " + maxAttribute);
+    }
+
+    this.minAttribute = minAttribute;
+    this.maxAttribute = maxAttribute;
+  }
+
+  /**
+   * Gets the rental status to match
+   * @return true for rented media, false for available media, or null for either
+   */
+  public Boolean getRented() {
+    return this.rented;
+  }
+
+  /**
+   * Sets the rental status to match
+   * @param rented true for rented media, false for available media, or null for either
+   */
+  public void setRented(Boolean rented) {
+    this.rented = rented;
+  }
+
+  /**
+   * Checks if a media matches every predicate of the query.  Cheap predicates are checked first, so
+   * the title is only checked for media that match everything else.
+   *
+   * @param item The media to check
+   * @return true if the media matches
+   */
+  public boolean matches(Media item) {
+    if(this.id != ANY && item.getId() != this.id) {
+      return false;
+    }
+
+    if(this.type != null && item.getType() != this.type) {
+      return false;
+    }
+
+    int year = item.getYearPublished();
+
+    if((this.minYear != ANY && year < this.minYear) || (this.maxYear != ANY && year > this.maxYear)) {
+      return false;
+    }
+
+    double attribute = item.getTypeAttribute();
+
+    if(attribute < this.minAttribute || attribute > this.maxAttribute) {
+      return false;
+    }
+
+    if(this.rented != null && item.isRented() != this.rented.booleanValue()) {
+      return false;
+    }
+
+    return this.titleQuery == null || item.getTitle().toLowerCase().contains(this.titleQuery);
+  }
+
+  /**
+   * Describes the predicates of the query
+   * @return The predicates, or "all media" if there are none
+   */
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+
+    if(this.id != ANY) {
+      append(builder, "id = " + this.id);
+    }
+
+    if(this.title != null) {
+      append(builder, "title contains \"" + this.title + "\"");
+    }
+
+    if(this.type != null) {
+      append(builder, "type = " + this.type.getName());
+    }
+
+    if(this.minYear != ANY) {
+      append(builder, "year >= " + this.minYear);
+    }
+
+    if(this.maxYear != ANY) {
+      append(builder, "year <= " + this.maxYear);
+    }
+
+    if(this.minAttribute != Double.NEGATIVE_INFINITY) {
+      append(builder, "attribute >= " + this.minAttribute);
+    }
+
+    if(this.maxAttribute != Double.POSITIVE_INFINITY) {
+      append(builder, "attribute <= " + this.maxAttribute);
+    }
+
+    if(this.rented != null) {
+      append(builder, (this.rented.booleanValue() ? "rented" : "available"));
+    }
+
+    return (builder.length() == 0 ? "all media" : builder.toString());
+  }
+
+  /**
+   * Adds a predicate to a description, separated from any before it
+   * @param builder The description so far
+   * @param predicate The predicate to add
+   */
+  private static void append(StringBuilder builder, String predicate) {
+    if(builder.length() > 0) {
+      builder.append(" and ");
+    }
+
+    builder.append(predicate);
+  }
+}
@@ -0,0 +1,81 @@
+package mediarental;
+
+/**
+ * A collection of media records stored outside of Media objects, accessed by record index.  Used to
+ * back lightweight MediaView instances so records don't need a full Media object each.  The rental 
+ * status is the only field that can be changed, and only if the records aren't read-only.
+ */
+public interface MediaRecords {
+  /**
+   * Gets the number of records
+   * @return The number of records
+   */
+  int size();
+
+  /**
+   * Finds the record index for a media id
+   * @param id The id to look for
+   * @return The index of the record with the id, or -1 if there is none
+   */
+  int indexOfId(int id);
+
+  /**
+   * Gets the type of a record
+   * @param index The record index
+   * @return The MediaType of the record
+   */
+  MediaType getType(int index);
+
+  /**
+   * Gets the id of a record
+   * @param index The record index
+   * @return The id of the record
+   */
+  int getId(int index);
+
+  /**
+   * Gets the title of a record
+   * @param index The record index
+   * @return The title of the record
+   */
+  String getTitle(int index);
+
+  /**
+   * Gets the year of publication of a record
+   * @param index The record index
+   * @return The 4-digit year of the record
+   */
+  int getYearPublished(int index);
+
+  /**
+   * Gets the rental status of a record
+   * @param index The record index
+   * @return true if rented, false if not
+   */
+  boolean isRented(int index);
+
+  /**
+   * Gets the type specific attribute (chapters, length or size) of a record
+   * @param index The record index
+   * @return The type attribute of the record
+   */
+  double getTypeAttribute(int index);
+
+  /**
+   * Sets the rental status of a record
+   * @param index The record index
+   * @param rented true if rented, false if not
+   * @throws UnsupportedOperationException If the records are read-only
+   */
+  void setRented(int index, boolean rented);
+
+  /**
+   * Atomically sets the rental status of a record if it currently has the expected value
+   * @param index The record index
+   * @param expected The rental status the record is expected to have
+   * @param rented The new rental status
+   * @return true if the status was changed, false if it didn't have the expected value
+   * @throws UnsupportedOperationException If the records are read-only
+   */
+  boolean compareAndSetRented(int index, boolean expected, boolean rented);
+}
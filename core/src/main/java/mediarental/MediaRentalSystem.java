@@ -0,0 +1,882 @@
+package mediarental;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableColumnModel;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * MediaRentalSystem is a GUI application that allow for the display, 
+ * search and rental of various media.  After loading data via the menu option, user is presented with a 
+ * list of media in a table view that can be selected and rented, or returned.  A search bar is also provided to allow for 
+ * searching for specific media by title.
+ * 
+ * Loading and searching run on background threads so the window stays responsive.  While media is 
+ * loading, rows are added to the table as they are read, and loading can be cancelled.  Searches run 
+ * as the user types, once typing pauses, and show a page of results at a time.  Searches and the 
+ * list of all media can be limited to media that is available to rent, and filtered by type and 
+ * years published.  A loaded directory is watched, so changes made by other terminals sharing it 
+ * show up without loading it again.
+ * 
+ * @author Brian Cunningham
+ * Date: 3/8/2022
+ */
+public class MediaRentalSystem extends JFrame {
+  // Manager instance for managing media
+  private Manager manager;
+
+  // table view components
+  private JTable mediaTable;
+  private MediaTableModel tableModel;
+
+  // search components
+  private JTextField searchField;
+  private JButton searchButton;
+  private JButton clearButton;
+  private JButton moreButton;
+  private JCheckBox availableOnlyBox;
+
+  // filter components
+  private JComboBox<String> typeBox;
+  private JTextField fromYearField;
+  private JTextField toYearField;
+
+  // starts a search once the user stops typing
+  private javax.swing.Timer searchTimer;
+
+  // most search results currently shown
+  private int searchLimit;
+
+  // the search or listing the table shows, so changes made by others can be shown if they match it
+  private MediaQuery shownQuery = new MediaQuery();
+
+  // how long typing must pause before searching, in milliseconds
+  private static final int SEARCH_DELAY = 250;
+
+  // number of search results shown at a time
+  private static final int SEARCH_PAGE_SIZE = 500;
+
+  // rental 
+  private JButton rentButton;
+  private JButton returnButton;
+
+  // number of media available to rent
+  private JLabel availabilityLabel;
+
+  // menu options that start a load
+  private JMenuItem loadItem;
+  private JMenuItem openReadOnlyItem;
+
+  // progress of loading, and button to cancel it
+  private JProgressBar progressBar;
+  private JButton cancelButton;
+
+  // background tasks currently running, or null if none
+  private SwingWorker<Void, Media> loadWorker;
+  private SwingWorker<ArrayList<Media>, Void> searchWorker;
+
+  // file dialog for loading media data
+  private JFileChooser fileDialog;
+
+  /**
+   * Creates new MediaRentalSystem application instance
+   */
+  public MediaRentalSystem() {  
+    // init 
+    this.manager = new ConcurrentManager();
+    this.manager.setTitleIndexing(true);
+    this.manager.setManifestEnabled(true);
+    this.manager.setSnapshotEnabled(true);
+
+    // adds, title changes and rentals don't wait for the disk on the event thread
+    this.manager.setWriteBehind(true);
+
+    this.tableModel = new MediaTableModel();
+    this.fileDialog = new JFileChooser();
+    this.fileDialog.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+
+    // set size, title, default close behavior
+    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    setSize(800, 600);
+    setTitle("Welcome to Media Rental System");
+
+    // make sure rentals are saved when the window is closed
+    addWindowListener(new WindowAdapter() {
+      public void windowClosing(WindowEvent e) {
+        closeApplication();
+      }
+    });
+
+    // create menu
+    JMenuBar menuBar = new JMenuBar();
+    JMenu menu = new JMenu("Menu");
+
+    // create load option for menu
+    loadItem = new JMenuItem("Load Media...");
+    loadItem.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        loadMedia();
+      }
+    });
+
+    // create read-only catalog option for menu
+    openReadOnlyItem = new JMenuItem("Open Catalog Read-Only...");
+    openReadOnlyItem.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        openCatalogReadOnly();
+      }
+    });
+
+    // create exit option for menu
+    JMenuItem exit = new JMenuItem("Exit");
+    exit.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        closeApplication();
+      }
+    });
+
+    menu.add(loadItem);
+    menu.add(openReadOnlyItem);
+    menu.addSeparator();
+    menu.add(exit);
+
+    menuBar.add(menu);
+
+    setJMenuBar(menuBar);
+    
+    // create media table
+    mediaTable = new JTable(tableModel);
+    mediaTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    mediaTable.setFillsViewportHeight(true);
+
+    JScrollPane scrollPane = new JScrollPane(mediaTable);
+
+    // the columns never change, so they only need to be sized once
+    updateColumns();
+
+    // create search components
+    searchField = new JTextField(30);
+    searchButton = new JButton("Search");
+    clearButton = new JButton("Clear");
+
+    moreButton = new JButton("More Results");
+    moreButton.setVisible(false);
+
+    availableOnlyBox = new JCheckBox("Available only");
+
+    // create filter components, the first type choice being all types
+    typeBox = new JComboBox<String>();
+    typeBox.addItem("All Types");
+
+    for(MediaType type: MediaType.values()) {
+      typeBox.addItem(type.getName());
+    }
+
+    fromYearField = new JTextField(4);
+    toYearField = new JTextField(4);
+
+    // add listener for searching now
+    ActionListener searchListener = new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        searchTimer.stop();
+        searchLimit = SEARCH_PAGE_SIZE;
+        searchMedia(true);
+      }
+    };
+
+    searchField.addActionListener(searchListener);
+    searchButton.addActionListener(searchListener);
+
+    // search as the user types, waiting until typing pauses
+    searchTimer = new javax.swing.Timer(SEARCH_DELAY, new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        searchLimit = SEARCH_PAGE_SIZE;
+        searchMedia(false);
+      }
+    });
+    searchTimer.setRepeats(false);
+
+    DocumentListener typingListener = new DocumentListener() {
+      public void insertUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+
+      public void removeUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+
+      public void changedUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+    };
+
+    searchField.getDocument().addDocumentListener(typingListener);
+    fromYearField.getDocument().addDocumentListener(typingListener);
+    toYearField.getDocument().addDocumentListener(typingListener);
+    fromYearField.addActionListener(searchListener);
+    toYearField.addActionListener(searchListener);
+
+    // add listener for showing the next page of results
+    moreButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        searchLimit += SEARCH_PAGE_SIZE;
+        searchMedia(false);
+      }
+    });
+
+    // add listener for showing only available media or one type, applied straight away
+    ActionListener filterListener = new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        searchTimer.stop();
+        searchLimit = SEARCH_PAGE_SIZE;
+        searchMedia(false);
+      }
+    };
+
+    availableOnlyBox.addActionListener(filterListener);
+    typeBox.addActionListener(filterListener);
+
+    // add listener for clearing search
+    clearButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        clearSearch();
+      }
+    });
+
+    availabilityLabel = new JLabel();
+
+    // create rent button and listener
+    rentButton = new JButton("Rent");
+    rentButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        rentMedia();
+      }
+    });
+
+    // create return button and listener
+    returnButton = new JButton("Return");
+    returnButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        returnMedia();
+      }
+    });
+
+    // create loading progress components, only shown while loading
+    progressBar = new JProgressBar();
+    progressBar.setIndeterminate(true);
+    progressBar.setStringPainted(true);
+    progressBar.setVisible(false);
+
+    cancelButton = new JButton("Cancel");
+    cancelButton.setVisible(false);
+    cancelButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        cancelLoading();
+      }
+    });
+
+    // create search panel and add components
+    JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+    searchPanel.add(searchField);
+    searchPanel.add(searchButton);
+    searchPanel.add(clearButton);
+    searchPanel.add(moreButton);
+
+    // create filter panel and add components
+    JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+    filterPanel.add(typeBox);
+    filterPanel.add(new JLabel("Published from"));
+    filterPanel.add(fromYearField);
+    filterPanel.add(new JLabel("to"));
+    filterPanel.add(toYearField);
+    filterPanel.add(availableOnlyBox);
+
+    JPanel topPanel = new JPanel(new GridLayout(2, 1));
+    topPanel.add(searchPanel);
+    topPanel.add(filterPanel);
+
+    // create rent panel and add button, along with loading progress
+    JPanel rentPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+    rentPanel.add(availabilityLabel);
+    rentPanel.add(progressBar);
+    rentPanel.add(cancelButton);
+    rentPanel.add(rentButton);
+    rentPanel.add(returnButton);
+
+    // add everything to main window
+    Container contentPane = getContentPane();
+    contentPane.add(topPanel, BorderLayout.PAGE_START);
+    contentPane.add(scrollPane, BorderLayout.CENTER);
+    contentPane.add(rentPanel, BorderLayout.PAGE_END);
+    
+  }
+
+  /**
+   * Loads media when user select the menu option.  
+   * Presents user with file dialog to select directory (or catalog file), then 
+   * starts loading it in the background.
+   */
+  private void loadMedia() {
+    // show file dialog
+    int result = fileDialog.showDialog(this, "Open");
+
+    // if user chose a directory...
+    if(result == JFileChooser.APPROVE_OPTION) {
+      // get the selected directory or catalog and load it
+      startLoading(fileDialog.getSelectedFile(), false);
+    }
+  }
+
+  /**
+   * Opens a catalog file read-only when user selects the menu option.  Presents user with file 
+   * dialog to select the catalog, then starts mapping it in the background.
+   */
+  private void openCatalogReadOnly() {
+    // show file dialog
+    int result = fileDialog.showDialog(this, "Open Read-Only");
+
+    // if user chose a file...
+    if(result == JFileChooser.APPROVE_OPTION) {
+      startLoading(fileDialog.getSelectedFile(), true);
+    }
+  }
+
+  /**
+   * Loads a directory or catalog file on a background thread.  Media is added to the table in 
+   * batches as it is read, and once loading finishes the table shows all media sorted by id.
+   * 
+   * @param file The directory or catalog file to load
+   * @param readOnly true to map a catalog file read-only
+   */
+  private void startLoading(final File file, final boolean readOnly) {
+    // show rows as they arrive, starting from an empty table
+    tableModel.setMedia(null);
+    setLoading(true);
+
+    loadWorker = new SwingWorker<Void, Media>() {
+      protected Void doInBackground() throws Exception {
+        if(readOnly) {
+          manager.loadReadOnly(file);
+          return null;
+        }
+
+        manager.load(file, new MediaLoadListener() {
+          public void mediaLoaded(java.util.List<Media> batch, int loaded) {
+            // copy, since the manager keeps working with its lists after this returns
+            publish(batch.toArray(new Media[batch.size()]));
+          }
+        });
+
+        return null;
+      }
+
+      protected void process(java.util.List<Media> batch) {
+        // rows published before a cancel can still arrive afterwards
+        if(isCancelled()) {
+          return;
+        }
+
+        tableModel.addMedia(batch);
+        progressBar.setString("Loaded " + tableModel.getRowCount() + " media");
+      }
+
+      protected void done() {
+        loadWorker = null;
+        setLoading(false);
+
+        try {
+          if(!isCancelled()) {
+            get();
+          }
+        } catch(ExecutionException e) {
+          JOptionPane.showMessageDialog(MediaRentalSystem.this, e.getCause().getMessage());
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+
+        // update table with whatever the manager has now, sorted by id
+        showListedMedia();
+        updateAvailability();
+
+        if(!readOnly && !isCancelled()) {
+          startWatching();
+        }
+      }
+    };
+
+    loadWorker.execute();
+  }
+
+  /**
+   * Watches the loaded directory for changes made by others, updating the rows they change when they 
+   * happen
+   */
+  private void startWatching() {
+    try {
+      manager.startWatching(new MediaChangeListener() {
+        public void mediaChanged(final java.util.List<Media> updated, final java.util.List<Media> removed) {
+          // changes arrive on the watching thread, so apply them on the event dispatch thread
+          SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+              applyChanges(updated, removed);
+            }
+          });
+        }
+      });
+    } catch(IOException | MediaUpdateException e) {
+      // media can still be used, changes by others just won't show until it is loaded again
+    }
+  }
+
+  /**
+   * Shows changes made by others in the table, without searching again.  Removed media leave the 
+   * table, and changed or added media are shown or hidden depending on whether they match what the 
+   * table is showing.
+   * 
+   * @param updated The Media that were added or changed
+   * @param removed The Media that were removed
+   */
+  private void applyChanges(java.util.List<Media> updated, java.util.List<Media> removed) {
+    if(loadWorker != null) {
+      return;
+    }
+
+    for(Media item: removed) {
+      tableModel.removeMedia(item);
+    }
+
+    for(Media item: updated) {
+      if(shownQuery.matches(item)) {
+        tableModel.putMedia(item);
+      } else {
+        tableModel.removeMedia(item);
+      }
+    }
+
+    updateAvailability();
+  }
+
+  /**
+   * Cancels loading, interrupting the background thread so it stops after the current batch
+   */
+  private void cancelLoading() {
+    if(loadWorker != null) {
+      loadWorker.cancel(true);
+    }
+  }
+
+  /**
+   * Shows or hides the loading progress, and disables anything that uses the manager while loading
+   * @param loading true if media is being loaded
+   */
+  private void setLoading(boolean loading) {
+    progressBar.setString("Loading media...");
+    progressBar.setVisible(loading);
+    cancelButton.setVisible(loading);
+
+    if(loading) {
+      searchTimer.stop();
+      moreButton.setVisible(false);
+    }
+
+    loadItem.setEnabled(!loading);
+    openReadOnlyItem.setEnabled(!loading);
+    searchField.setEnabled(!loading);
+    searchButton.setEnabled(!loading);
+    clearButton.setEnabled(!loading);
+    availableOnlyBox.setEnabled(!loading);
+    typeBox.setEnabled(!loading);
+    fromYearField.setEnabled(!loading);
+    toYearField.setEnabled(!loading);
+    rentButton.setEnabled(!loading);
+    returnButton.setEnabled(!loading);
+  }
+
+  /**
+   * Handles user hitting 'rent' in UI, calling manager to handle renting media
+   */
+  private void rentMedia() {
+    // ensure we have media to select first
+    if(tableModel.getRowCount() == 0) {
+      JOptionPane.showMessageDialog(this, "No media loaded! Load media first!");
+      return;
+    }
+
+    // get the selection from the table
+    int row = mediaTable.getSelectedRow();
+
+    // verify we actually have a selection
+    if(row < 0) {
+      JOptionPane.showMessageDialog(this, "No media selected! Select media to rent first!");
+      return;
+    }
+
+    // get the selected item from the table, which may be showing search results
+    final Media media = tableModel.getMediaAt(row);
+
+    // check that is hasn't already been rented first
+    if(media.isRented()) {
+      JOptionPane.showMessageDialog(this, "This media is already rented");
+      return;
+    }
+
+    // confirm rental 
+    String message = "Rent item: " + media.getType().getName() + "-" + media.getTitle() + "?";
+    int selection = JOptionPane.showConfirmDialog(this, message, "Rent Media", JOptionPane.YES_NO_OPTION);
+
+    if(selection != JOptionPane.YES_OPTION) {
+      return;
+    }
+
+    // the rental is journaled and forced to disk, so rent in the background rather than on the event thread
+    SwingWorker<Double, Void> worker = new SwingWorker<Double, Void>() {
+      protected Double doInBackground() throws MediaNotFoundException, MediaUpdateException {
+        // tell manager to rent media (and get fee)
+        return manager.rent(media.getId());
+      }
+
+      protected void done() {
+        // redraw just the rented row, or the row of someone else's rental in the meantime
+        tableModel.mediaUpdated(media);
+        updateAvailability();
+
+        try {
+          // show user rental fee
+          DecimalFormat format = new DecimalFormat("$#0.00");
+          JOptionPane.showMessageDialog(MediaRentalSystem.this, "Media Rental Price: " + format.format(get()));
+        } catch(ExecutionException e) {
+          if(e.getCause() instanceof MediaNotFoundException) {
+            JOptionPane.showMessageDialog(MediaRentalSystem.this, "Unable to select media: " + e.getCause().getMessage());
+          } else {
+            JOptionPane.showMessageDialog(MediaRentalSystem.this, "Unable to rent media: " + e.getCause().getMessage());
+          }
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    worker.execute();
+  }
+
+  /**
+   * Handles user hitting 'return' in UI, calling manager to check the rented media back in
+   */
+  private void returnMedia() {
+    // ensure we have media to select first
+    if(tableModel.getRowCount() == 0) {
+      JOptionPane.showMessageDialog(this, "No media loaded! Load media first!");
+      return;
+    }
+
+    // get the selection from the table
+    int row = mediaTable.getSelectedRow();
+
+    // verify we actually have a selection
+    if(row < 0) {
+      JOptionPane.showMessageDialog(this, "No media selected! Select media to return first!");
+      return;
+    }
+
+    final Media media = tableModel.getMediaAt(row);
+
+    // check that it is actually rented first
+    if(!media.isRented()) {
+      JOptionPane.showMessageDialog(this, "This media is not rented");
+      return;
+    }
+
+    // confirm return
+    String message = "Return item: " + media.getType().getName() + "-" + media.getTitle() + "?";
+    int selection = JOptionPane.showConfirmDialog(this, message, "Return Media", JOptionPane.YES_NO_OPTION);
+
+    if(selection != JOptionPane.YES_OPTION) {
+      return;
+    }
+
+    // like renting, the return is forced to disk, so it is made in the background
+    SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+      protected Void doInBackground() throws MediaNotFoundException, MediaUpdateException {
+        manager.returnMedia(media.getId());
+        return null;
+      }
+
+      protected void done() {
+        // redraw just the returned row, or the row of someone else's return in the meantime
+        tableModel.mediaUpdated(media);
+        updateAvailability();
+
+        try {
+          get();
+        } catch(ExecutionException e) {
+          if(e.getCause() instanceof MediaNotFoundException) {
+            JOptionPane.showMessageDialog(MediaRentalSystem.this, "Unable to select media: " + e.getCause().getMessage());
+          } else {
+            JOptionPane.showMessageDialog(MediaRentalSystem.this, "Unable to return media: " + e.getCause().getMessage());
+          }
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    worker.execute();
+  }
+
+  /**
+   * Updates column sizes.  This ensures that columns have proper spacing when showing media data.
+   */
+  private void updateColumns() {
+    TableColumnModel model = mediaTable.getColumnModel();
+
+    model.getColumn(0).setPreferredWidth(10);
+    model.getColumn(1).setPreferredWidth(80);
+    model.getColumn(2).setPreferredWidth(300);
+    model.getColumn(3).setPreferredWidth(100);
+    model.getColumn(4).setPreferredWidth(50);
+    model.getColumn(5).setPreferredWidth(200);
+  }
+
+  /**
+   * handles searching of media from UI actions.  The search runs in the background, and replaces
+   * any search that is still running.  At most searchLimit results are shown; if there are more, 
+   * the "More Results" button shows the next page.
+   * 
+   * @param notify true to tell the user when nothing was found, false when searching as they type
+   */
+  private void searchMedia(final boolean notify) {
+    // only the latest search updates the table
+    if(searchWorker != null) {
+      searchWorker.cancel(true);
+      searchWorker = null;
+    }
+
+    // verify we have media to search first, without copying it on every keystroke
+    if(manager.isEmpty()) {
+      if(notify) {
+        JOptionPane.showMessageDialog(this, "No media to search! Load media first!");
+      }
+
+      return;
+    }
+
+    // get the text to search for, and the filters
+    final String searchText = searchField.getText();
+    final int limit = searchLimit;
+    final boolean availableOnly = availableOnlyBox.isSelected();
+    final MediaQuery query;
+
+    try {
+      query = createQuery();
+    } catch(IllegalArgumentException e) {
+      // wait for a year that can be searched for, unless the user asked to search
+      if(notify) {
+        JOptionPane.showMessageDialog(this, "Invalid years to search: " + e.getMessage());
+      }
+
+      return;
+    }
+
+    final boolean filtered = (query.getType() != null || query.hasYearRange());
+
+    // nothing typed or filtered, so show everything
+    if(searchText.length() == 0 && !filtered) {
+      moreButton.setVisible(false);
+      showListedMedia();
+      return;
+    }
+
+    searchWorker = new SwingWorker<ArrayList<Media>, Void>() {
+      protected ArrayList<Media> doInBackground() {
+        // have manager search, asking for one extra to know if there are more
+        if(filtered) {
+          return manager.query(query, limit + 1);
+        }
+
+        return manager.find(searchText, limit + 1, availableOnly);
+      }
+
+      protected void done() {
+        if(isCancelled()) {
+          return;
+        }
+
+        searchWorker = null;
+
+        try {
+          ArrayList<Media> media = get();
+
+          // if we didn't find anything, preset user with a dialog
+          if(media.size() == 0 && notify) {
+            String found = (filtered ? "this search" : "this title");
+            JOptionPane.showMessageDialog(MediaRentalSystem.this, "No media was found matching " + found);
+            return;
+          }
+
+          boolean more = (media.size() > limit);
+
+          if(more) {
+            media.remove(limit);
+          }
+
+          // update the table to show only items found in search
+          moreButton.setVisible(more);
+          tableModel.setMedia(media);
+          shownQuery = query;
+        } catch(ExecutionException e) {
+          JOptionPane.showMessageDialog(MediaRentalSystem.this, "Unable to search media: " + e.getCause());
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    searchWorker.execute();
+  }
+
+  /**
+   * Creates a query from the search text and filters
+   * @return A MediaQuery for what the user asked for
+   * @throws IllegalArgumentException If a year isn't a number, or the years are the wrong way round
+   */
+  private MediaQuery createQuery() throws IllegalArgumentException {
+    MediaQuery query = new MediaQuery();
+    query.setTitle(searchField.getText());
+
+    // the first type choice is all types
+    int type = typeBox.getSelectedIndex();
+
+    if(type > 0) {
+      query.setType(MediaType.values()[type - 1]);
+    }
+
+    query.setYearRange(parseYear(fromYearField.getText()), parseYear(toYearField.getText()));
+
+    if(availableOnlyBox.isSelected()) {
+      query.setRented(Boolean.FALSE);
+    }
+
+    return query;
+  }
+
+  /**
+   * Parses a year typed into a filter
+   * @param text The text typed
+   * @return The year, or MediaQuery.ANY if nothing was typed
+   * @throws NumberFormatException If the text isn't a year
+   */
+  private static int parseYear(String text) throws NumberFormatException {
+    text = text.trim();
+
+    if(text.length() == 0) {
+      return MediaQuery.ANY;
+    }
+
+    int year = Integer.parseInt(text);
+
+    if(year < 0) {
+      throw new NumberFormatException("Year can't be negative: " + year);
+    }
+
+    return year;
+  }
+
+  /**
+   * Handle clearing of search
+   */
+  private void clearSearch() {
+    // clear search field and filters, which may start searches of their own
+    searchField.setText("");
+    typeBox.setSelectedIndex(0);
+    fromYearField.setText("");
+    toYearField.setText("");
+
+    // stop any search that is still running, or about to run
+    if(searchWorker != null) {
+      searchWorker.cancel(true);
+      searchWorker = null;
+    }
+
+    searchTimer.stop();
+    moreButton.setVisible(false);
+
+    // update table to show all media items
+    showListedMedia();
+  }
+
+  /**
+   * Shows the media listed when not searching in the table
+   */
+  private void showListedMedia() {
+    tableModel.setMedia(getListedMedia());
+
+    // the same media getListedMedia() gives
+    shownQuery = new MediaQuery();
+
+    if(availableOnlyBox.isSelected()) {
+      shownQuery.setRented(Boolean.FALSE);
+    }
+  }
+
+  /**
+   * Gets the media to show when not searching: all media, or only available media if the 
+   * "Available only" box is checked
+   * @return The media to show
+   */
+  private java.util.List<Media> getListedMedia() {
+    // nothing loaded, or the last load failed
+    if(manager.isEmpty()) {
+      return new ArrayList<Media>();
+    }
+
+    if(availableOnlyBox.isSelected()) {
+      return manager.getAvailableMedia();
+    }
+
+    return manager.getAllMedia();
+  }
+
+  /**
+   * Shows how many media are available to rent
+   */
+  private void updateAvailability() {
+    int available = manager.getAvailableCount();
+    int total = available + manager.getRentedCount();
+
+    availabilityLabel.setText(available + " of " + total + " available");
+  }
+
+  /**
+   * handles closing the application from the exit menu
+   */
+  private void closeApplication() {
+    // stop loading first, so the manager isn't closed part way through
+    cancelLoading();
+
+    // write queued saves and journaled rentals to the media files, and make sure they are on disk
+    try {
+      manager.close();
+    } catch(IOException e) {
+      JOptionPane.showMessageDialog(this, "Unable to save media: " + e.getMessage());
+    }
+
+    this.dispose();
+  }
+  
+  /**
+   * main method/application start
+   * @param args not used
+   */
+  public static void main(String[] args) {
+    // create new MediaRentalSystem and show it
+    new MediaRentalSystem().setVisible(true);
+  }
+}
@@ -0,0 +1,474 @@
+package mediarental;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Binary snapshot of the media loaded from a directory, along with its title and attribute indexes,
+ * so the directory can be loaded again without reading or parsing any media file.  The media are
+ * stored in columns and read back with a bulk read of each column, and the indexes are stored as
+ * they are in memory so they don't need to be rebuilt.
+ *
+ * The snapshot is kept as a hidden file in the directory:
+ *
+ *   magic number (4 bytes), version (2), time written (8), media count (4),
+ *   ids (4 each), years published (4 each), type tags (1 each), rented (1 each),
+ *   type attributes (8 each), title offsets (4 each, plus one for the end), titles (UTF-8),
+ *   file sizes (8 each), file modification times (8 each),
+ *   title index flag (1), title index, attribute index, magic number (4)
+ *
+ * The size and modification time of each media's file are recorded, so a snapshot is only used
+ * while the directory holds exactly those files, unchanged.  Checking them takes one pass over the
+ * directory.  Like the manifest, files modified shortly before the snapshot was written are read
+ * again, since a change made in the same clock tick as the one recorded wouldn't change the
+ * modification time; the snapshot is only used if they still hold the values it has.  These are
+ * usually just the media saved when close() compacted the rental journal.  Rentals made after the
+ * snapshot was written are in the rental journal, which is replayed over the snapshot like it is
+ * over the media files.
+ */
+public class MediaSnapshot {
+  // name of the snapshot file in a media directory, hidden so it isn't loaded as media
+  public static final String NAME = ".media.snapshot";
+
+  // identifies snapshot files ("MRSN")
+  private static final int MAGIC = 0x4D52534E;
+
+  // current version of the snapshot layout
+  private static final short VERSION = 3;
+
+  // size of the header before the media count: magic number, version and time written
+  private static final int HEADER_SIZE = 14;
+
+  // the media, sorted by id
+  private ArrayList<Media> media;
+
+  // the indexes of the media, the title index is null if titles weren't indexed
+  private TitleIndex titleIndex;
+  private AttributeIndex attributes;
+
+  /**
+   * Creates a MediaSnapshot of media read from a snapshot file
+   * @param media The media
+   * @param titleIndex The title index, or null
+   * @param attributes The attribute index
+   */
+  private MediaSnapshot(ArrayList<Media> media, TitleIndex titleIndex, AttributeIndex attributes) {
+    this.media = media;
+    this.titleIndex = titleIndex;
+    this.attributes = attributes;
+  }
+
+  /**
+   * Gets the snapshot file for a media directory
+   * @param directory The media directory
+   * @return The snapshot file within the directory
+   */
+  public static File getFile(File directory) {
+    return new File(directory, NAME);
+  }
+
+  /**
+   * Gets the media in the snapshot
+   * @return New Media for each media in the snapshot, sorted by id
+   */
+  public ArrayList<Media> getMedia() {
+    return this.media;
+  }
+
+  /**
+   * Gets the title index of the media
+   * @return The TitleIndex, or null if titles weren't indexed when the snapshot was written
+   */
+  public TitleIndex getTitleIndex() {
+    return this.titleIndex;
+  }
+
+  /**
+   * Gets the year and type indexes of the media
+   * @return The AttributeIndex
+   */
+  public AttributeIndex getAttributeIndex() {
+    return this.attributes;
+  }
+
+  /**
+   * Reads the snapshot of a directory, if it is still current.  The whole file is read with one
+   * read, and each column is copied out of it with a bulk get.
+   *
+   * @param directory The media directory
+   * @return The snapshot, or null if there is none or the media files have changed since it was 
+   *         written
+   * @throws IOException If the snapshot could not be read or is damaged
+   */
+  public static MediaSnapshot read(File directory) throws IOException {
+    File file = getFile(directory);
+
+    if(!file.exists()) {
+      return null;
+    }
+
+    ByteBuffer buffer;
+
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if(channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot is too large: " + file.getName());
+      }
+
+      buffer = ByteBuffer.allocate((int) channel.size());
+
+      while(buffer.hasRemaining()) {
+        if(channel.read(buffer) < 0) {
+          throw new IOException("Snapshot is damaged: " + file.getName());
+        }
+      }
+    }
+
+    buffer.flip();
+
+    if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+      throw new IOException("Not a media snapshot: " + file.getName());
+    }
+
+    long written = buffer.getLong();
+    int count = getInt(buffer);
+    int[] ids = getInts(buffer, count);
+    int[] years = getInts(buffer, count);
+    byte[] tags = getBytes(buffer, count);
+    byte[] rented = getBytes(buffer, count);
+    double[] attributes = getDoubles(buffer, count);
+    int[] titleOffsets = getInts(buffer, count + 1);
+    byte[] titles = getBytes(buffer, titleOffsets[count]);
+    long[] sizes = getLongs(buffer, count);
+    long[] modified = getLongs(buffer, count);
+
+    ArrayList<Media> media = new ArrayList<Media>(count);
+
+    for(int i = 0; i < count; i++) {
+      MediaType type = MediaType.forTag(tags[i]);
+      int start = titleOffsets[i];
+      int end = titleOffsets[i + 1];
+
+      if(type == null || start < 0 || end < start || end > titles.length) {
+        throw new IOException("Snapshot is damaged: " + file.getName());
+      }
+
+      media.add(type.create(ids[i], new String(titles, start, end - start, StandardCharsets.UTF_8), years[i],
+        rented[i] != 0, attributes[i]));
+    }
+
+    // the indexes aren't read unless the media files are the ones the snapshot was written from
+    if(!isCurrent(directory, media, sizes, modified, written)) {
+      return null;
+    }
+
+    TitleIndex titleIndex = (getBytes(buffer, 1)[0] != 0 ? TitleIndex.read(buffer) : null);
+    AttributeIndex attributeIndex = AttributeIndex.read(buffer);
+
+    if(getInt(buffer) != MAGIC) {
+      throw new IOException("Snapshot is damaged: " + file.getName());
+    }
+
+    return new MediaSnapshot(media, titleIndex, attributeIndex);
+  }
+
+  /**
+   * Checks that the media files in a directory are the ones a snapshot was written from: every file
+   * that would be loaded belongs to a media in the snapshot and has the size and modification time 
+   * recorded for it, and no file is missing.  Files modified too close to when the snapshot was 
+   * written to trust their modification time are parsed and compared with the snapshot instead.
+   *
+   * @param directory The media directory
+   * @param media The media in the snapshot
+   * @param sizes The size recorded for each media's file
+   * @param modified The modification time recorded for each media's file
+   * @param written When the snapshot was written
+   * @return true if the snapshot can be used in place of the media files
+   * @throws IOException If the directory could not be read
+   */
+  private static boolean isCurrent(File directory, List<Media> media, long[] sizes, long[] modified, long written) 
+      throws IOException {
+    MediaDirectory store = new MediaDirectory(directory);
+    HashMap<String, Integer> positions = new HashMap<String, Integer>(media.size() * 2);
+
+    for(int i = 0; i < media.size(); i++) {
+      positions.put(store.getFile(media.get(i)).getName(), i);
+    }
+
+    // two media saved to the same file can't both have come from the directory
+    if(positions.size() != media.size()) {
+      return false;
+    }
+
+    int found = 0;
+
+    // positions of files whose modification time can't be trusted
+    ArrayList<Integer> racy = new ArrayList<Integer>();
+
+    try(DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath())) {
+      for(Path entry: entries) {
+        String name = entry.getFileName().toString();
+
+        // hidden files, like the snapshot itself, are never loaded as media
+        if(name.startsWith(".")) {
+          continue;
+        }
+
+        Integer i = positions.get(name);
+
+        // a file created since the snapshot was written
+        if(i == null) {
+          return false;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+        long time = attributes.lastModifiedTime().toMillis();
+
+        if(attributes.size() != sizes[i] || time != modified[i]) {
+          return false;
+        }
+
+        if(time >= written - MediaManifest.RACY_WINDOW) {
+          racy.add(i);
+        }
+
+        found++;
+      }
+    } catch(NoSuchFileException e) {
+      // deleted while the directory was being read
+      return false;
+    }
+
+    // fewer files means some were deleted since the snapshot was written
+    if(found != media.size()) {
+      return false;
+    }
+
+    MediaParser parser = new MediaParser();
+
+    for(int i: racy) {
+      Media item = media.get(i);
+
+      try {
+        if(!item.hasSameValues(parser.parse(store.getFile(item)))) {
+          return false;
+        }
+      } catch(MediaCreationException e) {
+        // deleted or being written since the directory was read
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes a snapshot of media loaded from a directory, along with the size and modification time 
+   * of each media's file.  It is written to a temporary file first and moved into place, so an 
+   * interrupted write leaves the previous snapshot.
+   *
+   * @param directory The media directory
+   * @param items The media, sorted by id, all of which must have been saved to their files
+   * @param titleIndex The title index of the media, or null if titles aren't indexed
+   * @param attributes The attribute index of the media
+   * @throws IOException If the snapshot could not be written, or a media has no file
+   */
+  public static void write(File directory, List<Media> items, TitleIndex titleIndex, AttributeIndex attributes)
+      throws IOException {
+    File file = getFile(directory);
+    File temporary = new File(directory, NAME + ".tmp");
+    MediaDirectory store = new MediaDirectory(directory);
+    int count = items.size();
+
+    // taken before the files are checked, so a file changed while writing is seen as too recent
+    long written = System.currentTimeMillis();
+
+    // titles are encoded once to find their offsets, then written together
+    byte[][] titles = new byte[count][];
+    long[] sizes = new long[count];
+    long[] modified = new long[count];
+
+    for(int i = 0; i < count; i++) {
+      Media item = items.get(i);
+      BasicFileAttributes fileAttributes = Files.readAttributes(store.getFile(item).toPath(), 
+        BasicFileAttributes.class);
+
+      titles[i] = item.getTitle().getBytes(StandardCharsets.UTF_8);
+      sizes[i] = fileAttributes.size();
+      modified[i] = fileAttributes.lastModifiedTime().toMillis();
+    }
+
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 65536))) {
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeLong(written);
+      out.writeInt(count);
+
+      for(Media item: items) {
+        out.writeInt(item.getId());
+      }
+
+      for(Media item: items) {
+        out.writeInt(item.getYearPublished());
+      }
+
+      for(Media item: items) {
+        out.writeByte(item.getType().getTag());
+      }
+
+      for(Media item: items) {
+        out.writeBoolean(item.isRented());
+      }
+
+      for(Media item: items) {
+        out.writeDouble(item.getTypeAttribute());
+      }
+
+      int offset = 0;
+      out.writeInt(offset);
+
+      for(byte[] title: titles) {
+        offset += title.length;
+        out.writeInt(offset);
+      }
+
+      for(byte[] title: titles) {
+        out.write(title);
+      }
+
+      for(long size: sizes) {
+        out.writeLong(size);
+      }
+
+      for(long time: modified) {
+        out.writeLong(time);
+      }
+
+      out.writeBoolean(titleIndex != null);
+
+      if(titleIndex != null) {
+        titleIndex.write(out);
+      }
+
+      attributes.write(out);
+      out.writeInt(MAGIC);
+    }
+
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Deletes the snapshot of a directory, if there is one
+   * @param directory The media directory
+   * @throws IOException If the snapshot could not be deleted
+   */
+  public static void delete(File directory) throws IOException {
+    Files.deleteIfExists(getFile(directory).toPath());
+  }
+
+  /**
+   * Reads an int, used by the indexes to read their parts of a snapshot
+   * @param buffer The buffer to read from
+   * @return The int read
+   * @throws IOException If the buffer doesn't have an int left
+   */
+  static int getInt(ByteBuffer buffer) throws IOException {
+    checkRemaining(buffer, 1, 4);
+    return buffer.getInt();
+  }
+
+  /**
+   * Reads an array of ints with a bulk get
+   * @param buffer The buffer to read from
+   * @param count The number of ints
+   * @return The ints read
+   * @throws IOException If the buffer doesn't have that many ints left
+   */
+  static int[] getInts(ByteBuffer buffer, int count) throws IOException {
+    checkRemaining(buffer, count, 4);
+
+    int[] values = new int[count];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + count * 4);
+
+    return values;
+  }
+
+  /**
+   * Reads an array of longs with a bulk get
+   * @param buffer The buffer to read from
+   * @param count The number of longs
+   * @return The longs read
+   * @throws IOException If the buffer doesn't have that many longs left
+   */
+  static long[] getLongs(ByteBuffer buffer, int count) throws IOException {
+    checkRemaining(buffer, count, 8);
+
+    long[] values = new long[count];
+    buffer.asLongBuffer().get(values);
+    buffer.position(buffer.position() + count * 8);
+
+    return values;
+  }
+
+  /**
+   * Reads an array of doubles with a bulk get
+   * @param buffer The buffer to read from
+   * @param count The number of doubles
+   * @return The doubles read
+   * @throws IOException If the buffer doesn't have that many doubles left
+   */
+  static double[] getDoubles(ByteBuffer buffer, int count) throws IOException {
+    checkRemaining(buffer, count, 8);
+
+    double[] values = new double[count];
+    buffer.asDoubleBuffer().get(values);
+    buffer.position(buffer.position() + count * 8);
+
+    return values;
+  }
+
+  /**
+   * Reads an array of bytes with a bulk get
+   * @param buffer The buffer to read from
+   * @param count The number of bytes
+   * @return The bytes read
+   * @throws IOException If the buffer doesn't have that many bytes left
+   */
+  static byte[] getBytes(ByteBuffer buffer, int count) throws IOException {
+    checkRemaining(buffer, count, 1);
+
+    byte[] values = new byte[count];
+    buffer.get(values);
+
+    return values;
+  }
+
+  /**
+   * Checks that a buffer holds a number of values, so a damaged count can't read past the end
+   * @param buffer The buffer to read from
+   * @param count The number of values
+   * @param size The size of each value in bytes
+   * @throws IOException If the count is negative or the buffer doesn't have enough bytes left
+   */
+  private static void checkRemaining(ByteBuffer buffer, int count, int size) throws IOException {
+    if(count < 0 || count > buffer.remaining() / size) {
+      throw new IOException("Snapshot is damaged");
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package mediarental;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Storage backend that Manager saves Media updates to.
+ */
+public interface MediaStore {
+  /**
+   * Saves the current values of the given Media
+   * @param media The Media to save
+   * @throws IOException If the Media could not be saved
+   */
+  void save(Media media) throws IOException;
+
+  /**
+   * Saves the current values of all of the given Media, as a single write where the store allows it
+   * @param items The Media to save
+   * @throws IOException If the Media could not be saved
+   */
+  void saveAll(List<Media> items) throws IOException;
+
+  /**
+   * Forces everything saved so far to disk, so it survives a crash or power failure
+   * @throws IOException If the saved Media could not be forced to disk
+   */
+  void sync() throws IOException;
+
+  /**
+   * Releases any resources held by the store.  The store can't be used after it is closed.
+   * @throws IOException If the store could not be closed cleanly
+   */
+  void close() throws IOException;
+}
@@ -0,0 +1,389 @@
+package mediarental;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * AbstractTableModel impelementation used for displaying Media data in a JTable
+ */
+public class MediaTableModel extends AbstractTableModel {
+  // the media for the table, kept as given to setMedia() rather than copied
+  private List<Media> media;
+
+  // true if the model created the media list, or copied it, so it can change it
+  private boolean ownsMedia;
+
+  // ids of the rows that were last shown as rented, since renting changes a Media in place.  Kept 
+  // by id rather than by row, so inserting or removing a row doesn't move the others.
+  private RentedIdSet rented;
+
+  private String[] columnNames = {"ID", "Type", "Title", "Year Published", "Rented", "Additional Info"};
+
+  /**
+   * Creates a new MediaTableModel
+   */
+  public MediaTableModel() {
+    this.media = new ArrayList<Media>();
+    this.ownsMedia = true;
+    this.rented = new RentedIdSet();
+  }
+
+  /**
+   * Sets the media to be used in the MediaTableModel.  The columns never change, so rather than 
+   * rebuilding the table the old and new rows are compared, and only the rows between the first and 
+   * last that differ are reported as changed, inserted or deleted.  A rental flipping one row only 
+   * redraws that row.  Rows of record backed lists, such as a MappedCatalog or ColumnarCatalog, are 
+   * compared using their records, so no Media is created for rows that aren't drawn.
+   * 
+   * @param media A List of Media objects to display, or null for none.  The list is kept rather 
+   *        than copied, so it must not be changed afterwards.  The model copies it the first time 
+   *        it changes rows itself.
+   */
+  public void setMedia(List<Media> media) {
+    List<Media> oldMedia = this.media;
+    RentedIdSet oldRented = this.rented;
+
+    this.ownsMedia = (media == null);
+    this.media = (media == null ? new ArrayList<Media>() : media);
+    this.rented = new RentedIdSet();
+
+    for(int i = 0; i < this.media.size(); i++) {
+      if(isRented(this.media, i)) {
+        this.rented.add(getId(this.media, i));
+      }
+    }
+
+    int oldSize = oldMedia.size();
+    int newSize = this.media.size();
+
+    // skip the rows that are the same at the start and at the end of both lists
+    int first = 0;
+
+    while(first < oldSize && first < newSize && sameRow(oldMedia, oldRented, first, first)) {
+      first++;
+    }
+
+    int last = 0;
+
+    while(last < oldSize - first && last < newSize - first && 
+        sameRow(oldMedia, oldRented, oldSize - 1 - last, newSize - 1 - last)) {
+      last++;
+    }
+
+    int oldChanged = oldSize - first - last;
+    int newChanged = newSize - first - last;
+    int common = Math.min(oldChanged, newChanged);
+
+    // first make the row counts match, then redraw the changed rows that are in both
+    if(oldChanged > newChanged) {
+      fireTableRowsDeleted(first + common, first + oldChanged - 1);
+    } else if(newChanged > oldChanged) {
+      fireTableRowsInserted(first + common, first + newChanged - 1);
+    }
+
+    if(common > 0) {
+      fireTableRowsUpdated(first, first + common - 1);
+    }
+  }
+
+  /**
+   * Checks if a row of the previous media shows the same as a row of the current media.  Records 
+   * only change their rental status, so rows of the same records are the same at the same position.
+   * 
+   * @param oldMedia The previous media
+   * @param oldRented The ids of the previous media that were shown as rented
+   * @param oldRow The row in the previous media
+   * @param newRow The row in the current media
+   * @return true if both rows have the same Media, which was shown with its current rental status
+   */
+  private boolean sameRow(List<Media> oldMedia, RentedIdSet oldRented, int oldRow, int newRow) {
+    if(oldMedia instanceof MediaRecords || this.media instanceof MediaRecords) {
+      if(oldMedia != this.media || oldRow != newRow) {
+        return false;
+      }
+    } else if(oldMedia.get(oldRow) != this.media.get(newRow)) {
+      return false;
+    }
+
+    // the same media in both rows, so only its rental status can differ
+    int id = getId(this.media, newRow);
+
+    return (oldRented.contains(id) == this.rented.contains(id));
+  }
+
+  /**
+   * Gets the rental status of a row, without creating a Media for record backed lists
+   * @param media The media
+   * @param row The row
+   * @return true if the media in the row is rented
+   */
+  private static boolean isRented(List<Media> media, int row) {
+    if(media instanceof MediaRecords) {
+      return ((MediaRecords) media).isRented(row);
+    }
+
+    return media.get(row).isRented();
+  }
+
+  /**
+   * Gets the id of a row, without creating a Media for record backed lists
+   * @param media The media
+   * @param row The row
+   * @return The id of the media in the row
+   */
+  private static int getId(List<Media> media, int row) {
+    if(media instanceof MediaRecords) {
+      return ((MediaRecords) media).getId(row);
+    }
+
+    return media.get(row).getId();
+  }
+
+  /**
+   * Records the rental status a Media is shown with
+   * @param item The Media
+   */
+  private void showRented(Media item) {
+    if(item.isRented()) {
+      this.rented.add(item.getId());
+    } else {
+      this.rented.remove(item.getId());
+    }
+  }
+
+  /**
+   * Appends media to the end of the current list in the model.  Used to show partial results
+   * while media is still loading.
+   * @param batch The Media objects to append
+   */
+  public void addMedia(List<Media> batch) {
+    if(batch.size() == 0) {
+      return;
+    }
+
+    // the list given to setMedia() isn't changed
+    ownMedia();
+
+    int first = this.media.size();
+    this.media.addAll(batch);
+
+    for(Media item: batch) {
+      showRented(item);
+    }
+
+    fireTableRowsInserted(first, this.media.size() - 1);
+  }
+
+  /**
+   * Shows a Media that was added or changed, such as by another terminal sharing the directory.  
+   * The row showing its id is replaced, or if none does, a row is inserted where its id belongs.  
+   * Only that row is redrawn.
+   * @param item The Media to show
+   */
+  public void putMedia(Media item) {
+    int row = indexOfId(item.getId());
+
+    ownMedia();
+
+    if(row >= 0) {
+      this.media.set(row, item);
+      mediaUpdated(row);
+      return;
+    }
+
+    row = insertionRow(item.getId());
+    this.media.add(row, item);
+    showRented(item);
+    fireTableRowsInserted(row, row);
+  }
+
+  /**
+   * Stops showing a Media, such as one whose file was deleted or that no longer matches the search.  
+   * Nothing changes if the table doesn't show it.
+   * @param item The Media to remove
+   */
+  public void removeMedia(Media item) {
+    int row = indexOfId(item.getId());
+
+    if(row < 0) {
+      return;
+    }
+
+    ownMedia();
+    this.media.remove(row);
+    this.rented.remove(item.getId());
+    fireTableRowsDeleted(row, row);
+  }
+
+  /**
+   * Copies the media given to setMedia() before the model changes it, the first time it does
+   */
+  private void ownMedia() {
+    if(!this.ownsMedia) {
+      this.media = new ArrayList<Media>(this.media);
+      this.ownsMedia = true;
+    }
+  }
+
+  /**
+   * Finds the row a new id goes in to keep rows sorted by id
+   * @param id The id
+   * @return The first row with a larger id, or the number of rows
+   */
+  private int insertionRow(int id) {
+    int low = 0;
+    int high = this.media.size();
+
+    while(low < high) {
+      int middle = (low + high) >>> 1;
+
+      if(getId(this.media, middle) < id) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Gets the Media shown in the given row
+   * @param row The row in the table
+   * @return The Media in that row
+   */
+  public Media getMediaAt(int row) {
+    return this.media.get(row);
+  }
+
+  /**
+   * Tells the table that the Media in the given row has changed, such as after it was rented, so 
+   * only that row is redrawn
+   * @param row The row in the table
+   */
+  public void mediaUpdated(int row) {
+    int id = getId(this.media, row);
+
+    if(isRented(this.media, row)) {
+      this.rented.add(id);
+    } else {
+      this.rented.remove(id);
+    }
+
+    fireTableRowsUpdated(row, row);
+  }
+
+  /**
+   * Tells the table that a Media has changed, such as after a rental made in the background, 
+   * redrawing the row it is shown in now.  Nothing is redrawn if the table no longer shows it.
+   * @param item The Media that changed
+   */
+  public void mediaUpdated(Media item) {
+    int row = indexOfId(item.getId());
+
+    if(row >= 0) {
+      mediaUpdated(row);
+    }
+  }
+
+  /**
+   * Finds the row showing the media with an id.  Rows are usually sorted by id, so a binary search 
+   * is tried first, and every row is only checked if it doesn't find the id.
+   * @param id The id of the media
+   * @return The row, or -1 if no row shows the id
+   */
+  public int indexOfId(int id) {
+    if(this.media instanceof MediaRecords) {
+      return ((MediaRecords) this.media).indexOfId(id);
+    }
+
+    int low = 0;
+    int high = this.media.size() - 1;
+
+    while(low <= high) {
+      int middle = (low + high) >>> 1;
+      int found = getId(this.media, middle);
+
+      if(found < id) {
+        low = middle + 1;
+      } else if(found > id) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+
+    // rows added while loading, or found through the title index after others added media, may be 
+    // out of order
+    for(int row = 0; row < this.media.size(); row++) {
+      if(getId(this.media, row) == id) {
+        return row;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Indicates if a cell is editable - all are non-editable in this model
+   * @return false for all cells
+   */
+  public boolean isCellEditable(int row, int col) {
+    return false;
+  }
+
+  /**
+   * Gets the number of rows in the model (based on media provided to setMedia())
+   * @return The number of rows in the model
+   */
+  public int getRowCount() {
+    return this.media.size();
+  }
+
+  /**
+   * Gets the column count for the model.  
+   * @return The number of columns in the model.
+   */
+  public int getColumnCount() {
+    return this.columnNames.length;
+  }
+
+  /**
+   * Gets the column name
+   * @param column the column number to get the name for
+   * @return The name for the column
+   */
+  public String getColumnName(int column) {
+    return this.columnNames[column];
+  }
+
+  /**
+   * Gets the value at the specified row/col
+   * @param row the row in the table
+   * @param col the column in the table
+   * @return the value at the provided row/col
+   */
+  public Object getValueAt(int row, int col) {
+    Media item = this.media.get(row);
+
+    switch(col) {
+      case 0:
+        return item.getId();
+      case 1: 
+        return item.getType().getName();
+      case 2: 
+        return item.getTitle();
+      case 3:
+        return item.getYearPublished();
+      case 4:
+        return item.isRented();
+      case 5:
+        return item.getAdditionalInfo();
+      default:
+        return null;
+    }
+  }
+  
+}
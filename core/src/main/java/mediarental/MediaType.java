@@ -0,0 +1,89 @@
+package mediarental;
+
+/**
+ * The types of Media that can be managed.  Each type has the name used for its files and a
+ * numeric tag used when storing media in binary form.
+ */
+public enum MediaType {
+  EBOOK("EBook"),
+  MUSIC_CD("MusicCD"),
+  MOVIE_DVD("MovieDVD");
+
+  // name of the type, used in "type-id.txt" file names
+  private final String name;
+
+  /**
+   * Creates a new MediaType
+   * @param name The name of the type
+   */
+  private MediaType(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the name of the type, as used in file names
+   * @return The type name
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the numeric tag for the type, used when storing media in binary form
+   * @return The type tag
+   */
+  public byte getTag() {
+    return (byte) ordinal();
+  }
+
+  /**
+   * Creates a new Media instance of this type with the given attributes
+   * 
+   * @param id The ID of the Media
+   * @param title The Title
+   * @param yearPublished 4-digit year of publication
+   * @param rented whether the media has been rented
+   * @param attribute The type specific attribute (chapters, length or size)
+   * @return The new Media instance
+   */
+  public Media create(int id, String title, int yearPublished, boolean rented, double attribute) {
+    switch(this) {
+      case EBOOK:
+        return new EBook(id, title, yearPublished, rented, (int) attribute);
+      case MUSIC_CD:
+        return new MusicCD(id, title, yearPublished, rented, (int) attribute);
+      default:
+        return new MovieDVD(id, title, yearPublished, rented, attribute);
+    }
+  }
+
+  /**
+   * Gets the MediaType with the given name
+   * @param name The name of the type, as used in file names
+   * @return The matching MediaType, or null if there is none
+   */
+  public static MediaType forName(String name) {
+    for(MediaType type: values()) {
+      if(type.name.equals(name)) {
+        return type;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the MediaType with the given tag
+   * @param tag The numeric tag of the type
+   * @return The matching MediaType, or null if there is none
+   */
+  public static MediaType forTag(int tag) {
+    MediaType[] types = values();
+
+    if(tag < 0 || tag >= types.length) {
+      return null;
+    }
+
+    return types[tag];
+  }
+}
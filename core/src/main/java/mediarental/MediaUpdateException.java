@@ -1,3 +1,5 @@
+package mediarental;
+
 public class MediaUpdateException extends Exception {
   public MediaUpdateException() {
     super();
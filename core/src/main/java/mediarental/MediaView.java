@@ -0,0 +1,135 @@
+package mediarental;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Lightweight Media that reads its values from a MediaRecords collection rather than holding them 
+ * itself.  Fields are only decoded when they are asked for.  Only the rental status can be changed, 
+ * and only if the records allow it.
+ */
+public class MediaView extends Media {
+  // the records this view reads from, and the index of its record
+  private MediaRecords records;
+  private int index;
+
+  /**
+   * Creates a new MediaView for a record
+   * @param records The records to read from
+   * @param index The index of the record
+   */
+  public MediaView(MediaRecords records, int index) {
+    super(0, null, 0, false);
+    this.records = records;
+    this.index = index;
+  }
+
+  /**
+   * Creates a regular Media instance holding a copy of the record's current values
+   * @return A new EBook, MusicCD or MovieDVD with the record's values
+   */
+  public Media toMedia() {
+    return getType().create(getId(), getTitle(), getYearPublished(), isRented(), getTypeAttribute());
+  }
+
+  /**
+   * Gets the type of the record
+   * @return The MediaType of the record
+   */
+  public MediaType getType() {
+    return this.records.getType(this.index);
+  }
+
+  /**
+   * Gets the id of the record
+   * @return The record's ID
+   */
+  public int getId() {
+    return this.records.getId(this.index);
+  }
+
+  /**
+   * Views are read-only
+   * @throws UnsupportedOperationException always
+   */
+  public void setTitle(String title) {
+    throw new UnsupportedOperationException("Media view is read-only");
+  }
+
+  /**
+   * Gets the title of the record
+   * @return The record's title
+   */
+  public String getTitle() {
+    return this.records.getTitle(this.index);
+  }
+
+  /**
+   * Views are read-only
+   * @throws UnsupportedOperationException always
+   */
+  public void setYearPublished(int yearPublished) {
+    throw new UnsupportedOperationException("Media view is read-only");
+  }
+
+  /**
+   * Gets the year of publication of the record
+   * @return the 4-digit year
+   */
+  public int getYearPublished() {
+    return this.records.getYearPublished(this.index);
+  }
+
+  /**
+   * Sets the rental status of the record
+   * @param rented true if rented, false if not
+   * @throws UnsupportedOperationException If the records are read-only
+   */
+  public void setRented(boolean rented) {
+    this.records.setRented(this.index, rented);
+  }
+
+  /**
+   * Atomically sets the rental status of the record if it currently has the expected value
+   * @param expected The rental status the record is expected to have
+   * @param rented The new rental status
+   * @return true if the status was changed, false if it didn't have the expected value
+   * @throws UnsupportedOperationException If the records are read-only
+   */
+  public boolean compareAndSetRented(boolean expected, boolean rented) {
+    return this.records.compareAndSetRented(this.index, expected, rented);
+  }
+
+  /**
+   * Gets the rental status of the record
+   * @return true if rented, false if not
+   */
+  public boolean isRented() {
+    return this.records.isRented(this.index);
+  }
+
+  /**
+   * Gets the type specific attribute of the record
+   * @return The chapters, length or size of the record
+   */
+  public double getTypeAttribute() {
+    return this.records.getTypeAttribute(this.index);
+  }
+
+  /**
+   * Gets additional info for the record as described by its type
+   * @return A String containing additional info for the record
+   */
+  public String getAdditionalInfo() {
+    return toMedia().getAdditionalInfo();
+  }
+
+  /**
+   * Saves the record in the same form as its type
+   * @param writer The writer to write data do
+   * @throws IOException If there was a problem writing the data
+   */
+  public void save(Writer writer) throws IOException {
+    toMedia().save(writer);
+  }
+}
@@ -0,0 +1,122 @@
+package mediarental;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a media directory for files that are created, changed or deleted, and passes the names of
+ * the files to a Manager so it can apply just those changes.  Events are gathered for a short time
+ * before being applied, so a burst of changes, such as a file being written in several parts or
+ * another terminal saving many media, is applied together.
+ *
+ * Watching runs on its own daemon thread until the watcher is closed.
+ */
+public class MediaWatcher {
+  // how long to wait for more events before applying the ones gathered, in milliseconds
+  private static final long BATCH_DELAY = 50;
+
+  // manager the changes are applied to
+  private Manager manager;
+
+  // the directory being watched
+  private File directory;
+
+  private WatchService service;
+  private Thread thread;
+
+  /**
+   * Creates a MediaWatcher for a directory.  Nothing is watched until start() is called.
+   * @param manager The Manager to apply changes to
+   * @param directory The directory to watch
+   * @throws IOException If the directory can't be watched
+   */
+  public MediaWatcher(Manager manager, File directory) throws IOException {
+    this.manager = manager;
+    this.directory = directory;
+
+    Path path = directory.toPath();
+    this.service = path.getFileSystem().newWatchService();
+
+    path.register(this.service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+      StandardWatchEventKinds.ENTRY_DELETE);
+
+    this.thread = new Thread(new Runnable() {
+      public void run() {
+        watch();
+      }
+    }, "media-watcher");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Gets the directory being watched
+   * @return The directory
+   */
+  public File getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Starts watching on a background thread
+   */
+  public void start() {
+    this.thread.start();
+  }
+
+  /**
+   * Stops watching.  Changes already being applied finish, but no more are applied.
+   */
+  public void close() {
+    try {
+      this.service.close();
+    } catch(IOException e) {
+      // the service is unusable either way
+    }
+  }
+
+  /**
+   * Waits for events and applies them in batches, until the watch service is closed
+   */
+  private void watch() {
+    try {
+      while(true) {
+        WatchKey key = this.service.take();
+
+        // names of the files changed, in the order they were first changed
+        LinkedHashSet<String> names = new LinkedHashSet<String>();
+        boolean overflow = false;
+
+        while(key != null) {
+          for(WatchEvent<?> event: key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              overflow = true;
+            } else {
+              names.add(((Path) event.context()).getFileName().toString());
+            }
+          }
+
+          if(!key.reset()) {
+            // the directory is gone, so there is nothing left to watch
+            return;
+          }
+
+          key = this.service.poll(BATCH_DELAY, TimeUnit.MILLISECONDS);
+        }
+
+        this.manager.applyDirectoryChanges(this, names, overflow);
+      }
+    } catch(ClosedWatchServiceException e) {
+      // closed, so stop watching
+    } catch(InterruptedException e) {
+      // stop watching
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package mediarental;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Saves media to a MediaStore on a background thread, so callers of save() don't wait for the
+ * write.  Saves are queued by media id: saving a media that is already waiting to be written just
+ * replaces it in the queue, so a media saved many times in a row is written once, with the values
+ * it has when it is written.
+ *
+ * The writer takes everything queued, up to a batch at a time, and writes it with one saveAll() so
+ * the store can write the batch together.  The queue is bounded: once it holds its capacity of
+ * media, save() waits for the writer to catch up before queuing another id, so callers can't get
+ * arbitrarily far ahead of the disk.
+ *
+ * Queued saves are only written once the writer gets to them, so flush() or close() must be called
+ * before anything relies on the files, such as before exiting.  Both wait for the queue to be
+ * written and then sync the store, so everything saved before they were called is on disk when they
+ * return.  If a write fails, no more are written, and the error is thrown by the next save(),
+ * flush() or close().
+ */
+public class MediaWriteBehind {
+  // most media written with one saveAll()
+  private static final int BATCH_SIZE = 256;
+
+  // store the media are written to
+  private MediaStore store;
+
+  // most media that can be waiting to be written
+  private int capacity;
+
+  // media waiting to be written by id, in the order they were first saved
+  private LinkedHashMap<Integer, Media> pending;
+
+  // true while the writer is writing a batch taken from the queue
+  private boolean writing;
+
+  // the batch being written, empty when the writer isn't writing
+  private ArrayList<Media> batch;
+
+  // true once close() has been called, the writer stops when the queue is empty
+  private boolean closed;
+
+  // set if a write failed, after which nothing more is written
+  private IOException failure;
+
+  private Thread thread;
+
+  /**
+   * Creates a MediaWriteBehind for a store and starts its writer thread
+   * @param store The store to write media to
+   * @param capacity The most media that can be waiting to be written before save() waits
+   */
+  public MediaWriteBehind(MediaStore store, int capacity) {
+    if(capacity < 1) {
+      throw new IllegalArgumentException("Write-behind capacity must be at least 1: " + capacity);
+    }
+
+    this.store = store;
+    this.capacity = capacity;
+    this.pending = new LinkedHashMap<Integer, Media>();
+    this.writing = false;
+    this.batch = new ArrayList<Media>();
+    this.closed = false;
+    this.failure = null;
+
+    this.thread = new Thread(new Runnable() {
+      public void run() {
+        write();
+      }
+    }, "media-write-behind");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Queues a media to be saved, replacing any save of the same id that hasn't been written yet.  If 
+   * the queue is full and the id isn't already queued, waits until the writer has made room.
+   * 
+   * @param media The Media to save
+   * @throws IOException If an earlier write failed, the MediaWriteBehind is closed, or the thread 
+   *         was interrupted waiting for room in the queue
+   */
+  public synchronized void save(Media media) throws IOException {
+    Integer id = media.getId();
+
+    while(this.failure == null && !this.closed && this.pending.size() >= this.capacity && 
+        !this.pending.containsKey(id)) {
+      try {
+        wait();
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting for room to save media");
+      }
+    }
+
+    checkFailure();
+
+    if(this.closed) {
+      throw new IOException("Unable to save media: write-behind is closed");
+    }
+
+    this.pending.put(id, media);
+    notifyAll();
+  }
+
+  /**
+   * Gets the most media that can be waiting to be written
+   * @return The capacity of the queue
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Gets the number of media waiting to be written
+   * @return The number of queued saves, not counting one being written
+   */
+  public synchronized int size() {
+    return this.pending.size();
+  }
+
+  /**
+   * Checks if a media is waiting to be written or being written, so its file may not have its latest 
+   * values yet
+   * @param id The id of the media
+   * @return true if a save of the id hasn't finished
+   */
+  public synchronized boolean isPending(int id) {
+    if(this.pending.containsKey(id)) {
+      return true;
+    }
+
+    for(Media item: this.batch) {
+      if(item.getId() == id) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Waits until every media saved so far has been written, then syncs the store so they are on disk
+   * @throws IOException If a write failed or the store could not be synced
+   */
+  public void flush() throws IOException {
+    synchronized(this) {
+      while(this.failure == null && (this.writing || !this.pending.isEmpty())) {
+        try {
+          wait();
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for media to be saved");
+        }
+      }
+
+      checkFailure();
+    }
+
+    this.store.sync();
+  }
+
+  /**
+   * Writes every media still queued, stops the writer thread and syncs the store, so everything 
+   * saved is on disk.  Nothing more can be saved.
+   * @throws IOException If a write failed, so some saves were not written, or the store could not 
+   *         be synced
+   */
+  public void close() throws IOException {
+    synchronized(this) {
+      this.closed = true;
+      notifyAll();
+    }
+
+    try {
+      this.thread.join();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for media to be saved");
+    }
+
+    synchronized(this) {
+      checkFailure();
+    }
+
+    this.store.sync();
+  }
+
+  /**
+   * Throws the error of a failed write, if there was one
+   * @throws IOException If a write failed
+   */
+  private void checkFailure() throws IOException {
+    if(this.failure != null) {
+      throw new IOException("Unable to save media: " + this.failure.getMessage());
+    }
+  }
+
+  /**
+   * Writes queued media a batch at a time, until closed and the queue is empty or a write fails
+   */
+  private void write() {
+    while(true) {
+      ArrayList<Media> batch;
+
+      synchronized(this) {
+        while(this.pending.isEmpty() && !this.closed) {
+          try {
+            wait();
+          } catch(InterruptedException e) {
+            return;
+          }
+        }
+
+        if(this.pending.isEmpty()) {
+          return;
+        }
+
+        // take the oldest saves, making room for callers waiting on a full queue
+        batch = new ArrayList<Media>(Math.min(this.pending.size(), BATCH_SIZE));
+        Iterator<Media> next = this.pending.values().iterator();
+
+        while(next.hasNext() && batch.size() < BATCH_SIZE) {
+          batch.add(next.next());
+          next.remove();
+        }
+
+        this.writing = true;
+        this.batch = batch;
+        notifyAll();
+      }
+
+      IOException error = null;
+
+      try {
+        this.store.saveAll(batch);
+      } catch(IOException e) {
+        error = e;
+      }
+
+      synchronized(this) {
+        this.writing = false;
+        this.batch = new ArrayList<Media>();
+        this.failure = error;
+        notifyAll();
+
+        if(error != null) {
+          return;
+        }
+      }
+    }
+  }
+}
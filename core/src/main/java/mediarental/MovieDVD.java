@@ -1,3 +1,5 @@
+package mediarental;
+
 import java.io.IOException;
 import java.io.Writer;
 import java.text.DecimalFormat;
@@ -34,11 +36,18 @@ public class MovieDVD extends Media {
    * @throws MediaCreationException if the MovieDVD object could to be properly created from the data given
    */
   public MovieDVD(String data) throws MediaCreationException {
+    this(data.split(","));
+  }
+
+  /**
+   * Creates a new MovieDVD object from a comma-delimited string that has already been split
+   * 
+   * @param segements The fields for the MovieDVD instance: id, title, yearPublished, rented, size
+   * @throws MediaCreationException if the MovieDVD object could to be properly created from the data given
+   */
+  protected MovieDVD(String[] segements) throws MediaCreationException {
     // call superclass and let it init id,title,yearPublished,rented
-    super(data);
-    
-    // split string and get size data
-    String[] segements = data.split(",");
+    super(segements);
 
     if(segements.length < 5) {
       throw new MediaCreationException("Incorrect MovieDVD format");
@@ -69,6 +78,22 @@ public class MovieDVD extends Media {
     return this.size;
   }
 
+  /**
+   * Gets the type of the MovieDVD instance
+   * @return MediaType.MOVIE_DVD
+   */
+  public MediaType getType() {
+    return MediaType.MOVIE_DVD;
+  }
+
+  /**
+   * Gets the type attribute of the MovieDVD instance
+   * @return The size in MB
+   */
+  public double getTypeAttribute() {
+    return this.size;
+  }
+
   /**
    * Gets a String containing additional info for the MovieDVD.  
    * @return A String description for size in MB of the MovieDVD
@@ -1,3 +1,5 @@
+package mediarental;
+
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Calendar;;
@@ -9,9 +11,6 @@ import java.util.Calendar;;
  * Date: 3/8/2022
  */
 public class MusicCD extends Media {
-  // rate used for calculating rental fee
-  private static final double MUSIC_CD_RATE = 0.02;
-
   // the length of the cd in minutes
   private int length;
 
@@ -35,12 +34,19 @@ public class MusicCD extends Media {
    * @param data A comma-delimited string containing the fields for the MusicCD instance.
    * @throws MediaCreationException if the MusicCD object could to be properly created from the data given
    */
-  public MusicCD(String data) throws MediaCreationException{
-    // call superclass and let it init id,title,yearPublished,rented
-    super(data);
+  public MusicCD(String data) throws MediaCreationException {
+    this(data.split(","));
+  }
 
-    // split string and get minutes data
-    String[] segements = data.split(",");
+  /**
+   * Creates a new MusicCD object from a comma-delimited string that has already been split
+   * 
+   * @param segements The fields for the MusicCD instance: id, title, yearPublished, rented, minutes
+   * @throws MediaCreationException if the MusicCD object could to be properly created from the data given
+   */
+  protected MusicCD(String[] segements) throws MediaCreationException {
+    // call superclass and let it init id,title,yearPublished,rented
+    super(segements);
 
     if(segements.length < 5) {
       throw new MediaCreationException("Incorrect MusicCD format");
@@ -71,27 +77,27 @@ public class MusicCD extends Media {
   }
 
   /**
-   * Gets a String containing additional info for the MusicCD.  
-   * @return A String description for number of minutes in the MusicCD
+   * Gets the type of the MusicCD instance
+   * @return MediaType.MUSIC_CD
    */
-  public String getAdditionalInfo() {
-    return "length: " + this.length + " minutes";
+  public MediaType getType() {
+    return MediaType.MUSIC_CD;
   }
 
   /**
-   * Calculates the rental fee for the MusicCD instance, and returns it
-   * @return The rental fee for the MusicCD instance
+   * Gets the type attribute of the MusicCD instance
+   * @return The length in minutes
    */
-  public double caculateRentalFee() {
-    int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-
-    double fee = this.getLength() * MUSIC_CD_RATE;
-
-    if(currentYear == this.getYearPublished()) {
-      fee += 1.00;
-    }
+  public double getTypeAttribute() {
+    return this.length;
+  }
 
-    return fee;
+  /**
+   * Gets a String containing additional info for the MusicCD.  
+   * @return A String description for number of minutes in the MusicCD
+   */
+  public String getAdditionalInfo() {
+    return "length: " + this.length + " minutes";
   }
 
   /**
@@ -0,0 +1,103 @@
+package mediarental;
+
+/**
+ * A single rental pricing rule.  A rule applies to media of one type (or every type) published
+ * within a range of years before the current year, and adds a flat fee plus a rate for each unit of
+ * the media's type attribute (chapters, minutes or MB) to the rental fee.  Every rule that applies
+ * to a media is added together, so surcharges are rules with a flat fee and promotions are rules
+ * with a negative one.
+ *
+ * Rules are combined and compiled for evaluation by PricingRules.
+ */
+public class PricingRule {
+  // no limit on the age of media a rule applies to
+  public static final int ANY_AGE = -1;
+
+  // the type of media the rule applies to, or null for every type
+  private MediaType type;
+
+  // range of years since publication the rule applies to, inclusive
+  private int minAge;
+  private int maxAge;
+
+  // fee added by the rule, and rate added per unit of the type attribute
+  private double fee;
+  private double rate;
+
+  /**
+   * Creates a new PricingRule
+   *
+   * @param type The type of media the rule applies to, or null for every type
+   * @param minAge The fewest years since publication the rule applies to, or ANY_AGE
+   * @param maxAge The most years since publication the rule applies to, or ANY_AGE
+   * @param fee The flat fee the rule adds
+   * @param rate The fee the rule adds per unit of the type attribute
+   */
+  public PricingRule(MediaType type, int minAge, int maxAge, double fee, double rate) {
+    if((minAge < 0 && minAge != ANY_AGE) || (maxAge < 0 && maxAge != ANY_AGE)) {
+      throw new IllegalArgumentException("Ages must be 0 or more, or ANY_AGE");
+    }
+
+    if(minAge != ANY_AGE && maxAge != ANY_AGE && minAge > maxAge) {
+      throw new IllegalArgumentException("Minimum age is more than maximum age: " + minAge + " > " + maxAge);
+    }
+
+    this.type = type;
+    this.minAge = minAge;
+    this.maxAge = maxAge;
+    this.fee = fee;
+    this.rate = rate;
+  }
+
+  /**
+   * Gets the type of media the rule applies to
+   * @return The MediaType, or null if the rule applies to every type
+   */
+  public MediaType getType() {
+    return this.type;
+  }
+
+  /**
+   * Gets the fewest years since publication the rule applies to
+   * @return The minimum age, or ANY_AGE
+   */
+  public int getMinAge() {
+    return this.minAge;
+  }
+
+  /**
+   * Gets the most years since publication the rule applies to
+   * @return The maximum age, or ANY_AGE
+   */
+  public int getMaxAge() {
+    return this.maxAge;
+  }
+
+  /**
+   * Gets the flat fee the rule adds
+   * @return The fee
+   */
+  public double getFee() {
+    return this.fee;
+  }
+
+  /**
+   * Gets the fee the rule adds per unit of the type attribute
+   * @return The rate
+   */
+  public double getRate() {
+    return this.rate;
+  }
+
+  /**
+   * Checks if the rule applies to media of the given type and age
+   * @param type The type of the media
+   * @param age The number of years since the media was published
+   * @return true if the rule applies
+   */
+  public boolean appliesTo(MediaType type, int age) {
+    return (this.type == null || this.type == type) &&
+      (this.minAge == ANY_AGE || age >= this.minAge) &&
+      (this.maxAge == ANY_AGE || age <= this.maxAge);
+  }
+}
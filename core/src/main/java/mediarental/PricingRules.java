@@ -0,0 +1,201 @@
+package mediarental;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A set of PricingRule compiled for fast evaluation.  When created, the rules for each media type
+ * are split into ranges of ages where the same rules apply, and the fees and rates of those rules
+ * are added up for each range.  Pricing a media is then a search of a few age boundaries for its
+ * type followed by a single multiply and add, no matter how many rules there are.
+ *
+ * The default rules are the only place the standard fees are kept; Media.caculateRentalFee() 
+ * prices with them too.
+ */
+public class PricingRules {
+  // the rules these were compiled from
+  private List<PricingRule> rules;
+
+  // for each type (by ordinal), the ages at which the rules that apply change
+  private int[][] bounds;
+
+  // for each type, the total fee and rate of the rules for each range between bounds
+  private double[][] fees;
+  private double[][] rates;
+
+  // the standard pricing, created when first needed
+  private static PricingRules defaults;
+
+  /**
+   * Compiles the given rules
+   * @param rules The rules to compile.  Every rule that applies to a media adds to its fee.
+   */
+  public PricingRules(List<PricingRule> rules) {
+    this.rules = Collections.unmodifiableList(new ArrayList<PricingRule>(rules));
+
+    MediaType[] types = MediaType.values();
+    this.bounds = new int[types.length][];
+    this.fees = new double[types.length][];
+    this.rates = new double[types.length][];
+
+    for(MediaType type: types) {
+      compile(type);
+    }
+  }
+
+  /**
+   * Gets the rules these were compiled from
+   * @return An unmodifiable List of the rules
+   */
+  public List<PricingRule> getRules() {
+    return this.rules;
+  }
+
+  /**
+   * Calculates the rental fee for media with the given attributes
+   *
+   * @param type The type of the media
+   * @param yearPublished 4-digit year of publication
+   * @param attribute The type attribute of the media (chapters, length or size)
+   * @param currentYear The current 4-digit year
+   * @return The rental fee
+   */
+  public double getFee(MediaType type, int yearPublished, double attribute, int currentYear) {
+    int ordinal = type.ordinal();
+    int range = range(this.bounds[ordinal], currentYear - yearPublished);
+
+    double fee = this.fees[ordinal][range];
+    double rate = this.rates[ordinal][range];
+
+    // skip the attribute when it isn't priced, so an unusual size can't change a flat fee
+    return (rate == 0 ? fee : fee + rate * attribute);
+  }
+
+  /**
+   * Calculates the rental fee for a media
+   * @param media The media to price
+   * @return The rental fee
+   */
+  public double getFee(Media media) {
+    return getFee(media.getType(), media.getYearPublished(), media.getTypeAttribute(), RentalFees.getCurrentYear());
+  }
+
+  /**
+   * Calculates the rental fee of every Media in a list, such as for quoting or reporting
+   * @param items The Media to price
+   * @return The fee of each Media, in the same order as the list
+   */
+  public double[] calculateFees(List<Media> items) {
+    double[] fees = new double[items.size()];
+    int currentYear = RentalFees.getCurrentYear();
+    int i = 0;
+
+    for(Media item: items) {
+      fees[i++] = getFee(item.getType(), item.getYearPublished(), item.getTypeAttribute(), currentYear);
+    }
+
+    return fees;
+  }
+
+  /**
+   * Gets the rules for the standard pricing: EBooks cost 0.10 per chapter and MusicCDs 0.02 per 
+   * minute, plus 1.00 for either if published this year, and MovieDVDs cost 3.50.
+   * @return A new List of the default rules
+   */
+  public static List<PricingRule> getDefaultRules() {
+    ArrayList<PricingRule> rules = new ArrayList<PricingRule>();
+
+    rules.add(new PricingRule(MediaType.EBOOK, PricingRule.ANY_AGE, PricingRule.ANY_AGE, 0, 0.10));
+    rules.add(new PricingRule(MediaType.EBOOK, 0, 0, 1.00, 0));
+    rules.add(new PricingRule(MediaType.MUSIC_CD, PricingRule.ANY_AGE, PricingRule.ANY_AGE, 0, 0.02));
+    rules.add(new PricingRule(MediaType.MUSIC_CD, 0, 0, 1.00, 0));
+    rules.add(new PricingRule(MediaType.MOVIE_DVD, PricingRule.ANY_AGE, PricingRule.ANY_AGE, 3.50, 0));
+
+    return rules;
+  }
+
+  /**
+   * Gets the default rules, compiled
+   * @return PricingRules for the default rules
+   */
+  public static synchronized PricingRules getDefault() {
+    if(defaults == null) {
+      defaults = new PricingRules(getDefaultRules());
+    }
+
+    return defaults;
+  }
+
+  /**
+   * Compiles the rules for one type of media into age ranges with their total fees and rates
+   * @param type The type of media
+   */
+  private void compile(MediaType type) {
+    // the rules that apply can only change where a rule's age range starts or ends
+    TreeSet<Integer> changes = new TreeSet<Integer>();
+
+    for(PricingRule rule: this.rules) {
+      if(rule.getType() == null || rule.getType() == type) {
+        if(rule.getMinAge() != PricingRule.ANY_AGE) {
+          changes.add(rule.getMinAge());
+        }
+
+        if(rule.getMaxAge() != PricingRule.ANY_AGE) {
+          changes.add(rule.getMaxAge() + 1);
+        }
+      }
+    }
+
+    int[] bounds = new int[changes.size()];
+    int i = 0;
+
+    for(int change: changes) {
+      bounds[i++] = change;
+    }
+
+    // range 0 is every age before the first bound, and range i starts at bound i - 1
+    double[] fees = new double[bounds.length + 1];
+    double[] rates = new double[bounds.length + 1];
+
+    for(int range = 0; range < fees.length; range++) {
+      int age = (range == 0 ? (bounds.length == 0 ? 0 : bounds[0] - 1) : bounds[range - 1]);
+
+      for(PricingRule rule: this.rules) {
+        if(rule.appliesTo(type, age)) {
+          fees[range] += rule.getFee();
+          rates[range] += rule.getRate();
+        }
+      }
+    }
+
+    this.bounds[type.ordinal()] = bounds;
+    this.fees[type.ordinal()] = fees;
+    this.rates[type.ordinal()] = rates;
+  }
+
+  /**
+   * Finds the age range an age falls in
+   * @param bounds The ages where ranges start, in order
+   * @param age The age to find
+   * @return The index of the range, from 0 to bounds.length
+   */
+  private static int range(int[] bounds, int age) {
+    int low = 0;
+    int high = bounds.length;
+
+    // count the bounds at or below the age
+    while(low < high) {
+      int middle = (low + high) >>> 1;
+
+      if(bounds[middle] <= age) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+}
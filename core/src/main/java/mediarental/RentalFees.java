@@ -0,0 +1,66 @@
+package mediarental;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Shared support for rental fee calculations.  Fees depend on the current year, which is cached so 
+ * fees don't need a Calendar each time they are calculated.  A background timer updates the year when 
+ * it rolls over, so PricingRules price media by their age in the new year from then on.
+ */
+public class RentalFees {
+  // the cached current year
+  private static volatile int currentYear;
+
+  // updates the current year at the start of each new year
+  private static final Timer rollover = new Timer("rental-fee-rollover", true);
+
+  static {
+    updateYear();
+  }
+
+  /**
+   * Not used, all methods are static
+   */
+  private RentalFees() {
+  }
+
+  /**
+   * Gets the current year, as cached at the last rollover
+   * @return The current 4-digit year
+   */
+  public static int getCurrentYear() {
+    return currentYear;
+  }
+
+  /**
+   * Works out the current year, and schedules the next update for the start of the next year
+   */
+  private static synchronized void updateYear() {
+    Calendar calendar = Calendar.getInstance();
+    currentYear = calendar.get(Calendar.YEAR);
+
+    rollover.schedule(new TimerTask() {
+      public void run() {
+        updateYear();
+      }
+    }, getNextYear(calendar));
+  }
+
+  /**
+   * Gets the time the year after a given time starts, in the time zone of the given calendar
+   * @param now The time, which is not changed
+   * @return Midnight at the start of the 1st of January of the following year
+   */
+  static Date getNextYear(Calendar now) {
+    Calendar next = (Calendar) now.clone();
+    int year = now.get(Calendar.YEAR);
+
+    next.clear();
+    next.set(year + 1, Calendar.JANUARY, 1);
+
+    return next.getTime();
+  }
+}
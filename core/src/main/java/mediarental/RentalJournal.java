@@ -0,0 +1,272 @@
+package mediarental;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only journal of rent and return events.  Recording a rental in the journal is a small
+ * append rather than a rewrite of the media's file, and the journal is replayed over the media
+ * files when they are loaded.
+ *
+ * Events are buffered by append() and made durable by sync().  Concurrent callers of sync() share
+ * a single write and force of the journal (group commit), so many rentals cost one fsync.
+ *
+ * Each event is stored as: event type (1 byte), media id (4), timestamp in milliseconds (8)
+ */
+public class RentalJournal {
+  // event types
+  public static final byte RENT = 1;
+  public static final byte RETURN = 2;
+
+  // size of each event in the journal
+  private static final int EVENT_SIZE = 13;
+
+  // initial size of the buffer of events waiting to be written
+  private static final int INITIAL_BUFFER_SIZE = EVENT_SIZE * 64;
+
+  // the journal file
+  private File file;
+  private FileChannel channel;
+
+  // events appended but not yet written
+  private ByteBuffer pending;
+
+  // sequence numbers of the last event appended, and the last event forced to disk
+  private long appended;
+  private long durable;
+
+  // true while a thread is writing and forcing events for everyone waiting in sync()
+  private boolean syncing;
+
+  // number of events in the journal, written or not
+  private int size;
+
+  // set if writing the journal failed, after which no more events can be made durable
+  private IOException failure;
+
+  /**
+   * Opens the given journal file for appending, creating it if it doesn't exist yet.  An incomplete
+   * event at the end of the file (from an interrupted write) is discarded.
+   *
+   * @param file The journal file
+   * @throws IOException If the journal could not be opened
+   */
+  public RentalJournal(File file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+
+    long length = this.channel.size();
+    this.channel.truncate(length - length % EVENT_SIZE);
+    this.channel.position(this.channel.size());
+
+    this.pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.size = (int) (this.channel.size() / EVENT_SIZE);
+  }
+
+  /**
+   * Gets the journal file
+   * @return The journal file
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Gets the number of events in the journal
+   * @return The number of events
+   */
+  public synchronized int size() {
+    return this.size;
+  }
+
+  /**
+   * Appends an event to the journal.  The event is not durable until sync() is called with the
+   * returned sequence number.
+   *
+   * @param type The event type, RENT or RETURN
+   * @param id The id of the media rented or returned
+   * @return The sequence number of the event
+   */
+  public synchronized long append(byte type, int id) {
+    if(this.pending.remaining() < EVENT_SIZE) {
+      ByteBuffer larger = ByteBuffer.allocate(this.pending.capacity() * 2);
+      this.pending.flip();
+      larger.put(this.pending);
+      this.pending = larger;
+    }
+
+    this.pending.put(type).putInt(id).putLong(System.currentTimeMillis());
+    this.size++;
+
+    return ++this.appended;
+  }
+
+  /**
+   * Waits until the event with the given sequence number, and every event before it, has been
+   * written and forced to disk.  If no other thread is already writing, this thread writes all
+   * pending events, including those appended by other threads.
+   *
+   * @param sequence The sequence number returned by append()
+   * @throws IOException If the journal could not be written
+   */
+  public void sync(long sequence) throws IOException {
+    ByteBuffer batch;
+    long target;
+
+    synchronized(this) {
+      while(true) {
+        if(this.failure != null) {
+          throw new IOException("Rental journal could not be written: " + this.failure.getMessage());
+        }
+
+        if(this.durable >= sequence) {
+          return;
+        }
+
+        if(!this.syncing) {
+          break;
+        }
+
+        try {
+          wait();
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for rental journal");
+        }
+      }
+
+      // take everything appended so far and write it for all waiting threads
+      this.syncing = true;
+      batch = this.pending;
+      batch.flip();
+      target = this.appended;
+      this.pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    }
+
+    IOException error = null;
+
+    try {
+      while(batch.hasRemaining()) {
+        this.channel.write(batch);
+      }
+
+      this.channel.force(false);
+    } catch(IOException e) {
+      error = e;
+    }
+
+    synchronized(this) {
+      this.syncing = false;
+
+      if(error != null) {
+        this.failure = error;
+      } else {
+        this.durable = target;
+      }
+
+      notifyAll();
+    }
+
+    if(error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Writes and forces every event appended so far
+   * @throws IOException If the journal could not be written
+   */
+  public void sync() throws IOException {
+    long sequence;
+
+    synchronized(this) {
+      sequence = this.appended;
+    }
+
+    sync(sequence);
+  }
+
+  /**
+   * Removes all events from the journal, including any not yet written.  Used once the state the 
+   * events describe has been saved elsewhere, so events waiting in sync() are treated as durable.
+   *
+   * @throws IOException If the journal could not be truncated
+   */
+  public synchronized void reset() throws IOException {
+    // let any write in progress finish before truncating underneath it
+    while(this.syncing) {
+      try {
+        wait();
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting for rental journal");
+      }
+    }
+
+    this.channel.truncate(0);
+    this.channel.position(0);
+    this.channel.force(false);
+
+    this.pending.clear();
+    this.durable = this.appended;
+    this.size = 0;
+
+    notifyAll();
+  }
+
+  /**
+   * Writes any pending events and closes the journal
+   * @throws IOException If the journal could not be written or closed
+   */
+  public void close() throws IOException {
+    try {
+      sync();
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Applies the events in a journal file to media.  Media in the journal that isn't in the index
+   * is skipped.
+   *
+   * @param file The journal file to read
+   * @param index Index of the media to apply events to
+   * @param touched Index that each media changed by the journal is added to
+   * @return The number of events read
+   * @throws IOException If the journal could not be read
+   */
+  public static int replay(File file, MediaIdIndex index, MediaIdIndex touched) throws IOException {
+    int events = 0;
+
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      while(true) {
+        byte type = in.readByte();
+        int id = in.readInt();
+        in.readLong();
+
+        events++;
+
+        Media item = index.get(id);
+
+        if(item != null) {
+          item.setRented(type == RENT);
+          touched.put(item);
+        }
+      }
+    } catch(EOFException e) {
+      // end of the journal, or an incomplete event that will be discarded when it is next opened
+    }
+
+    return events;
+  }
+}
@@ -0,0 +1,62 @@
+package mediarental;
+
+/**
+ * The result of renting several Media at once: the fee for each rented item and the total.
+ */
+public class RentalReceipt {
+  // ids of the rented media, and the fee for each at the same position
+  private int[] ids;
+  private double[] fees;
+
+  // sum of all fees
+  private double total;
+
+  /**
+   * Creates a new RentalReceipt
+   * @param ids The ids of the rented media
+   * @param fees The fee for each rented media, in the same order as the ids
+   */
+  public RentalReceipt(int[] ids, double[] fees) {
+    this.ids = ids.clone();
+    this.fees = fees.clone();
+    this.total = 0;
+
+    for(double fee: fees) {
+      this.total += fee;
+    }
+  }
+
+  /**
+   * Gets the number of items rented
+   * @return The number of items
+   */
+  public int size() {
+    return this.ids.length;
+  }
+
+  /**
+   * Gets the id of a rented item
+   * @param index The position of the item in the receipt
+   * @return The id of the item
+   */
+  public int getId(int index) {
+    return this.ids[index];
+  }
+
+  /**
+   * Gets the rental fee of a rented item
+   * @param index The position of the item in the receipt
+   * @return The rental fee of the item
+   */
+  public double getFee(int index) {
+    return this.fees[index];
+  }
+
+  /**
+   * Gets the total rental fee for all items
+   * @return The total rental fee
+   */
+  public double getTotal() {
+    return this.total;
+  }
+}
@@ -0,0 +1,313 @@
+package mediarental;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of the ids of rented media, in the style of a roaring bitmap.  Ids are split into
+ * chunks by their upper 16 bits, and the lower 16 bits of the ids in each chunk are kept either as a
+ * sorted array, while the chunk has few ids, or as a 65536 bit bitmap once it has many.  Sparse and
+ * dense rentals both take little memory, and membership tests need one binary search of the chunks
+ * plus either a binary search or a single bit test.
+ *
+ * Methods are synchronized so rentals from multiple threads can update the set at once.
+ */
+public class RentedIdSet {
+  // a chunk switches from an array to a bitmap when it grows past this many ids, where both use 8KB
+  private static final int ARRAY_LIMIT = 4096;
+
+  // words in a chunk bitmap, one bit for each of the 65536 low values
+  private static final int BITMAP_WORDS = 1024;
+
+  // upper 16 bits of the ids in each chunk, sorted, for the first chunkCount entries
+  private int[] keys;
+
+  // low 16 bits of the ids in each chunk: a sorted array, or null if the chunk is a bitmap
+  private char[][] arrays;
+
+  // bitmap of the low 16 bits of the ids in each chunk, or null if the chunk is an array
+  private long[][] bitmaps;
+
+  // number of ids in each chunk
+  private int[] counts;
+
+  // number of chunks in use
+  private int chunkCount;
+
+  // total number of ids in the set
+  private int size;
+
+  /**
+   * Creates a new, empty RentedIdSet
+   */
+  public RentedIdSet() {
+    clear();
+  }
+
+  /**
+   * Removes every id from the set
+   */
+  public synchronized void clear() {
+    this.keys = new int[4];
+    this.arrays = new char[4][];
+    this.bitmaps = new long[4][];
+    this.counts = new int[4];
+    this.chunkCount = 0;
+    this.size = 0;
+  }
+
+  /**
+   * Gets the number of ids in the set
+   * @return The number of ids
+   */
+  public synchronized int size() {
+    return this.size;
+  }
+
+  /**
+   * Checks if an id is in the set
+   * @param id The id to check
+   * @return true if the id is in the set
+   */
+  public synchronized boolean contains(int id) {
+    int chunk = findChunk(id >>> 16);
+
+    if(chunk < 0) {
+      return false;
+    }
+
+    char low = (char) id;
+
+    if(this.bitmaps[chunk] != null) {
+      return (this.bitmaps[chunk][low >>> 6] & (1L << low)) != 0;
+    }
+
+    return Arrays.binarySearch(this.arrays[chunk], 0, this.counts[chunk], low) >= 0;
+  }
+
+  /**
+   * Adds an id to the set
+   * @param id The id to add
+   * @return true if the id was added, false if it was already in the set
+   */
+  public synchronized boolean add(int id) {
+    int chunk = findChunk(id >>> 16);
+
+    if(chunk < 0) {
+      chunk = insertChunk(-(chunk + 1), id >>> 16);
+    }
+
+    char low = (char) id;
+
+    if(this.bitmaps[chunk] != null) {
+      long[] bitmap = this.bitmaps[chunk];
+
+      if((bitmap[low >>> 6] & (1L << low)) != 0) {
+        return false;
+      }
+
+      bitmap[low >>> 6] |= (1L << low);
+    } else {
+      char[] array = this.arrays[chunk];
+      int count = this.counts[chunk];
+      int position = Arrays.binarySearch(array, 0, count, low);
+
+      if(position >= 0) {
+        return false;
+      }
+
+      if(count == ARRAY_LIMIT) {
+        toBitmap(chunk);
+        this.bitmaps[chunk][low >>> 6] |= (1L << low);
+      } else {
+        position = -(position + 1);
+
+        if(count == array.length) {
+          array = Arrays.copyOf(array, Math.min(array.length * 2, ARRAY_LIMIT));
+          this.arrays[chunk] = array;
+        }
+
+        System.arraycopy(array, position, array, position + 1, count - position);
+        array[position] = low;
+      }
+    }
+
+    this.counts[chunk]++;
+    this.size++;
+
+    return true;
+  }
+
+  /**
+   * Removes an id from the set
+   * @param id The id to remove
+   * @return true if the id was removed, false if it wasn't in the set
+   */
+  public synchronized boolean remove(int id) {
+    int chunk = findChunk(id >>> 16);
+
+    if(chunk < 0) {
+      return false;
+    }
+
+    char low = (char) id;
+
+    if(this.bitmaps[chunk] != null) {
+      long[] bitmap = this.bitmaps[chunk];
+
+      if((bitmap[low >>> 6] & (1L << low)) == 0) {
+        return false;
+      }
+
+      bitmap[low >>> 6] &= ~(1L << low);
+    } else {
+      char[] array = this.arrays[chunk];
+      int count = this.counts[chunk];
+      int position = Arrays.binarySearch(array, 0, count, low);
+
+      if(position < 0) {
+        return false;
+      }
+
+      System.arraycopy(array, position + 1, array, position, count - position - 1);
+    }
+
+    this.counts[chunk]--;
+    this.size--;
+
+    if(this.counts[chunk] == 0) {
+      removeChunk(chunk);
+    } else if(this.bitmaps[chunk] != null && this.counts[chunk] <= ARRAY_LIMIT / 2) {
+      // switch back well below the limit so a chunk near it doesn't keep switching
+      toArray(chunk);
+    }
+
+    return true;
+  }
+
+  /**
+   * Gets every id in the set
+   * @return The ids, in increasing order of their unsigned value
+   */
+  public synchronized int[] toArray() {
+    int[] ids = new int[this.size];
+    int n = 0;
+
+    for(int chunk = 0; chunk < this.chunkCount; chunk++) {
+      int high = this.keys[chunk] << 16;
+
+      if(this.bitmaps[chunk] != null) {
+        long[] bitmap = this.bitmaps[chunk];
+
+        for(int word = 0; word < BITMAP_WORDS; word++) {
+          long bits = bitmap[word];
+
+          while(bits != 0) {
+            ids[n++] = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+          }
+        }
+      } else {
+        char[] array = this.arrays[chunk];
+
+        for(int i = 0; i < this.counts[chunk]; i++) {
+          ids[n++] = high | array[i];
+        }
+      }
+    }
+
+    return ids;
+  }
+
+  /**
+   * Finds the chunk for the given upper 16 bits of an id
+   * @param key The upper 16 bits
+   * @return The index of the chunk, or -(insertion point + 1) if there is no chunk for the key
+   */
+  private int findChunk(int key) {
+    return Arrays.binarySearch(this.keys, 0, this.chunkCount, key);
+  }
+
+  /**
+   * Inserts a new, empty array chunk
+   * @param chunk The index to insert the chunk at
+   * @param key The upper 16 bits of the ids in the chunk
+   * @return The index of the new chunk
+   */
+  private int insertChunk(int chunk, int key) {
+    if(this.chunkCount == this.keys.length) {
+      int capacity = this.keys.length * 2;
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.arrays = Arrays.copyOf(this.arrays, capacity);
+      this.bitmaps = Arrays.copyOf(this.bitmaps, capacity);
+      this.counts = Arrays.copyOf(this.counts, capacity);
+    }
+
+    int moved = this.chunkCount - chunk;
+    System.arraycopy(this.keys, chunk, this.keys, chunk + 1, moved);
+    System.arraycopy(this.arrays, chunk, this.arrays, chunk + 1, moved);
+    System.arraycopy(this.bitmaps, chunk, this.bitmaps, chunk + 1, moved);
+    System.arraycopy(this.counts, chunk, this.counts, chunk + 1, moved);
+
+    this.keys[chunk] = key;
+    this.arrays[chunk] = new char[4];
+    this.bitmaps[chunk] = null;
+    this.counts[chunk] = 0;
+    this.chunkCount++;
+
+    return chunk;
+  }
+
+  /**
+   * Removes an empty chunk
+   * @param chunk The index of the chunk
+   */
+  private void removeChunk(int chunk) {
+    int moved = this.chunkCount - chunk - 1;
+    System.arraycopy(this.keys, chunk + 1, this.keys, chunk, moved);
+    System.arraycopy(this.arrays, chunk + 1, this.arrays, chunk, moved);
+    System.arraycopy(this.bitmaps, chunk + 1, this.bitmaps, chunk, moved);
+    System.arraycopy(this.counts, chunk + 1, this.counts, chunk, moved);
+
+    this.chunkCount--;
+    this.arrays[this.chunkCount] = null;
+    this.bitmaps[this.chunkCount] = null;
+  }
+
+  /**
+   * Converts an array chunk to a bitmap
+   * @param chunk The index of the chunk
+   */
+  private void toBitmap(int chunk) {
+    long[] bitmap = new long[BITMAP_WORDS];
+    char[] array = this.arrays[chunk];
+
+    for(int i = 0; i < this.counts[chunk]; i++) {
+      bitmap[array[i] >>> 6] |= (1L << array[i]);
+    }
+
+    this.bitmaps[chunk] = bitmap;
+    this.arrays[chunk] = null;
+  }
+
+  /**
+   * Converts a bitmap chunk to an array
+   * @param chunk The index of the chunk
+   */
+  private void toArray(int chunk) {
+    char[] array = new char[ARRAY_LIMIT];
+    long[] bitmap = this.bitmaps[chunk];
+    int n = 0;
+
+    for(int word = 0; word < BITMAP_WORDS; word++) {
+      long bits = bitmap[word];
+
+      while(bits != 0) {
+        array[n++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+        bits &= bits - 1;
+      }
+    }
+
+    this.arrays[chunk] = array;
+    this.bitmaps[chunk] = null;
+  }
+}
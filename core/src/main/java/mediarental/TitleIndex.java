@@ -0,0 +1,373 @@
+package mediarental;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Inverted gram index over Media titles.  Every 1, 2 and 3 character sequence of a lower cased 
+ * title maps to a posting list of the ids of Media whose title contains it, so a substring search 
+ * only needs to check the Media found in the shortest posting list for the query's trigrams.  
+ * Queries of 1 or 2 characters are looked up directly, so even a single keystroke doesn't check 
+ * every title.
+ */
+public class TitleIndex {
+  // length of the longest character sequences that are indexed
+  private static final int GRAM_LENGTH = 3;
+
+  // initial number of slots in the gram table, must be a power of two
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // initial length of a new posting list
+  private static final int INITIAL_POSTINGS = 4;
+
+  // returned by shortestPostings() when a gram of the query is in no title
+  private static final int NO_POSTINGS = -2;
+
+  // packed grams and their posting lists stored at matching slots, an empty slot has null postings
+  private long[] grams;
+  private int[][] postings;
+  private int[] postingSizes;
+
+  // number of distinct grams in the index
+  private int size;
+
+  /**
+   * Creates a new, empty TitleIndex
+   */
+  public TitleIndex() {
+    this.grams = new long[INITIAL_CAPACITY];
+    this.postings = new int[INITIAL_CAPACITY][];
+    this.postingSizes = new int[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Adds the title of the given Media to the index
+   * @param item The Media to index
+   */
+  public void add(Media item) {
+    String title = item.getTitle().toLowerCase();
+    int id = item.getId();
+
+    for(int i = 0; i < title.length(); i++) {
+      for(int length = 1; length <= GRAM_LENGTH && i + length <= title.length(); length++) {
+        post(slot(gram(title, i, length), true), id);
+      }
+    }
+  }
+
+  /**
+   * Adds an id to the end of the posting list in a slot
+   * @param slot The slot of the gram
+   * @param id The id of the Media whose title has the gram
+   */
+  private void post(int slot, int id) {
+    int length = this.postingSizes[slot];
+    int[] ids = this.postings[slot];
+
+    // a gram repeated within the same title only needs to be posted once
+    if(length > 0 && ids[length - 1] == id) {
+      return;
+    }
+
+    if(length == ids.length) {
+      ids = Arrays.copyOf(ids, length * 2);
+      this.postings[slot] = ids;
+    }
+
+    ids[length] = id;
+    this.postingSizes[slot] = length + 1;
+  }
+
+  /**
+   * Removes the title of the given Media from the index.  The Media must still have the title it
+   * had when it was added.
+   * @param item The Media to remove
+   */
+  public void remove(Media item) {
+    String title = item.getTitle().toLowerCase();
+    int id = item.getId();
+
+    for(int i = 0; i < title.length(); i++) {
+      for(int length = 1; length <= GRAM_LENGTH && i + length <= title.length(); length++) {
+        int slot = slot(gram(title, i, length), false);
+
+        if(slot >= 0) {
+          unpost(slot, id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes an id from the posting list in a slot, if it is there
+   * @param slot The slot of the gram
+   * @param id The id of the Media whose title had the gram
+   */
+  private void unpost(int slot, int id) {
+    int length = this.postingSizes[slot];
+    int[] ids = this.postings[slot];
+
+    for(int j = 0; j < length; j++) {
+      if(ids[j] == id) {
+        // shift the rest down so postings stay in insertion order
+        System.arraycopy(ids, j + 1, ids, j, length - j - 1);
+        this.postingSizes[slot] = length - 1;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Gets the ids of Media that may have a title containing the given query.  Every Media whose
+   * lower cased title contains the query is included, but candidates must still be checked since
+   * having all of the query's grams does not guarantee a match.  For queries of 1 or 2 characters 
+   * every candidate matches.
+   *
+   * @param query The lower cased text to search for
+   * @return The candidate ids in the order they were added, or null if the query is empty
+   */
+  public int[] candidates(String query) {
+    int best = shortestPostings(query);
+
+    if(best == NO_POSTINGS) {
+      return new int[0];
+    }
+
+    if(best < 0) {
+      return null;
+    }
+
+    return Arrays.copyOf(this.postings[best], this.postingSizes[best]);
+  }
+
+  /**
+   * Estimates how many candidates candidates() would return for a query, without copying them.  
+   * Used to decide whether the index is worth using.
+   *
+   * @param query The lower cased text to search for
+   * @return The number of candidates, or -1 if the query is empty
+   */
+  public int estimate(String query) {
+    int best = shortestPostings(query);
+
+    if(best == NO_POSTINGS) {
+      return 0;
+    }
+
+    return (best < 0 ? -1 : this.postingSizes[best]);
+  }
+
+  /**
+   * Finds the slot of the query gram with the fewest postings
+   * @param query The lower cased text to search for
+   * @return The slot, NO_POSTINGS if some gram of the query is in no title, or -1 if the query is 
+   *         empty
+   */
+  private int shortestPostings(String query) {
+    if(query.length() == 0) {
+      return -1;
+    }
+
+    // shorter queries are a gram themselves
+    int length = Math.min(query.length(), GRAM_LENGTH);
+    int best = -1;
+
+    for(int i = 0; i + length <= query.length(); i++) {
+      int slot = slot(gram(query, i, length), false);
+
+      // no title has this gram, so nothing can match
+      if(slot < 0 || this.postingSizes[slot] == 0) {
+        return NO_POSTINGS;
+      }
+
+      if(best < 0 || this.postingSizes[slot] < this.postingSizes[best]) {
+        best = slot;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Removes all titles from the index
+   */
+  public void clear() {
+    this.grams = new long[INITIAL_CAPACITY];
+    this.postings = new int[INITIAL_CAPACITY][];
+    this.postingSizes = new int[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Writes the index so it can be read back by read() without indexing every title again.  The
+   * gram table is written as it is: the number of slots and grams, every slot's gram, the length
+   * of every slot's posting list (-1 for an empty slot), then all of the postings in slot order.
+   *
+   * @param out The stream to write to
+   * @throws IOException If the index could not be written
+   */
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(this.grams.length);
+    out.writeInt(this.size);
+
+    for(long gram: this.grams) {
+      out.writeLong(gram);
+    }
+
+    for(int slot = 0; slot < this.postings.length; slot++) {
+      out.writeInt(this.postings[slot] == null ? -1 : this.postingSizes[slot]);
+    }
+
+    for(int slot = 0; slot < this.postings.length; slot++) {
+      for(int i = 0; i < this.postingSizes[slot]; i++) {
+        out.writeInt(this.postings[slot][i]);
+      }
+    }
+  }
+
+  /**
+   * Reads an index written by write(), using bulk reads of each part of the gram table
+   * @param buffer The buffer to read from, positioned at the start of the index
+   * @return The TitleIndex read
+   * @throws IOException If the buffer doesn't hold a complete index
+   */
+  public static TitleIndex read(ByteBuffer buffer) throws IOException {
+    int capacity = MediaSnapshot.getInt(buffer);
+    int size = MediaSnapshot.getInt(buffer);
+
+    if(capacity < INITIAL_CAPACITY || Integer.bitCount(capacity) != 1 || size < 0 || size * 2 > capacity) {
+      throw new IOException("Title index is damaged");
+    }
+
+    TitleIndex index = new TitleIndex();
+    index.grams = MediaSnapshot.getLongs(buffer, capacity);
+    index.postings = new int[capacity][];
+    index.postingSizes = MediaSnapshot.getInts(buffer, capacity);
+    index.size = size;
+
+    long total = 0;
+
+    for(int length: index.postingSizes) {
+      total += Math.max(length, 0);
+    }
+
+    if(total > buffer.remaining() / 4) {
+      throw new IOException("Title index is damaged");
+    }
+
+    int[] postings = MediaSnapshot.getInts(buffer, (int) total);
+    int position = 0;
+
+    for(int slot = 0; slot < capacity; slot++) {
+      int length = index.postingSizes[slot];
+
+      if(length < 0) {
+        index.postingSizes[slot] = 0;
+        continue;
+      }
+
+      // leave room to add more ids, like a new posting list
+      index.postings[slot] = Arrays.copyOfRange(postings, position, position + Math.max(length, INITIAL_POSTINGS));
+      position += length;
+    }
+
+    return index;
+  }
+
+  /**
+   * Finds the slot for a gram, optionally creating an empty posting list for it
+   * @param gram The packed gram
+   * @param create true to add the gram if it is not present
+   * @return The slot for the gram, or -1 if it is not present and create is false
+   */
+  private int slot(long gram, boolean create) {
+    int mask = this.grams.length - 1;
+    int slot = hash(gram) & mask;
+
+    while(this.postings[slot] != null) {
+      if(this.grams[slot] == gram) {
+        return slot;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    if(!create) {
+      return -1;
+    }
+
+    // keep the table at most half full, then find the slot again in the resized table
+    if((this.size + 1) * 2 > this.grams.length) {
+      resize(this.grams.length * 2);
+      return slot(gram, true);
+    }
+
+    this.grams[slot] = gram;
+    this.postings[slot] = new int[INITIAL_POSTINGS];
+    this.postingSizes[slot] = 0;
+    this.size++;
+
+    return slot;
+  }
+
+  /**
+   * Grows the gram table to the given number of slots and re-inserts all entries
+   * @param capacity The new number of slots, must be a power of two
+   */
+  private void resize(int capacity) {
+    long[] oldGrams = this.grams;
+    int[][] oldPostings = this.postings;
+    int[] oldSizes = this.postingSizes;
+
+    this.grams = new long[capacity];
+    this.postings = new int[capacity][];
+    this.postingSizes = new int[capacity];
+
+    int mask = capacity - 1;
+
+    for(int i = 0; i < oldPostings.length; i++) {
+      if(oldPostings[i] != null) {
+        int slot = hash(oldGrams[i]) & mask;
+
+        while(this.postings[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+
+        this.grams[slot] = oldGrams[i];
+        this.postings[slot] = oldPostings[i];
+        this.postingSizes[slot] = oldSizes[i];
+      }
+    }
+  }
+
+  /**
+   * Packs the gram starting at the given position into a long.  Each character takes 16 bits, and 
+   * the length is kept above them so grams of different lengths never pack the same.
+   * @param text The text to read the gram from
+   * @param start The position of the first character of the gram
+   * @param length The number of characters in the gram, 1 to GRAM_LENGTH
+   * @return The packed gram
+   */
+  private static long gram(String text, int start, int length) {
+    long gram = length;
+
+    for(int i = start; i < start + length; i++) {
+      gram = (gram << 16) | text.charAt(i);
+    }
+
+    return gram;
+  }
+
+  /**
+   * Spreads the bits of a packed gram across an int
+   * @param gram The packed gram
+   * @return The hash for the gram
+   */
+  private static int hash(long gram) {
+    long h = gram * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
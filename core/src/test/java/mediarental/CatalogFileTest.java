@@ -0,0 +1,101 @@
+package mediarental;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a CatalogFile discards the partial record an interrupted save leaves, and that loading a
+ * file that isn't a catalog leaves it as it is
+ */
+public class CatalogFileTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Reading a catalog cut off in its last record truncates the file to the last complete record, so
+   * the next save starts on a record boundary and reads back
+   * @throws Exception If the catalog could not be written or read
+   */
+  @Test
+  public void partialRecordIsTruncated() throws Exception {
+    File file = new File(this.folder.getRoot(), "media.catalog");
+
+    List<Media> items = new CatalogGenerator(6, 1, 1, 1).createCatalog(50);
+    CatalogFile catalog = new CatalogFile(file);
+    catalog.saveAll(items.subList(0, 49));
+    long complete = file.length();
+    catalog.saveAll(items.subList(49, 50));
+    catalog.close();
+
+    // cut the last record short, as a save interrupted part way would leave it
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 5), StandardOpenOption.TRUNCATE_EXISTING);
+
+    catalog = CatalogFile.open(file);
+    List<Media> read = catalog.readAll();
+    assertEquals(49, read.size());
+    assertEquals(complete, file.length());
+
+    Media added = new MovieDVD(1000, "added after", 2010, true, 700);
+    catalog.save(added);
+    catalog.close();
+
+    catalog = CatalogFile.open(file);
+    read = catalog.readAll();
+    catalog.close();
+
+    assertEquals(50, read.size());
+
+    for(int i = 0; i < 49; i++) {
+      assertTrue(read.get(i).getTitle(), items.get(i).hasSameValues(read.get(i)));
+    }
+
+    assertTrue(added.hasSameValues(read.get(49)));
+  }
+
+  /**
+   * Loading an empty file or a file that isn't a catalog fails, and doesn't write a catalog header
+   * into it
+   * @throws Exception If a file could not be written
+   */
+  @Test
+  public void notACatalogIsUnchanged() throws Exception {
+    File empty = this.folder.newFile("empty.catalog");
+    File text = this.folder.newFile("ebook-1.txt");
+    byte[] contents = "1,title,2000,false,3".getBytes("UTF-8");
+    Files.write(text.toPath(), contents);
+
+    for(File file: new File[] { empty, text }) {
+      try {
+        new Manager().load(file);
+        fail(file.getName() + " should not be loaded as a catalog");
+      } catch(FileNotFoundException e) {
+        // expected
+      }
+
+      try {
+        CatalogFile.open(file);
+        fail(file.getName() + " should not be opened as a catalog");
+      } catch(IOException e) {
+        // expected
+      }
+    }
+
+    assertEquals(0, empty.length());
+    assertArrayEquals(contents, Files.readAllBytes(text.toPath()));
+  }
+}
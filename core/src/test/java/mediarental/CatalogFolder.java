@@ -0,0 +1,43 @@
+package mediarental;
+
+import java.io.File;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Temporary folder holding a synthetic catalog directory, written before each test and deleted after
+ * it.  Used as a rule by tests that load a catalog.
+ */
+class CatalogFolder extends TemporaryFolder {
+  // number of media in the catalog
+  private int count;
+
+  private File directory;
+
+  /**
+   * Creates a CatalogFolder
+   * @param count The number of media in the catalog, with ids 1 to count
+   */
+  CatalogFolder(int count) {
+    this.count = count;
+  }
+
+  /**
+   * Creates the folder and writes the catalog
+   * @throws Throwable If the catalog could not be written
+   */
+  protected void before() throws Throwable {
+    super.before();
+
+    this.directory = newFolder("catalog");
+    TestCatalogs.write(this.directory, this.count);
+  }
+
+  /**
+   * Gets the catalog directory
+   * @return The directory
+   */
+  File getDirectory() {
+    return this.directory;
+  }
+}
@@ -0,0 +1,160 @@
+package mediarental;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Random;
+
+/**
+ * Generates synthetic media catalogs for tests and benchmarks, written in the "type-id.txt" directory 
+ * layout that Manager.load() reads.  Titles are made of words from a fixed list so searches for those 
+ * words find matches, while searches for text made of other letters find none.  It is only part of 
+ * the test sources, and reaches the benchmarks through the core test jar.
+ */
+public class CatalogGenerator {
+  // words titles are built from
+  private static final String[] WORDS = {
+    "amber", "bridge", "castle", "dawn", "echo", "forest", "garden", "harbor", "island", "journey",
+    "kingdom", "lantern", "meadow", "night", "ocean", "planet", "quiet", "river", "shadow", "thunder",
+    "union", "valley", "winter", "yellow", "zenith", "silver", "golden", "hidden", "broken", "distant"
+  };
+
+  // earliest year media is published
+  private static final int FIRST_YEAR = 1950;
+
+  // random source, seeded so catalogs can be reproduced
+  private Random random;
+
+  // relative number of each type of media to generate
+  private int ebookWeight;
+  private int musicWeight;
+  private int movieWeight;
+
+  // current year, so some media is published this year
+  private int currentYear;
+
+  /**
+   * Creates a new CatalogGenerator
+   * @param seed Seed for the random source
+   * @param ebookWeight Relative number of EBooks to generate
+   * @param musicWeight Relative number of MusicCDs to generate
+   * @param movieWeight Relative number of MovieDVDs to generate
+   */
+  public CatalogGenerator(long seed, int ebookWeight, int musicWeight, int movieWeight) {
+    if(ebookWeight < 0 || musicWeight < 0 || movieWeight < 0 || ebookWeight + musicWeight + movieWeight == 0) {
+      throw new IllegalArgumentException("Media type weights must be positive");
+    }
+
+    this.random = new Random(seed);
+    this.ebookWeight = ebookWeight;
+    this.musicWeight = musicWeight;
+    this.movieWeight = movieWeight;
+    this.currentYear = Calendar.getInstance().get(Calendar.YEAR);
+  }
+
+  /**
+   * Gets a word that appears in generated titles
+   * @param index Any number, used to pick the word
+   * @return A title word
+   */
+  public static String getWord(int index) {
+    return WORDS[Math.floorMod(index, WORDS.length)];
+  }
+
+  /**
+   * Creates a random Media with the given id
+   * @param id The id of the Media
+   * @return A new EBook, MusicCD or MovieDVD
+   */
+  public Media createMedia(int id) {
+    // titles are 2 to 4 words plus the id, so titles are unique
+    StringBuilder title = new StringBuilder();
+    int words = 2 + this.random.nextInt(3);
+
+    for(int i = 0; i < words; i++) {
+      title.append(WORDS[this.random.nextInt(WORDS.length)]).append(' ');
+    }
+
+    title.append(id);
+
+    int yearPublished = FIRST_YEAR + this.random.nextInt(this.currentYear - FIRST_YEAR + 1);
+    boolean rented = this.random.nextInt(10) == 0;
+    int pick = this.random.nextInt(this.ebookWeight + this.musicWeight + this.movieWeight);
+
+    if(pick < this.ebookWeight) {
+      return new EBook(id, title.toString(), yearPublished, rented, 1 + this.random.nextInt(60));
+    } else if(pick < this.ebookWeight + this.musicWeight) {
+      return new MusicCD(id, title.toString(), yearPublished, rented, 20 + this.random.nextInt(60));
+    } else {
+      return new MovieDVD(id, title.toString(), yearPublished, rented, 500 + this.random.nextInt(8000) / 3.0);
+    }
+  }
+
+  /**
+   * Creates a list of random Media with ids 1 to count
+   * @param count The number of Media to create
+   * @return An ArrayList of new Media
+   */
+  public ArrayList<Media> createCatalog(int count) {
+    ArrayList<Media> items = new ArrayList<Media>(count);
+
+    for(int id = 1; id <= count; id++) {
+      items.add(createMedia(id));
+    }
+
+    return items;
+  }
+
+  /**
+   * Writes random Media with ids 1 to count into a directory as "type-id.txt" files
+   * @param directory The directory to write to, created if it doesn't exist
+   * @param count The number of Media to write
+   * @throws IOException If the files could not be written
+   */
+  public void writeDirectory(File directory, int count) throws IOException {
+    if(!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create directory: " + directory.getAbsolutePath());
+    }
+
+    MediaDirectory out = new MediaDirectory(directory);
+
+    for(int id = 1; id <= count; id++) {
+      out.save(createMedia(id));
+    }
+  }
+
+  /**
+   * Writes a synthetic catalog directory.
+   * Usage: CatalogGenerator directory count [ebook:music:movie weights] [seed]
+   * @param args command line arguments
+   * @throws IOException If the catalog could not be written
+   */
+  public static void main(String[] args) throws IOException {
+    if(args.length < 2) {
+      System.err.println("Usage: CatalogGenerator directory count [ebook:music:movie] [seed]");
+      System.exit(1);
+    }
+
+    int[] weights = parseMix(args.length > 2 ? args[2] : "1:1:1");
+    long seed = (args.length > 3 ? Long.parseLong(args[3]) : 42);
+
+    CatalogGenerator generator = new CatalogGenerator(seed, weights[0], weights[1], weights[2]);
+    generator.writeDirectory(new File(args[0]), Integer.parseInt(args[1]));
+  }
+
+  /**
+   * Parses a media type mix in "ebook:music:movie" form
+   * @param mix The mix to parse
+   * @return The three weights
+   */
+  public static int[] parseMix(String mix) {
+    String[] parts = mix.split(":");
+
+    if(parts.length != 3) {
+      throw new IllegalArgumentException("Media mix must be in ebook:music:movie form: " + mix);
+    }
+
+    return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
+  }
+}
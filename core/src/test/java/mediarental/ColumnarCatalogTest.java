@@ -0,0 +1,113 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests that a Manager storing media in columns gives the same media, searches and rentals as one
+ * storing Media objects
+ */
+public class ColumnarCatalogTest {
+  // number of media in the catalog
+  private static final int MEDIA = 400;
+
+  @Rule
+  public CatalogFolder catalog = new CatalogFolder(MEDIA);
+
+  private Manager objects;
+  private Manager columns;
+
+  /**
+   * Loads the catalog both ways
+   * @throws Exception If the catalog could not be written or loaded
+   */
+  @Before
+  public void setUp() throws Exception {
+    File directory = this.catalog.getDirectory();
+
+    this.objects = new Manager();
+    this.objects.load(directory);
+
+    this.columns = new Manager();
+    this.columns.setColumnar(true);
+    this.columns.load(directory);
+  }
+
+  /**
+   * Every media has the same values in columns as loaded as an object
+   */
+  @Test
+  public void sameMedia() {
+    List<Media> expected = this.objects.getAllMedia();
+    List<Media> actual = this.columns.getAllMedia();
+
+    assertEquals(expected.size(), actual.size());
+
+    for(int i = 0; i < expected.size(); i++) {
+      assertSameMedia(expected.get(i), actual.get(i));
+    }
+  }
+
+  /**
+   * Searches find the same media, in the same order
+   */
+  @Test
+  public void sameSearches() {
+    String[] searches = { "amber", "FOREST", "ri", "qxj", "", "7" };
+
+    for(String search: searches) {
+      List<Media> expected = this.objects.find(search);
+      List<Media> actual = this.columns.find(search);
+
+      assertEquals(search, expected.size(), actual.size());
+
+      for(int i = 0; i < expected.size(); i++) {
+        assertEquals(search, expected.get(i).getId(), actual.get(i).getId());
+      }
+    }
+  }
+
+  /**
+   * Renting and returning media stored in columns changes its rented flag and fee like an object's
+   * @throws Exception If a rental fails
+   */
+  @Test
+  public void rentAndReturn() throws Exception {
+    int id = this.objects.getAvailableMedia().get(0).getId();
+
+    assertEquals(this.objects.rent(id), this.columns.rent(id), 0);
+    assertTrue(this.columns.getById(id).isRented());
+    assertFalse(this.columns.isAvailable(id));
+
+    this.columns.returnMedia(id);
+    assertFalse(this.columns.getById(id).isRented());
+    assertEquals(this.objects.getAvailableCount() + 1, this.columns.getAvailableCount());
+
+    this.objects.returnMedia(id);
+    this.objects.close();
+    this.columns.close();
+  }
+
+  /**
+   * Checks that two media have the same values
+   * @param expected The media loaded as an object
+   * @param actual The media stored in columns
+   */
+  private static void assertSameMedia(Media expected, Media actual) {
+    assertEquals(expected.getType(), actual.getType());
+    assertEquals(expected.getId(), actual.getId());
+    assertEquals(expected.getTitle(), actual.getTitle());
+    assertEquals(expected.getYearPublished(), actual.getYearPublished());
+    assertEquals(expected.isRented(), actual.isRented());
+    assertEquals(expected.getTypeAttribute(), actual.getTypeAttribute(), 0);
+    assertEquals(expected.getAdditionalInfo(), actual.getAdditionalInfo());
+  }
+}
@@ -0,0 +1,305 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Stress tests of ConcurrentManager with many threads renting and returning the same media at once.
+ * Each rent() must succeed for exactly one thread, and the rented flag of each media must agree with
+ * the manager's set of rented ids once the threads are done.
+ */
+public class ConcurrentManagerStressTest {
+  // number of threads renting at once
+  private static final int THREADS = 8;
+
+  // number of media in the catalog
+  private static final int MEDIA = 500;
+
+  // number of media every thread rents and returns over and over
+  private static final int CONTENDED = 16;
+
+  // times each thread tries to rent each contended media
+  private static final int ROUNDS = 200;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+  private ConcurrentManager manager;
+  private ExecutorService threads;
+
+  /**
+   * Generates a catalog and loads it
+   * @throws Exception If the catalog could not be written or loaded
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = this.folder.newFolder("catalog");
+    new CatalogGenerator(7, 1, 1, 1).writeDirectory(this.directory, MEDIA);
+
+    this.manager = new ConcurrentManager();
+    this.manager.load(this.directory);
+    this.threads = Executors.newFixedThreadPool(THREADS);
+  }
+
+  /**
+   * Stops the threads and closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @After
+  public void tearDown() throws Exception {
+    this.threads.shutdownNow();
+    this.manager.close();
+  }
+
+  /**
+   * Every thread tries to rent every available media, each in its own order.  Each media must be
+   * rented by exactly one thread, and be rented afterwards, in memory and once loaded again.
+   * @throws Exception If a thread fails other than by finding the media already rented
+   */
+  @Test
+  public void eachMediaIsRentedExactlyOnce() throws Exception {
+    final List<Integer> available = new ArrayList<Integer>();
+
+    for(Media item: this.manager.getAvailableMedia()) {
+      available.add(item.getId());
+    }
+
+    int rentedBefore = this.manager.getRentedCount();
+    final AtomicIntegerArray rents = new AtomicIntegerArray(available.size());
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+
+    for(int t = 0; t < THREADS; t++) {
+      final Random random = new Random(t);
+
+      results.add(this.threads.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          List<Integer> order = new ArrayList<Integer>();
+
+          for(int i = 0; i < available.size(); i++) {
+            order.add(i);
+          }
+
+          Collections.shuffle(order, random);
+          start.await();
+
+          for(int i: order) {
+            try {
+              manager.rent(available.get(i));
+              rents.incrementAndGet(i);
+            } catch(MediaUpdateException e) {
+              // another thread rented it first
+            }
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    start.countDown();
+    waitFor(results);
+
+    for(int i = 0; i < available.size(); i++) {
+      assertEquals("successful rents of media " + available.get(i), 1, rents.get(i));
+    }
+
+    assertEquals(rentedBefore + available.size(), this.manager.getRentedCount());
+    assertRentedAgrees(this.manager);
+
+    // the rentals were journaled, so they are all there after loading again
+    this.manager.close();
+
+    Manager reloaded = new Manager();
+    reloaded.load(this.directory);
+
+    for(int id: available) {
+      assertTrue("media " + id + " rented after loading again", reloaded.getById(id).isRented());
+    }
+
+    assertRentedAgrees(reloaded);
+    reloaded.close();
+  }
+
+  /**
+   * Every thread rents and returns the same few media over and over.  Only one thread can hold a
+   * media at a time, so a thread's return of a media it rented must always succeed, and every
+   * media must be available once the threads are done.
+   * @throws Exception If a thread fails other than by finding the media already rented
+   */
+  @Test
+  public void rentAndReturnOfTheSameMedia() throws Exception {
+    final List<Integer> contended = new ArrayList<Integer>();
+
+    for(Media item: this.manager.getAvailableMedia()) {
+      if(contended.size() < CONTENDED) {
+        contended.add(item.getId());
+      }
+    }
+
+    int rentedBefore = this.manager.getRentedCount();
+    final AtomicIntegerArray holders = new AtomicIntegerArray(contended.size());
+    final AtomicIntegerArray overlaps = new AtomicIntegerArray(contended.size());
+    final AtomicIntegerArray rents = new AtomicIntegerArray(contended.size());
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+
+    for(int t = 0; t < THREADS; t++) {
+      results.add(this.threads.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          start.await();
+
+          for(int round = 0; round < ROUNDS; round++) {
+            for(int i = 0; i < contended.size(); i++) {
+              int id = contended.get(i);
+
+              try {
+                manager.rent(id);
+              } catch(MediaUpdateException e) {
+                // held by another thread
+                continue;
+              }
+
+              rents.incrementAndGet(i);
+
+              if(holders.incrementAndGet(i) != 1) {
+                overlaps.incrementAndGet(i);
+              }
+
+              holders.decrementAndGet(i);
+
+              // no other thread can have returned it, since no other thread could rent it
+              manager.returnMedia(id);
+            }
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    start.countDown();
+    waitFor(results);
+
+    for(int i = 0; i < contended.size(); i++) {
+      int id = contended.get(i);
+
+      assertEquals("threads holding media " + id + " at once", 0, overlaps.get(i));
+      assertTrue("media " + id + " was never rented", rents.get(i) > 0);
+      assertTrue("media " + id + " available", this.manager.isAvailable(id));
+      assertFalse("media " + id + " rented flag", this.manager.getById(id).isRented());
+    }
+
+    assertEquals(rentedBefore, this.manager.getRentedCount());
+    assertRentedAgrees(this.manager);
+  }
+
+  /**
+   * Every thread rents its own share of the media while another thread keeps compacting the journal.
+   * Compaction waits for the rentals on every stripe of the lock, so no rental is cleared from the
+   * journal before it is saved, and every one is there once loaded again.
+   * @throws Exception If a rental fails
+   */
+  @Test
+  public void rentalsDuringCompaction() throws Exception {
+    final List<Integer> available = new ArrayList<Integer>();
+
+    for(Media item: this.manager.getAvailableMedia()) {
+      available.add(item.getId());
+    }
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(THREADS);
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+
+    for(int t = 0; t < THREADS; t++) {
+      final int first = t;
+
+      results.add(this.threads.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          start.await();
+
+          try {
+            for(int i = first; i < available.size(); i += THREADS) {
+              manager.rent(available.get(i));
+            }
+          } finally {
+            done.countDown();
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    start.countDown();
+
+    while(done.getCount() > 0) {
+      this.manager.compactJournal();
+    }
+
+    waitFor(results);
+    assertRentedAgrees(this.manager);
+    this.manager.close();
+
+    Manager reloaded = new Manager();
+    reloaded.load(this.directory);
+
+    for(int id: available) {
+      assertTrue("media " + id + " rented after loading again", reloaded.getById(id).isRented());
+    }
+
+    reloaded.close();
+  }
+
+  /**
+   * Waits for every thread to finish, rethrowing the first failure
+   * @param results The result of each thread
+   * @throws Exception If a thread failed or didn't finish in time
+   */
+  private static void waitFor(List<Future<Void>> results) throws Exception {
+    for(Future<Void> result: results) {
+      result.get(2, TimeUnit.MINUTES);
+    }
+  }
+
+  /**
+   * Checks that the rented flag of every media agrees with the manager's set of rented ids
+   * @param manager The manager to check
+   * @throws Exception If a media could not be found
+   */
+  private static void assertRentedAgrees(Manager manager) throws Exception {
+    int rented = 0;
+
+    for(Media item: manager.getAllMedia()) {
+      assertEquals("media " + item.getId() + " available", !item.isRented(), manager.isAvailable(item.getId()));
+
+      if(item.isRented()) {
+        rented++;
+      }
+    }
+
+    assertEquals(rented, manager.getRentedCount());
+  }
+}
@@ -0,0 +1,119 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a MappedCatalog shows the most recent record of each id, in id order, with the values
+ * last saved, and without the partial record an interrupted save leaves
+ */
+public class MappedCatalogTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Records saved again and out of id order are shown once each, in id order, with their last values,
+   * and ids can be found by binary search
+   * @throws Exception If the catalog could not be written or mapped
+   */
+  @Test
+  public void lastRecordOfEachIdInIdOrder() throws Exception {
+    File file = new File(this.folder.getRoot(), "media.catalog");
+
+    CatalogFile catalog = new CatalogFile(file);
+    catalog.save(new EBook(30, "third", 2001, false, 12));
+    catalog.save(new MovieDVD(-4, "negative", 1999, true, 4700.5));
+    catalog.save(new MusicCD(10, "first", 2002, false, 40));
+    catalog.save(new EBook(30, "third, edited", 2001, true, 13));
+    catalog.save(new MusicCD(10, "first, edited", 2003, false, 41));
+    catalog.close();
+
+    MappedCatalog mapped = new MappedCatalog(file);
+
+    assertEquals(3, mapped.size());
+    assertSameMedia(new MovieDVD(-4, "negative", 1999, true, 4700.5), mapped.get(0));
+    assertSameMedia(new MusicCD(10, "first, edited", 2003, false, 41), mapped.get(1));
+    assertSameMedia(new EBook(30, "third, edited", 2001, true, 13), mapped.get(2));
+
+    assertEquals(0, mapped.indexOfId(-4));
+    assertEquals(2, mapped.indexOfId(30));
+    assertTrue(mapped.indexOfId(11) < 0);
+    assertTrue(mapped.indexOfId(31) < 0);
+  }
+
+  /**
+   * A catalog cut off in the middle of its last record shows every complete record
+   * @throws Exception If the catalog could not be written or mapped
+   */
+  @Test
+  public void partialRecordIsIgnored() throws Exception {
+    File file = new File(this.folder.getRoot(), "media.catalog");
+
+    List<Media> items = new CatalogGenerator(6, 1, 1, 1).createCatalog(200);
+    CatalogFile catalog = new CatalogFile(file);
+    catalog.saveAll(items);
+    catalog.close();
+
+    // cut the last record short, as a save interrupted part way would leave it
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 5), StandardOpenOption.TRUNCATE_EXISTING);
+
+    MappedCatalog mapped = new MappedCatalog(file);
+    assertEquals(199, mapped.size());
+
+    for(int i = 0; i < mapped.size(); i++) {
+      assertSameMedia(items.get(i), mapped.get(i));
+    }
+  }
+
+  /**
+   * A file that isn't a catalog can't be mapped, and a mapped catalog can't be changed
+   * @throws Exception If a file could not be written
+   */
+  @Test
+  public void notACatalog() throws Exception {
+    File text = this.folder.newFile("ebook-1.txt");
+    Files.write(text.toPath(), "1,title,2000,false,3".getBytes("UTF-8"));
+
+    try {
+      new MappedCatalog(text);
+      fail("A media file should not be mapped as a catalog");
+    } catch(IOException e) {
+      // expected
+    }
+
+    File file = new File(this.folder.getRoot(), "media.catalog");
+
+    CatalogFile catalog = new CatalogFile(file);
+    catalog.save(new EBook(1, "one", 2000, false, 3));
+    catalog.close();
+
+    try {
+      new MappedCatalog(file).setRented(0, true);
+      fail("A mapped catalog should be read-only");
+    } catch(UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Checks that a record shows the values of a Media
+   * @param expected The Media saved
+   * @param actual The view of its record
+   */
+  private static void assertSameMedia(Media expected, Media actual) {
+    assertTrue(expected.getId() + ": " + actual.getTitle(), expected.hasSameValues(actual));
+  }
+}
@@ -0,0 +1,139 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that MediaDirectory saves replace media files whole, and leave the old file when they fail
+ */
+public class MediaDirectoryTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+  private MediaParser parser;
+
+  /**
+   * Creates an empty media directory
+   * @throws Exception If the directory could not be created
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = this.folder.newFolder("catalog");
+    this.parser = new MediaParser();
+  }
+
+  /**
+   * A saved media can be read back from its file, and no temporary file is left behind
+   * @throws Exception If the media could not be saved or read
+   */
+  @Test
+  public void saveWritesWholeFile() throws Exception {
+    MediaDirectory store = new MediaDirectory(this.directory);
+    MovieDVD movie = new MovieDVD(3, "harbor lights", 1999, true, 700.5);
+
+    store.save(movie);
+
+    Media saved = this.parser.parse(store.getFile(movie));
+    assertEquals("MovieDVD-3.txt", store.getFile(movie).getName());
+    assertEquals("harbor lights", saved.getTitle());
+    assertEquals(1999, saved.getYearPublished());
+    assertTrue(saved.isRented());
+    assertEquals(700.5, saved.getTypeAttribute(), 0);
+    assertNoTemporaryFiles();
+  }
+
+  /**
+   * Saving a shorter record replaces the file rather than writing over the start of it
+   * @throws Exception If the media could not be saved or read
+   */
+  @Test
+  public void saveReplacesLongerFile() throws Exception {
+    MediaDirectory store = new MediaDirectory(this.directory);
+    EBook book = new EBook(1, "a rather long title for a book", 2010, false, 12);
+
+    store.save(book);
+    book.setTitle("short");
+    store.save(book);
+
+    assertEquals("short", this.parser.parse(store.getFile(book)).getTitle());
+    assertEquals(1, this.directory.list().length);
+  }
+
+  /**
+   * Forced saves of a batch write every file, and syncing afterwards tolerates a deleted file
+   * @throws Exception If the media could not be saved or read
+   */
+  @Test
+  public void forcedSaveAll() throws Exception {
+    MediaDirectory store = new MediaDirectory(this.directory, true);
+    List<Media> items = new CatalogGenerator(3, 1, 1, 1).createCatalog(20);
+
+    store.saveAll(items);
+
+    for(Media item: items) {
+      assertEquals(item.getTitle(), this.parser.parse(store.getFile(item)).getTitle());
+    }
+
+    MediaDirectory unforced = new MediaDirectory(this.directory);
+    unforced.saveAll(items);
+    assertTrue(store.getFile(items.get(0)).delete());
+    unforced.sync();
+
+    assertNoTemporaryFiles();
+  }
+
+  /**
+   * A save that can't write its temporary file fails without touching the media file
+   * @throws Exception If the media could not be saved or read
+   */
+  @Test
+  public void failedSaveLeavesOldFile() throws Exception {
+    MediaDirectory store = new MediaDirectory(this.directory);
+    MusicCD music = new MusicCD(8, "river songs", 1985, false, 45);
+
+    store.save(music);
+
+    // a directory in the way of the temporary file makes the write fail
+    File blocked = new File(this.directory, "." + store.getFile(music).getName() + ".tmp");
+    assertTrue(blocked.mkdir());
+
+    music.setTitle("changed");
+
+    try {
+      store.save(music);
+      fail("Save should fail when its temporary file can't be written");
+    } catch(IOException e) {
+      // expected
+    }
+
+    assertEquals("river songs", this.parser.parse(store.getFile(music)).getTitle());
+  }
+
+  /**
+   * Checks that no temporary file is left in the directory
+   */
+  private void assertNoTemporaryFiles() {
+    List<String> temporary = new ArrayList<String>();
+
+    for(String name: this.directory.list()) {
+      if(name.endsWith(".tmp")) {
+        temporary.add(name);
+      }
+    }
+
+    assertFalse("temporary files left: " + temporary, temporary.size() > 0);
+  }
+}
@@ -0,0 +1,88 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that MediaIdIndex finds the same media as a HashMap through puts, replacements and removals,
+ * including removals that shift the rest of a probe cluster back, wrapping around the end of the table
+ */
+public class MediaIdIndexTest {
+  /**
+   * Random puts and removes over a few ids, so clusters are long and removals often shift entries,
+   * always leave every other id findable
+   */
+  @Test
+  public void matchesHashMap() {
+    Random random = new Random(3);
+    MediaIdIndex index = new MediaIdIndex();
+    Map<Integer, Media> expected = new HashMap<Integer, Media>();
+
+    for(int i = 0; i < 20000; i++) {
+      // negative and zero ids are valid keys too
+      int id = random.nextInt(300) - 20;
+
+      if(random.nextInt(3) == 0) {
+        assertSame(expected.remove(id), index.remove(id));
+      } else {
+        Media item = new EBook(id, "title " + i, 2000, false, 3);
+        assertSame(expected.put(id, item), index.put(item));
+      }
+
+      if(i % 97 == 0) {
+        assertSameContents(expected, index);
+      }
+    }
+
+    assertSameContents(expected, index);
+  }
+
+  /**
+   * Removing every id, in a different order than they were added, empties the index, and it can be
+   * filled again
+   */
+  @Test
+  public void removeAll() {
+    MediaIdIndex index = new MediaIdIndex();
+
+    for(int id = 0; id < 1000; id++) {
+      index.put(new EBook(id, "title", 2000, false, 3));
+    }
+
+    for(int id = 999; id >= 0; id -= 2) {
+      assertEquals(id, index.remove(id).getId());
+    }
+
+    for(int id = 0; id < 1000; id += 2) {
+      assertEquals(id, index.remove(id).getId());
+      assertNull(index.remove(id));
+    }
+
+    assertEquals(0, index.size());
+    assertEquals(0, index.values().size());
+
+    index.put(new EBook(5, "again", 2000, false, 3));
+    assertEquals("again", index.get(5).getTitle());
+  }
+
+  /**
+   * Checks that an index holds exactly the media of a map
+   * @param expected The media that should be indexed, by id
+   * @param index The index
+   */
+  private static void assertSameContents(Map<Integer, Media> expected, MediaIdIndex index) {
+    assertEquals(expected.size(), index.size());
+    assertEquals(expected.size(), index.values().size());
+
+    for(int id = -20; id < 280; id++) {
+      assertSame("id " + id, expected.get(id), index.get(id));
+    }
+  }
+}
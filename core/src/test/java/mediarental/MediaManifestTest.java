@@ -0,0 +1,109 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests that loading with a manifest only skips files that haven't changed since it was written
+ */
+public class MediaManifestTest {
+  // number of media in the catalog
+  private static final int MEDIA = 50;
+
+  // id of the media whose file is changed
+  private static final int CHANGED = 7;
+
+  @Rule
+  public CatalogFolder catalog = new CatalogFolder(MEDIA);
+
+  private File directory;
+  private Manager manager;
+
+  /**
+   * Creates a manager that loads the catalog with a manifest
+   */
+  @Before
+  public void setUp() {
+    this.directory = this.catalog.getDirectory();
+
+    this.manager = new Manager();
+    this.manager.setManifestEnabled(true);
+  }
+
+  /**
+   * A file with the size and modification time in the manifest isn't read again, so a change that
+   * keeps both isn't seen
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void unchangedFilesAreNotParsed() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    String title = TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle();
+
+    TestCatalogs.changeTitleUnnoticed(getFile(), title);
+
+    assertEquals(title, TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle());
+  }
+
+  /**
+   * A file whose modification time changed is parsed again
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void editedFilesAreParsedAgain() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    String title = TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle();
+
+    File file = getFile();
+    FileTime modified = Files.getLastModifiedTime(file.toPath());
+    String changed = TestCatalogs.changeTitleUnnoticed(file, title);
+    Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(modified.toMillis() + 1000));
+
+    assertEquals(changed, TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle());
+  }
+
+  /**
+   * Files modified just before the manifest was written are always parsed again, since a change in
+   * the same clock tick wouldn't change the modification time
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void recentlyModifiedFilesAreParsedAgain() throws Exception {
+    String title = TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle();
+    String changed = TestCatalogs.changeTitleUnnoticed(getFile(), title);
+
+    assertEquals(changed, TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle());
+  }
+
+  /**
+   * A damaged manifest is ignored, and every file is parsed
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void damagedManifestIsIgnored() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED);
+
+    Files.write(MediaManifest.getFile(this.directory).toPath(), new byte[] { 1, 2, 3 });
+
+    this.manager.load(this.directory);
+    assertEquals(MEDIA, this.manager.size());
+    this.manager.close();
+  }
+
+  /**
+   * Gets the file of the media that is changed
+   * @return The media file
+   * @throws Exception If the media isn't loaded
+   */
+  private File getFile() throws Exception {
+    return TestCatalogs.getFile(this.directory, this.manager.getById(CHANGED));
+  }
+}
@@ -0,0 +1,130 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that MediaParser reads media files the same as the comma-delimited constructors
+ */
+public class MediaParserTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+  private MediaParser parser;
+
+  /**
+   * Creates an empty media directory
+   * @throws Exception If the directory could not be created
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = this.folder.newFolder("catalog");
+    this.parser = new MediaParser();
+  }
+
+  /**
+   * Every type of media parses to the same values as its constructor gives
+   * @throws Exception If a file could not be written or parsed
+   */
+  @Test
+  public void parsesLikeConstructors() throws Exception {
+    List<Media> items = new CatalogGenerator(13, 1, 1, 1).createCatalog(300);
+    MediaDirectory store = new MediaDirectory(this.directory);
+    store.saveAll(items);
+
+    for(Media item: items) {
+      File file = store.getFile(item);
+      String data = TestCatalogs.read(file).trim();
+      Media parsed = this.parser.parse(file);
+      Media constructed = construct(item.getType(), data);
+
+      assertEquals(data, constructed.getType(), parsed.getType());
+      assertEquals(data, constructed.getId(), parsed.getId());
+      assertEquals(data, constructed.getTitle(), parsed.getTitle());
+      assertEquals(data, constructed.getYearPublished(), parsed.getYearPublished());
+      assertEquals(data, constructed.isRented(), parsed.isRented());
+      assertEquals(data, Double.doubleToLongBits(constructed.getTypeAttribute()),
+        Double.doubleToLongBits(parsed.getTypeAttribute()));
+    }
+  }
+
+  /**
+   * Doubles that don't fit the fast path are still parsed exactly
+   * @throws Exception If a file could not be written or parsed
+   */
+  @Test
+  public void parsesDoublesExactly() throws Exception {
+    String[] sizes = { "0.1", "746.3333333333334", "1e3", "123456789012345678901234567890.5", "-0.0" };
+
+    for(String size: sizes) {
+      File file = write("MovieDVD-1.txt", "1,film,2000,false," + size);
+      assertEquals(size, Double.parseDouble(size), this.parser.parse(file).getTypeAttribute(), 0);
+    }
+  }
+
+  /**
+   * Files that aren't media records are rejected
+   * @throws Exception If a file could not be written
+   */
+  @Test
+  public void rejectsMalformedFiles() throws Exception {
+    String[][] files = {
+      { "EBook-1.txt", "1,missing fields" },
+      { "EBook-2.txt", "two,title,2000,false,10" },
+      { "MusicCD-3.txt", "3,title,year,false,40" },
+      { "Unknown-4.txt", "4,title,2000,false,10" },
+      { "EBook-5.txt", "" }
+    };
+
+    for(String[] file: files) {
+      try {
+        this.parser.parse(write(file[0], file[1]));
+        fail("Parsed malformed file " + file[0] + ": " + file[1]);
+      } catch(MediaCreationException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Writes a media file
+   * @param name The file name
+   * @param data The contents of the file
+   * @return The file
+   * @throws Exception If the file could not be written
+   */
+  private File write(String name, String data) throws Exception {
+    File file = new File(this.directory, name);
+    Files.write(file.toPath(), data.getBytes(Charset.defaultCharset()));
+
+    return file;
+  }
+
+  /**
+   * Creates a media of a type with its comma-delimited constructor
+   * @param type The type of media
+   * @param data The comma-delimited fields
+   * @return The new media
+   * @throws MediaCreationException If the fields aren't valid
+   */
+  private static Media construct(MediaType type, String data) throws MediaCreationException {
+    if(type == MediaType.EBOOK) {
+      return new EBook(data);
+    } else if(type == MediaType.MUSIC_CD) {
+      return new MusicCD(data);
+    }
+
+    return new MovieDVD(data);
+  }
+}
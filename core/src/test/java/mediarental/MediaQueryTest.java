@@ -0,0 +1,159 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests that Manager.query() finds the same media as checking every media against the query, no
+ * matter which index the planner chooses
+ */
+public class MediaQueryTest {
+  // number of media in the catalog
+  private static final int MEDIA = 2000;
+
+  @Rule
+  public CatalogFolder catalog = new CatalogFolder(MEDIA);
+
+  private Manager manager;
+  private List<Media> all;
+
+  /**
+   * Loads the catalog and rents some of it
+   * @throws Exception If the catalog could not be written or loaded
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.manager = new Manager();
+    this.manager.load(this.catalog.getDirectory());
+
+    for(int id = 1; id <= MEDIA; id += 37) {
+      if(this.manager.isAvailable(id)) {
+        this.manager.rent(id);
+      }
+    }
+
+    this.all = this.manager.getAllMedia();
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @After
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+
+  /**
+   * Random queries give the same ids as a scan, with and without a limit
+   */
+  @Test
+  public void matchesScan() {
+    Random random = new Random(20);
+
+    for(int i = 0; i < 500; i++) {
+      MediaQuery query = randomQuery(random);
+      List<Integer> expected = scan(query);
+
+      assertEquals(query.toString(), expected, ids(this.manager.query(query, Integer.MAX_VALUE)));
+
+      int limit = 1 + random.nextInt(5);
+      List<Integer> limited = ids(this.manager.query(query, limit));
+      assertEquals(query.toString(), expected.subList(0, Math.min(limit, expected.size())), limited);
+    }
+  }
+
+  /**
+   * A query with no predicates gives every media
+   */
+  @Test
+  public void emptyQueryGivesEverything() {
+    assertEquals(MEDIA, this.manager.query(new MediaQuery(), Integer.MAX_VALUE).size());
+  }
+
+  /**
+   * Creates a query with a random set of predicates, taking values from the catalog so that most
+   * queries have matches
+   * @param random The random number generator
+   * @return The query
+   */
+  private MediaQuery randomQuery(Random random) {
+    MediaQuery query = new MediaQuery();
+    Media sample = this.all.get(random.nextInt(this.all.size()));
+
+    if(random.nextInt(8) == 0) {
+      query.setId(random.nextInt(10) == 0 ? MEDIA + 1 : sample.getId());
+    }
+
+    if(random.nextInt(3) == 0) {
+      String title = sample.getTitle();
+      int start = random.nextInt(title.length());
+      int end = Math.min(title.length(), start + 1 + random.nextInt(5));
+      query.setTitle(random.nextBoolean() ? title.substring(start, end) : title.substring(start, end).toUpperCase());
+    }
+
+    if(random.nextInt(3) == 0) {
+      query.setType(sample.getType());
+    }
+
+    if(random.nextInt(3) == 0) {
+      int year = sample.getYearPublished();
+      int spread = random.nextInt(10);
+      query.setYearRange(random.nextInt(4) == 0 ? MediaQuery.ANY : year - spread, year + spread);
+    }
+
+    if(random.nextInt(4) == 0) {
+      double attribute = sample.getTypeAttribute();
+      query.setAttributeRange(attribute / 2, attribute * 2);
+    }
+
+    if(random.nextInt(3) == 0) {
+      query.setRented(Boolean.valueOf(random.nextBoolean()));
+    }
+
+    return query;
+  }
+
+  /**
+   * Finds the ids of the media matching a query by checking every media
+   * @param query The query
+   * @return The matching ids, in increasing order
+   */
+  private List<Integer> scan(MediaQuery query) {
+    List<Integer> matches = new ArrayList<Integer>();
+
+    for(Media item: this.all) {
+      if(query.matches(item)) {
+        matches.add(item.getId());
+      }
+    }
+
+    Collections.sort(matches);
+
+    return matches;
+  }
+
+  /**
+   * Gets the ids of a list of media
+   * @param items The media
+   * @return The ids, in the order of the list
+   */
+  private static List<Integer> ids(List<Media> items) {
+    List<Integer> ids = new ArrayList<Integer>();
+
+    for(Media item: items) {
+      ids.add(item.getId());
+    }
+
+    return ids;
+  }
+}
@@ -0,0 +1,197 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests that a directory is only loaded from its snapshot while its media files are the ones the
+ * snapshot was written from
+ */
+public class MediaSnapshotTest {
+  // number of media in the catalog
+  private static final int MEDIA = 50;
+
+  // id of the media whose file is changed
+  private static final int CHANGED = 12;
+
+  @Rule
+  public CatalogFolder catalog = new CatalogFolder(MEDIA);
+
+  private File directory;
+  private Manager manager;
+
+  /**
+   * Creates a manager that loads the catalog from snapshots
+   */
+  @Before
+  public void setUp() {
+    this.directory = this.catalog.getDirectory();
+
+    this.manager = new Manager();
+    this.manager.setTitleIndexing(true);
+    this.manager.setSnapshotEnabled(true);
+  }
+
+  /**
+   * An unchanged directory is loaded from the snapshot, along with its title index, so a change that
+   * keeps the size and modification time of a file isn't seen
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void unchangedDirectoryIsLoadedFromSnapshot() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    String title = TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle();
+
+    assertNotNull(MediaSnapshot.read(this.directory));
+    TestCatalogs.changeTitleUnnoticed(getFile(), title);
+
+    this.manager.load(this.directory);
+    assertEquals(title, this.manager.getById(CHANGED).getTitle());
+    assertEquals(1, this.manager.find(title).size());
+    this.manager.close();
+  }
+
+  /**
+   * Editing a media file in place doesn't change the directory, but still makes the snapshot stale
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void fileEditedInPlaceMakesSnapshotStale() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    String title = TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle();
+
+    File file = getFile();
+    FileTime modified = Files.getLastModifiedTime(file.toPath());
+    String changed = TestCatalogs.changeTitleUnnoticed(file, title);
+    Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(modified.toMillis() + 1000));
+
+    assertNull(MediaSnapshot.read(this.directory));
+    assertEquals(changed, TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle());
+  }
+
+  /**
+   * A media file created after the snapshot was written makes it stale
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void newFileMakesSnapshotStale() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED);
+
+    new MediaDirectory(this.directory).save(new EBook(MEDIA + 1, "new arrival", 2001, false, 10));
+
+    assertNull(MediaSnapshot.read(this.directory));
+    this.manager.load(this.directory);
+    assertEquals(MEDIA + 1, this.manager.size());
+    this.manager.close();
+  }
+
+  /**
+   * A media file deleted after the snapshot was written makes it stale
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void deletedFileMakesSnapshotStale() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED);
+
+    Files.delete(getFile().toPath());
+
+    assertNull(MediaSnapshot.read(this.directory));
+    this.manager.load(this.directory);
+    assertEquals(MEDIA - 1, this.manager.size());
+    this.manager.close();
+  }
+
+  /**
+   * Files modified just before the snapshot was written are read again, since a change in the same
+   * clock tick wouldn't change the modification time; the snapshot is used while they still match
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void recentlyModifiedFilesAreReadAgain() throws Exception {
+    String title = TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle();
+
+    assertNotNull(MediaSnapshot.read(this.directory));
+
+    String changed = TestCatalogs.changeTitleUnnoticed(getFile(), title);
+    assertNull(MediaSnapshot.read(this.directory));
+    assertEquals(changed, TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED).getTitle());
+  }
+
+  /**
+   * Closing after a rental compacts the journal into the rented media's file just before the 
+   * snapshot is written, and the snapshot is still used by the next load
+   * @throws Exception If the catalog could not be loaded or the media rented
+   */
+  @Test
+  public void snapshotAfterRentalIsUsed() throws Exception {
+    TestCatalogs.backdate(this.directory);
+
+    this.manager.load(this.directory);
+    int id = this.manager.getAvailableMedia().get(0).getId();
+    this.manager.rent(id);
+    this.manager.close();
+
+    assertNotNull(MediaSnapshot.read(this.directory));
+
+    this.manager.load(this.directory);
+    assertFalse(this.manager.isAvailable(id));
+    assertEquals(MEDIA, this.manager.size());
+    this.manager.close();
+  }
+
+  /**
+   * Saving a media through the manager deletes the snapshot before the file changes
+   * @throws Exception If the catalog could not be loaded or saved
+   */
+  @Test
+  public void savingMediaDeletesSnapshot() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED);
+
+    this.manager.load(this.directory);
+    this.manager.setTitle(CHANGED, "retitled");
+
+    assertFalse(MediaSnapshot.getFile(this.directory).exists());
+    this.manager.close();
+  }
+
+  /**
+   * A damaged snapshot is ignored, and the directory is loaded from the files
+   * @throws Exception If the catalog could not be loaded
+   */
+  @Test
+  public void damagedSnapshotIsIgnored() throws Exception {
+    TestCatalogs.backdate(this.directory);
+    TestCatalogs.loadAndClose(this.manager, this.directory, CHANGED);
+
+    File snapshot = MediaSnapshot.getFile(this.directory);
+    byte[] bytes = Files.readAllBytes(snapshot.toPath());
+    Files.write(snapshot.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+    this.manager.load(this.directory);
+    assertEquals(MEDIA, this.manager.size());
+    this.manager.close();
+  }
+
+  /**
+   * Gets the file of the media that is changed
+   * @return The media file
+   * @throws Exception If the media isn't loaded
+   */
+  private File getFile() throws Exception {
+    return TestCatalogs.getFile(this.directory, this.manager.getById(CHANGED));
+  }
+}
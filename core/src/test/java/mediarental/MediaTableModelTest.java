@@ -0,0 +1,181 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that MediaTableModel only reports the rows that changed, and doesn't create a Media for every
+ * row of record backed lists
+ */
+public class MediaTableModelTest {
+  private MediaTableModel model;
+  private List<TableModelEvent> events;
+
+  /**
+   * ColumnarCatalog that counts the Media it creates
+   */
+  private static class CountingCatalog extends ColumnarCatalog {
+    private int views = 0;
+
+    CountingCatalog(List<Media> items) {
+      super(items);
+    }
+
+    public Media get(int index) {
+      this.views++;
+      return super.get(index);
+    }
+  }
+
+  /**
+   * Creates a model that records the events it fires
+   */
+  @Before
+  public void setUp() {
+    this.model = new MediaTableModel();
+    this.events = new ArrayList<TableModelEvent>();
+
+    this.model.addTableModelListener(new TableModelListener() {
+      public void tableChanged(TableModelEvent e) {
+        events.add(e);
+      }
+    });
+  }
+
+  /**
+   * Showing a list with one media rented since it was last shown only updates that row, even when the
+   * list is a new copy
+   */
+  @Test
+  public void rentalUpdatesOneRow() {
+    List<Media> items = new CatalogGenerator(3, 1, 1, 1).createCatalog(100);
+    this.model.setMedia(new ArrayList<Media>(items));
+    this.events.clear();
+
+    Media rented = items.get(40);
+    rented.setRented(!rented.isRented());
+    this.model.setMedia(new ArrayList<Media>(items));
+
+    assertEquals(1, this.events.size());
+    assertEvent(TableModelEvent.UPDATE, 40, 40, this.events.get(0));
+  }
+
+  /**
+   * Narrowing the list deletes the rows that are gone and updates the ones that differ
+   */
+  @Test
+  public void shorterListDeletesRows() {
+    List<Media> items = new CatalogGenerator(3, 1, 1, 1).createCatalog(100);
+    this.model.setMedia(items);
+    this.events.clear();
+
+    List<Media> fewer = new ArrayList<Media>(items.subList(0, 10));
+    fewer.add(items.get(99));
+    this.model.setMedia(fewer);
+
+    assertEquals(11, this.model.getRowCount());
+    assertEquals(1, this.events.size());
+    assertEvent(TableModelEvent.DELETE, 10, 98, this.events.get(0));
+  }
+
+  /**
+   * Showing a record backed list again after a rental compares records rather than creating a Media
+   * for each row, and only updates the rented row
+   */
+  @Test
+  public void recordsAreComparedWithoutViews() {
+    List<Media> items = new CatalogGenerator(5, 1, 1, 1).createCatalog(1000);
+    CountingCatalog catalog = new CountingCatalog(items);
+
+    this.model.setMedia(catalog);
+    this.events.clear();
+
+    int row = 700;
+    catalog.setRented(row, !catalog.isRented(row));
+    this.model.setMedia(catalog);
+
+    assertEquals(0, catalog.views);
+    assertEquals(1, this.events.size());
+    assertEvent(TableModelEvent.UPDATE, row, row, this.events.get(0));
+  }
+
+  /**
+   * A media updated in the background is found by id, whether or not the rows are in id order
+   */
+  @Test
+  public void mediaUpdatedFindsRowById() {
+    List<Media> items = new CatalogGenerator(7, 1, 1, 1).createCatalog(50);
+    this.model.setMedia(items);
+
+    assertEquals(23, this.model.indexOfId(items.get(23).getId()));
+    assertEquals(-1, this.model.indexOfId(-3));
+
+    // out of order, as rows are while loading
+    List<Media> loading = new ArrayList<Media>(items);
+    Media moved = loading.remove(2);
+    loading.add(moved);
+    this.model.setMedia(null);
+    this.model.addMedia(loading);
+    this.events.clear();
+
+    this.model.mediaUpdated(moved);
+
+    assertEquals(1, this.events.size());
+    assertEvent(TableModelEvent.UPDATE, 49, 49, this.events.get(0));
+  }
+
+  /**
+   * Media changed by others replace their row, new media are inserted in id order, and removed media
+   * delete their row, without changing the list the model was given
+   */
+  @Test
+  public void putAndRemoveRows() {
+    List<Media> items = new CatalogGenerator(9, 1, 1, 1).createCatalog(20);
+    List<Media> shown = new ArrayList<Media>(items);
+    Media gone = shown.remove(10);
+
+    this.model.setMedia(shown);
+    this.events.clear();
+
+    EBook changed = new EBook(items.get(3).getId(), "changed", 2001, true, 4);
+    this.model.putMedia(changed);
+    this.model.putMedia(gone);
+    this.model.removeMedia(items.get(0));
+
+    assertEquals(19, shown.size());
+    assertEquals(19, this.model.getRowCount());
+    assertEquals(changed, this.model.getMediaAt(2));
+    assertEquals(gone, this.model.getMediaAt(9));
+    assertEquals(true, this.model.getValueAt(2, 4));
+
+    assertEquals(3, this.events.size());
+    assertEvent(TableModelEvent.UPDATE, 3, 3, this.events.get(0));
+    assertEvent(TableModelEvent.INSERT, 10, 10, this.events.get(1));
+    assertEvent(TableModelEvent.DELETE, 0, 0, this.events.get(2));
+
+    // removing media that isn't shown changes nothing
+    this.model.removeMedia(new EBook(-1, "none", 2001, false, 1));
+    assertEquals(3, this.events.size());
+  }
+
+  /**
+   * Checks the type and rows of an event
+   * @param type The expected type
+   * @param first The expected first row
+   * @param last The expected last row
+   * @param event The event
+   */
+  private static void assertEvent(int type, int first, int last, TableModelEvent event) {
+    assertEquals(type, event.getType());
+    assertEquals(first, event.getFirstRow());
+    assertEquals(last, event.getLastRow());
+  }
+}
@@ -0,0 +1,185 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests that a Manager watching its directory picks up media files created, changed and deleted by
+ * someone else
+ */
+public class MediaWatcherTest {
+  // number of media in the catalog
+  private static final int MEDIA = 20;
+
+  // how long to wait for the watcher to apply a change, in seconds
+  private static final long TIMEOUT = 30;
+
+  @Rule
+  public CatalogFolder catalog = new CatalogFolder(MEDIA);
+
+  private File directory;
+  private Manager manager;
+
+  /**
+   * MediaChangeListener that waits for a media with a given id to be updated or removed
+   */
+  private static class WaitingListener implements MediaChangeListener {
+    private int id;
+    private boolean removal;
+    private CountDownLatch applied = new CountDownLatch(1);
+
+    /**
+     * Creates a WaitingListener
+     * @param id The id of the media to wait for
+     * @param removal true to wait for the media to be removed, false to wait for it to be updated
+     */
+    WaitingListener(int id, boolean removal) {
+      this.id = id;
+      this.removal = removal;
+    }
+
+    public void mediaChanged(List<Media> updated, List<Media> removed) {
+      for(Media item: (this.removal ? removed : updated)) {
+        if(item.getId() == this.id) {
+          this.applied.countDown();
+        }
+      }
+    }
+
+    /**
+     * Waits for the media to be updated or removed
+     * @return true if it was, false if waiting timed out
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean await() throws InterruptedException {
+      return this.applied.await(TIMEOUT, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Loads the catalog
+   * @throws Exception If the catalog could not be written or loaded
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = this.catalog.getDirectory();
+
+    this.manager = new Manager();
+    this.manager.load(this.directory);
+  }
+
+  /**
+   * Stops watching and closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @After
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+
+  /**
+   * A media file written by someone else is added to the manager
+   * @throws Exception If the file could not be written or the change wasn't applied
+   */
+  @Test
+  public void newFileIsAdded() throws Exception {
+    WaitingListener listener = new WaitingListener(MEDIA + 1, false);
+    this.manager.startWatching(listener);
+    assertTrue(this.manager.isWatching());
+
+    new MediaDirectory(this.directory).save(new EBook(MEDIA + 1, "window garden", 2004, false, 14));
+
+    assertTrue("new file wasn't applied", listener.await());
+    assertEquals("window garden", this.manager.getById(MEDIA + 1).getTitle());
+    assertEquals(MEDIA + 1, this.manager.size());
+  }
+
+  /**
+   * A changed media file updates the media in the manager
+   * @throws Exception If the file could not be written or the change wasn't applied
+   */
+  @Test
+  public void changedFileIsUpdated() throws Exception {
+    Media media = this.manager.getById(3);
+    WaitingListener listener = new WaitingListener(3, false);
+    this.manager.startWatching(listener);
+
+    // keep the type so the change replaces the same file
+    Media changed;
+
+    if(media.getType() == MediaType.EBOOK) {
+      changed = new EBook(3, "changed elsewhere", 1990, media.isRented(), 30);
+    } else if(media.getType() == MediaType.MUSIC_CD) {
+      changed = new MusicCD(3, "changed elsewhere", 1990, media.isRented(), 30);
+    } else {
+      changed = new MovieDVD(3, "changed elsewhere", 1990, media.isRented(), 30);
+    }
+
+    new MediaDirectory(this.directory).save(changed);
+
+    assertTrue("changed file wasn't applied", listener.await());
+    assertEquals("changed elsewhere", this.manager.getById(3).getTitle());
+    assertEquals(1, this.manager.find("changed elsewhere").size());
+  }
+
+  /**
+   * A deleted media file removes the media from the manager
+   * @throws Exception If the file could not be deleted or the change wasn't applied
+   */
+  @Test
+  public void deletedFileIsRemoved() throws Exception {
+    Media media = this.manager.getById(5);
+    WaitingListener listener = new WaitingListener(5, true);
+    this.manager.startWatching(listener);
+
+    assertTrue(TestCatalogs.getFile(this.directory, media).delete());
+
+    assertTrue("deleted file wasn't applied", listener.await());
+    assertEquals(MEDIA - 1, this.manager.size());
+
+    try {
+      this.manager.getById(5);
+      fail("Deleted media should not be found");
+    } catch(MediaNotFoundException e) {
+      // expected
+    }
+
+    // written again, it goes back between its neighbours
+    listener = new WaitingListener(5, false);
+    this.manager.startWatching(listener);
+    new MediaDirectory(this.directory).save(media);
+
+    assertTrue("new file wasn't applied", listener.await());
+    assertEquals(MEDIA, this.manager.size());
+
+    List<Media> all = this.manager.getAllMedia();
+
+    for(int i = 0; i < all.size(); i++) {
+      assertEquals(i + 1, all.get(i).getId());
+    }
+  }
+
+  /**
+   * Closing the manager stops watching
+   * @throws Exception If watching could not be started
+   */
+  @Test
+  public void closeStopsWatching() throws Exception {
+    this.manager.startWatching(null);
+    this.manager.close();
+
+    assertFalse(this.manager.isWatching());
+  }
+}
@@ -0,0 +1,337 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that saves queued by MediaWriteBehind are written and synced by flush() and close(), that
+ * the queue is bounded, and that a failed write is reported
+ */
+public class MediaWriteBehindTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * ConcurrentManager that keeps the watcher reporting changes to it, so a test can report changes 
+   * the same way
+   */
+  private static class WatchedManager extends ConcurrentManager {
+    private volatile MediaWatcher source;
+
+    // counted down when the watcher first reports a change
+    private CountDownLatch watching = new CountDownLatch(1);
+
+    protected void applyDirectoryChanges(MediaWatcher source, Collection<String> names, boolean overflow) {
+      this.source = source;
+      this.watching.countDown();
+      super.applyDirectoryChanges(source, names, overflow);
+    }
+  }
+
+  /**
+   * MediaStore that records what is written to it, and can hold the writer or fail its writes
+   */
+  private static class RecordingStore implements MediaStore {
+    // ids of the media written, in the order they were written
+    private List<Integer> written = new ArrayList<Integer>();
+
+    // number of times sync() was called
+    private int syncs = 0;
+
+    // writes wait for this to be opened
+    private CountDownLatch gate = new CountDownLatch(0);
+
+    // counted down when a write starts
+    private CountDownLatch writing = new CountDownLatch(1);
+
+    // true to fail every write
+    private boolean failing = false;
+
+    public void save(Media media) throws IOException {
+      List<Media> items = new ArrayList<Media>();
+      items.add(media);
+      saveAll(items);
+    }
+
+    public void saveAll(List<Media> items) throws IOException {
+      this.writing.countDown();
+
+      try {
+        this.gate.await();
+      } catch(InterruptedException e) {
+        throw new IOException("Interrupted");
+      }
+
+      if(this.failing) {
+        throw new IOException("disk full");
+      }
+
+      synchronized(this) {
+        for(Media item: items) {
+          this.written.add(item.getId());
+        }
+      }
+    }
+
+    public synchronized void sync() {
+      this.syncs++;
+    }
+
+    public void close() {
+    }
+
+    synchronized List<Integer> getWritten() {
+      return new ArrayList<Integer>(this.written);
+    }
+
+    synchronized int getSyncs() {
+      return this.syncs;
+    }
+  }
+
+  /**
+   * flush() returns once every save is written, then syncs the store
+   * @throws Exception If a save fails
+   */
+  @Test
+  public void flushWritesEverythingAndSyncs() throws Exception {
+    RecordingStore store = new RecordingStore();
+    MediaWriteBehind writes = new MediaWriteBehind(store, 1024);
+    List<Media> items = new CatalogGenerator(5, 1, 1, 1).createCatalog(600);
+
+    for(Media item: items) {
+      writes.save(item);
+    }
+
+    writes.flush();
+
+    assertEquals(items.size(), store.getWritten().size());
+    assertEquals(1, store.getSyncs());
+    assertEquals(0, writes.size());
+    writes.close();
+  }
+
+  /**
+   * Saves of a media still waiting to be written are written once
+   * @throws Exception If a save fails
+   */
+  @Test
+  public void savesOfTheSameMediaAreCombined() throws Exception {
+    RecordingStore store = new RecordingStore();
+    store.gate = new CountDownLatch(1);
+    MediaWriteBehind writes = new MediaWriteBehind(store, 8);
+
+    // the writer takes the first save and waits at the gate, the rest queue up behind it
+    writes.save(new EBook(1, "first", 2000, false, 3));
+    assertTrue(store.writing.await(10, TimeUnit.SECONDS));
+
+    EBook hot = new EBook(2, "hot", 2000, false, 3);
+
+    for(int i = 0; i < 100; i++) {
+      writes.save(hot);
+    }
+
+    assertEquals(1, writes.size());
+    store.gate.countDown();
+    writes.close();
+
+    assertEquals(2, store.getWritten().size());
+  }
+
+  /**
+   * A media is pending while it is queued and while it is being written, and not once it is written
+   * @throws Exception If a save fails
+   */
+  @Test
+  public void pendingUntilWritten() throws Exception {
+    RecordingStore store = new RecordingStore();
+    store.gate = new CountDownLatch(1);
+    MediaWriteBehind writes = new MediaWriteBehind(store, 8);
+
+    writes.save(new EBook(1, "being written", 2000, false, 3));
+    assertTrue(store.writing.await(10, TimeUnit.SECONDS));
+    writes.save(new EBook(2, "queued", 2000, false, 3));
+
+    assertTrue(writes.isPending(1));
+    assertTrue(writes.isPending(2));
+    assertFalse(writes.isPending(3));
+
+    store.gate.countDown();
+    writes.flush();
+
+    assertFalse(writes.isPending(1));
+    assertFalse(writes.isPending(2));
+    writes.close();
+  }
+
+  /**
+   * A manager watching its own directory keeps the values it has saved, rather than the older ones
+   * it sees in files that write-behind hasn't saved over yet
+   * @throws Exception If the catalog could not be loaded or saved
+   */
+  @Test
+  public void watcherKeepsQueuedValues() throws Exception {
+    File directory = this.folder.newFolder("catalog");
+    TestCatalogs.write(directory, 2000);
+
+    WatchedManager manager = new WatchedManager();
+    manager.setWriteBehind(true);
+    manager.load(directory);
+    manager.startWatching(null);
+
+    // any change tells the test which watcher to report changes as
+    new MediaDirectory(directory).save(new EBook(2001, "marker", 2004, false, 14));
+    assertTrue(manager.watching.await(30, TimeUnit.SECONDS));
+
+    Media media = manager.getById(4);
+
+    // queued behind the others, so its file still has the old title while the change is applied
+    for(int id = 2000; id >= 1; id--) {
+      manager.setTitle(id, "retitled " + id);
+    }
+
+    String name = TestCatalogs.getFile(directory, media).getName();
+    manager.applyDirectoryChanges(manager.source, Collections.singletonList(name), false);
+
+    assertSame(media, manager.getById(4));
+    assertEquals("retitled 4", manager.getById(4).getTitle());
+
+    manager.close();
+  }
+
+  /**
+   * Once the queue is full, saving another media waits until the writer makes room
+   * @throws Exception If a save fails
+   */
+  @Test
+  public void fullQueueWaitsForWriter() throws Exception {
+    final RecordingStore store = new RecordingStore();
+    store.gate = new CountDownLatch(1);
+    final MediaWriteBehind writes = new MediaWriteBehind(store, 2);
+
+    writes.save(new EBook(1, "one", 2000, false, 3));
+    assertTrue(store.writing.await(10, TimeUnit.SECONDS));
+    writes.save(new EBook(2, "two", 2000, false, 3));
+    writes.save(new EBook(3, "three", 2000, false, 3));
+
+    final CountDownLatch saved = new CountDownLatch(1);
+
+    Thread waiting = new Thread(new Runnable() {
+      public void run() {
+        try {
+          writes.save(new EBook(4, "four", 2000, false, 3));
+          saved.countDown();
+        } catch(IOException e) {
+          // the latch stays closed, failing the test
+        }
+      }
+    });
+    waiting.start();
+
+    assertFalse("save should wait while the queue is full", saved.await(200, TimeUnit.MILLISECONDS));
+
+    store.gate.countDown();
+    assertTrue(saved.await(10, TimeUnit.SECONDS));
+    writes.close();
+
+    assertEquals(4, store.getWritten().size());
+  }
+
+  /**
+   * close() writes everything still queued and syncs, after which nothing more can be saved
+   * @throws Exception If a save fails
+   */
+  @Test
+  public void closeWritesQueuedSaves() throws Exception {
+    RecordingStore store = new RecordingStore();
+    MediaWriteBehind writes = new MediaWriteBehind(store, 64);
+
+    for(Media item: new CatalogGenerator(9, 1, 1, 1).createCatalog(50)) {
+      writes.save(item);
+    }
+
+    writes.close();
+
+    assertEquals(50, store.getWritten().size());
+    assertEquals(1, store.getSyncs());
+
+    try {
+      writes.save(new EBook(99, "late", 2000, false, 3));
+      fail("Save after close should fail");
+    } catch(IOException e) {
+      // expected
+    }
+  }
+
+  /**
+   * A failed write is thrown by the next flush(), and every save after it fails
+   * @throws Exception If the store could not be set up
+   */
+  @Test
+  public void failedWriteIsReported() throws Exception {
+    RecordingStore store = new RecordingStore();
+    store.failing = true;
+    MediaWriteBehind writes = new MediaWriteBehind(store, 64);
+
+    writes.save(new EBook(1, "lost", 2000, false, 3));
+
+    try {
+      writes.flush();
+      fail("Flush should report the failed write");
+    } catch(IOException e) {
+      assertTrue(e.getMessage().contains("disk full"));
+    }
+
+    try {
+      writes.save(new EBook(2, "also lost", 2000, false, 3));
+      fail("Save after a failed write should fail");
+    } catch(IOException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Changes saved by a Manager with write-behind are in the files once it is closed
+   * @throws Exception If the catalog could not be loaded or saved
+   */
+  @Test
+  public void managerCloseWritesQueuedSaves() throws Exception {
+    File directory = this.folder.newFolder("catalog");
+    TestCatalogs.write(directory, 100);
+
+    Manager manager = new Manager();
+    manager.setWriteBehind(true);
+    manager.load(directory);
+
+    for(int id = 1; id <= 100; id++) {
+      manager.setTitle(id, "retitled " + id);
+    }
+
+    manager.close();
+
+    Manager reloaded = new Manager();
+    reloaded.load(directory);
+
+    for(int id = 1; id <= 100; id++) {
+      assertEquals("retitled " + id, reloaded.getById(id).getTitle());
+    }
+
+    reloaded.close();
+  }
+}
@@ -0,0 +1,144 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that compiled PricingRules give the fees of the rules they were compiled from, and that the
+ * default rules give exactly the fees of the original Media classes
+ */
+public class PricingRulesTest {
+  // the current year used for pricing
+  private static final int YEAR = 2024;
+
+  /**
+   * The default rules give the same bits as the original fee formulas, for media published this
+   * year, in the past and in the future
+   */
+  @Test
+  public void defaultRulesMatchBaselineFees() {
+    PricingRules rules = PricingRules.getDefault();
+
+    for(int year = YEAR - 60; year <= YEAR + 2; year++) {
+      for(int units = 0; units <= 400; units++) {
+        assertSameFee(baselineFee(MediaType.EBOOK, year, units),
+          rules.getFee(MediaType.EBOOK, year, units, YEAR));
+        assertSameFee(baselineFee(MediaType.MUSIC_CD, year, units),
+          rules.getFee(MediaType.MUSIC_CD, year, units, YEAR));
+      }
+
+      assertSameFee(baselineFee(MediaType.MOVIE_DVD, year, 4700.5),
+        rules.getFee(MediaType.MOVIE_DVD, year, 4700.5, YEAR));
+    }
+  }
+
+  /**
+   * Media priced through caculateRentalFee() use the default rules, including views of records
+   */
+  @Test
+  public void mediaUseDefaultRules() {
+    List<Media> items = new CatalogGenerator(16, 1, 1, 1).createCatalog(3000);
+    double[] fees = PricingRules.getDefault().calculateFees(items);
+    ColumnarCatalog columns = new ColumnarCatalog(items);
+
+    for(int i = 0; i < items.size(); i++) {
+      assertSameFee(fees[i], items.get(i).caculateRentalFee());
+      assertSameFee(fees[i], columns.get(i).caculateRentalFee());
+    }
+  }
+
+  /**
+   * Random sets of overlapping rules, for one type or all types, price every age the same as adding up
+   * the rules that apply
+   */
+  @Test
+  public void compiledRulesMatchEachRule() {
+    Random random = new Random(16);
+
+    for(int set = 0; set < 200; set++) {
+      List<PricingRule> list = new ArrayList<PricingRule>();
+      int count = 1 + random.nextInt(8);
+
+      for(int i = 0; i < count; i++) {
+        list.add(randomRule(random));
+      }
+
+      PricingRules rules = new PricingRules(list);
+
+      for(MediaType type: MediaType.values()) {
+        for(int age = -3; age <= 40; age++) {
+          double attribute = random.nextInt(200);
+          double expected = 0;
+
+          for(PricingRule rule: list) {
+            if(rule.appliesTo(type, age)) {
+              expected += rule.getFee() + rule.getRate() * attribute;
+            }
+          }
+
+          assertEquals(list + " " + type + " age " + age, expected,
+            rules.getFee(type, YEAR - age, attribute, YEAR), 1e-9);
+        }
+      }
+    }
+  }
+
+  /**
+   * A rule can't have a negative age other than ANY_AGE, or a minimum age after its maximum
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void backwardsAgesAreRejected() {
+    new PricingRule(MediaType.EBOOK, 5, 2, 1, 0);
+  }
+
+  /**
+   * Calculates a fee the way the Media classes did before pricing rules
+   * @param type The type of media
+   * @param year The year published
+   * @param attribute The chapters, length or size
+   * @return The fee
+   */
+  private static double baselineFee(MediaType type, int year, double attribute) {
+    if(type == MediaType.MOVIE_DVD) {
+      return 3.50;
+    }
+
+    double fee = (int) attribute * (type == MediaType.EBOOK ? 0.10 : 0.02);
+
+    if(YEAR == year) {
+      fee += 1.00;
+    }
+
+    return fee;
+  }
+
+  /**
+   * Creates a rule with a random type, age range, fee and rate
+   * @param random The random number generator
+   * @return The rule
+   */
+  private static PricingRule randomRule(Random random) {
+    MediaType type = (random.nextInt(3) == 0 ? null : MediaType.values()[random.nextInt(MediaType.values().length)]);
+    int minAge = (random.nextInt(3) == 0 ? PricingRule.ANY_AGE : random.nextInt(20));
+    int maxAge = (random.nextInt(3) == 0 ? PricingRule.ANY_AGE :
+      (minAge == PricingRule.ANY_AGE ? 0 : minAge) + random.nextInt(20));
+    double fee = (random.nextInt(4) - 1) * 0.75;
+    double rate = (random.nextInt(3) == 0 ? 0 : random.nextInt(5) * 0.01);
+
+    return new PricingRule(type, minAge, maxAge, fee, rate);
+  }
+
+  /**
+   * Checks that two fees are exactly the same double
+   * @param expected The expected fee
+   * @param actual The fee given
+   */
+  private static void assertSameFee(double expected, double actual) {
+    assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+  }
+}
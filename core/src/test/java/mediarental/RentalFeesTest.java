@@ -0,0 +1,71 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Tests that RentalFees caches the current year, and schedules its update for the moment the next
+ * year starts
+ */
+public class RentalFeesTest {
+  /**
+   * The cached year is the calendar's year, and media published in it are priced as new releases
+   */
+  @Test
+  public void currentYearIsCalendarYear() {
+    int year = RentalFees.getCurrentYear();
+
+    assertEquals(Calendar.getInstance().get(Calendar.YEAR), year);
+
+    double released = new EBook(1, "new", year, false, 10).caculateRentalFee();
+    double older = new EBook(2, "old", year - 1, false, 10).caculateRentalFee();
+    assertEquals(1.00, released - older, 1e-9);
+  }
+
+  /**
+   * The update is due at the start of the 1st of January after any time in the year, including its
+   * first and last moments, in the calendar's own time zone
+   */
+  @Test
+  public void nextYearStartsAtMidnight() {
+    TimeZone zone = TimeZone.getTimeZone("Pacific/Auckland");
+
+    assertNextYear(zone, 2023, Calendar.DECEMBER, 31, 23, 59, 59, 999);
+    assertNextYear(zone, 2024, Calendar.JANUARY, 1, 0, 0, 0, 0);
+    assertNextYear(zone, 2024, Calendar.FEBRUARY, 29, 12, 30, 0, 0);
+    assertNextYear(TimeZone.getTimeZone("UTC"), 2024, Calendar.JULY, 4, 8, 0, 0, 0);
+  }
+
+  /**
+   * Checks the time the year after a given time starts
+   * @param zone The time zone of the calendar
+   * @param year The year of the time
+   * @param month The month of the time
+   * @param day The day of the month
+   * @param hour The hour of the day
+   * @param minute The minute
+   * @param second The second
+   * @param millisecond The millisecond
+   */
+  private static void assertNextYear(TimeZone zone, int year, int month, int day, int hour, int minute,
+      int second, int millisecond) {
+    Calendar now = Calendar.getInstance(zone);
+    now.clear();
+    now.set(year, month, day, hour, minute, second);
+    now.set(Calendar.MILLISECOND, millisecond);
+    long time = now.getTimeInMillis();
+
+    Calendar expected = Calendar.getInstance(zone);
+    expected.clear();
+    expected.set(year + 1, Calendar.JANUARY, 1);
+
+    assertEquals(expected.getTime(), RentalFees.getNextYear(now));
+
+    // the calendar given isn't changed
+    assertEquals(time, now.getTimeInMillis());
+  }
+}
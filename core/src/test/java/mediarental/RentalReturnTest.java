@@ -0,0 +1,142 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests that returning media makes it available again, and that rentals and returns recorded in the
+ * rental journal survive a reload
+ */
+public class RentalReturnTest {
+  @Rule
+  public CatalogFolder catalog = new CatalogFolder(50);
+
+  private File directory;
+  private Manager manager;
+
+  /**
+   * Loads the catalog
+   * @throws Exception If the catalog could not be written or loaded
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = this.catalog.getDirectory();
+
+    this.manager = new Manager();
+    this.manager.load(this.directory);
+  }
+
+  /**
+   * Closes the manager
+   * @throws Exception If the manager could not be closed
+   */
+  @After
+  public void tearDown() throws Exception {
+    this.manager.close();
+  }
+
+  /**
+   * Renting then returning a media makes it available again
+   * @throws Exception If a rental fails
+   */
+  @Test
+  public void returnMakesAvailable() throws Exception {
+    int id = availableId(this.manager);
+    int available = this.manager.getAvailableCount();
+
+    this.manager.rent(id);
+    assertFalse(this.manager.isAvailable(id));
+    assertEquals(available - 1, this.manager.getAvailableCount());
+
+    this.manager.returnMedia(id);
+    assertTrue(this.manager.isAvailable(id));
+    assertFalse(this.manager.getById(id).isRented());
+    assertEquals(available, this.manager.getAvailableCount());
+  }
+
+  /**
+   * Returning media that isn't rented fails, and an unknown id isn't found
+   * @throws Exception If the media could not be found
+   */
+  @Test
+  public void returnOfAvailableMediaFails() throws Exception {
+    int id = availableId(this.manager);
+
+    try {
+      this.manager.returnMedia(id);
+      fail("Returning media that isn't rented should fail");
+    } catch(MediaUpdateException e) {
+      // expected
+    }
+
+    assertTrue(this.manager.isAvailable(id));
+
+    try {
+      this.manager.returnMedia(-5);
+      fail("Returning an unknown id should fail");
+    } catch(MediaNotFoundException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Rentals and returns are kept after closing and loading the directory again
+   * @throws Exception If a rental fails or the directory could not be loaded
+   */
+  @Test
+  public void reloadAfterClose() throws Exception {
+    int rented = availableId(this.manager);
+    this.manager.rent(rented);
+
+    int returned = availableId(this.manager);
+    this.manager.rent(returned);
+    this.manager.returnMedia(returned);
+
+    this.manager.close();
+    this.manager = new Manager();
+    this.manager.load(this.directory);
+
+    assertTrue(this.manager.getById(rented).isRented());
+    assertFalse(this.manager.getById(returned).isRented());
+  }
+
+  /**
+   * Rentals and returns are replayed from the journal by a load that happens before the manager
+   * that made them is closed
+   * @throws Exception If a rental fails or the directory could not be loaded
+   */
+  @Test
+  public void reloadReplaysJournal() throws Exception {
+    int rented = availableId(this.manager);
+    this.manager.rent(rented);
+
+    int returned = availableId(this.manager);
+    this.manager.rent(returned);
+    this.manager.returnMedia(returned);
+
+    Manager other = new Manager();
+    other.load(this.directory);
+
+    assertTrue(other.getById(rented).isRented());
+    assertFalse(other.getById(returned).isRented());
+    assertEquals(this.manager.getRentedCount(), other.getRentedCount());
+  }
+
+  /**
+   * Gets the id of the first available media
+   * @param manager The manager to look in
+   * @return The id
+   */
+  private static int availableId(Manager manager) {
+    return manager.getAvailableMedia().get(0).getId();
+  }
+}
@@ -0,0 +1,106 @@
+package mediarental;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Tests that RentedIdSet behaves like a sorted set of ids, in both array and bitmap chunks
+ */
+public class RentedIdSetTest {
+  /**
+   * Random adds and removes give the same set as a TreeSet, across chunks that switch between
+   * arrays and bitmaps
+   */
+  @Test
+  public void matchesTreeSet() {
+    RentedIdSet set = new RentedIdSet();
+    TreeSet<Integer> expected = new TreeSet<Integer>();
+    Random random = new Random(17);
+
+    for(int i = 0; i < 200000; i++) {
+      // mostly ids in the first few chunks so some become bitmaps, a few spread across all ids
+      int id = (random.nextInt(10) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(3 * 65536));
+
+      if(random.nextInt(3) == 0) {
+        assertEquals(expected.remove(id), set.remove(id));
+      } else {
+        assertEquals(expected.add(id), set.add(id));
+      }
+    }
+
+    assertEquals(expected.size(), set.size());
+    assertArrayEquals(toArray(expected), set.toArray());
+
+    for(int i = 0; i < 10000; i++) {
+      int id = random.nextInt(4 * 65536);
+      assertEquals(expected.contains(id), set.contains(id));
+    }
+  }
+
+  /**
+   * A chunk that fills up as a bitmap and empties again still holds the right ids
+   */
+  @Test
+  public void denseChunkEmptiesAgain() {
+    RentedIdSet set = new RentedIdSet();
+
+    for(int id = 0; id < 65536; id++) {
+      assertTrue(set.add(id));
+    }
+
+    assertEquals(65536, set.size());
+
+    for(int id = 0; id < 65536; id += 2) {
+      assertTrue(set.remove(id));
+    }
+
+    assertEquals(32768, set.size());
+    assertFalse(set.contains(0));
+    assertTrue(set.contains(1));
+
+    for(int id = 1; id < 65536; id += 2) {
+      assertTrue(set.remove(id));
+    }
+
+    assertEquals(0, set.size());
+    assertEquals(0, set.toArray().length);
+  }
+
+  /**
+   * clear() removes every id
+   */
+  @Test
+  public void clearRemovesEverything() {
+    RentedIdSet set = new RentedIdSet();
+    set.add(5);
+    set.add(70000);
+    set.clear();
+
+    assertEquals(0, set.size());
+    assertFalse(set.contains(5));
+    assertFalse(set.contains(70000));
+  }
+
+  /**
+   * Copies a set of ids to a sorted array
+   * @param ids The ids
+   * @return The ids in increasing order
+   */
+  private static int[] toArray(TreeSet<Integer> ids) {
+    int[] values = new int[ids.size()];
+    int i = 0;
+
+    for(int id: ids) {
+      values[i++] = id;
+    }
+
+    return values;
+  }
+}
@@ -0,0 +1,105 @@
+package mediarental;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Helpers for tests that work with catalog directories
+ */
+class TestCatalogs {
+  // media files are written with the default charset
+  private static final Charset CHARSET = Charset.defaultCharset();
+
+  // how far back backdate() moves modification times, well past the racy window of manifests and snapshots
+  private static final long BACKDATE = 60000;
+
+  /**
+   * Only used through the static methods
+   */
+  private TestCatalogs() {
+  }
+
+  /**
+   * Writes a synthetic catalog with ids 1 to count
+   * @param directory The directory to write to
+   * @param count The number of media to write
+   * @throws IOException If the catalog could not be written
+   */
+  static void write(File directory, int count) throws IOException {
+    new CatalogGenerator(11, 1, 1, 1).writeDirectory(directory, count);
+  }
+
+  /**
+   * Moves the modification time of every media file in a directory a minute into the past, so a
+   * manifest or snapshot written now can trust them
+   * @param directory The catalog directory
+   * @throws IOException If a modification time could not be changed
+   */
+  static void backdate(File directory) throws IOException {
+    FileTime time = FileTime.fromMillis(System.currentTimeMillis() - BACKDATE);
+
+    for(File file: directory.listFiles()) {
+      if(!file.getName().startsWith(".")) {
+        Files.setLastModifiedTime(file.toPath(), time);
+      }
+    }
+  }
+
+  /**
+   * Loads a catalog, then closes the manager so anything written on close, such as a manifest or 
+   * snapshot, is written
+   * @param manager The manager to load with
+   * @param directory The catalog directory
+   * @param id The id of a media to get
+   * @return The media with the id, as loaded
+   * @throws Exception If the catalog could not be loaded or closed
+   */
+  static Media loadAndClose(Manager manager, File directory, int id) throws Exception {
+    manager.load(directory);
+    Media item = manager.getById(id);
+    manager.close();
+
+    return item;
+  }
+
+  /**
+   * Gets the file a media is saved to
+   * @param directory The catalog directory
+   * @param media The media
+   * @return The media's file
+   */
+  static File getFile(File directory, Media media) {
+    return new MediaDirectory(directory).getFile(media);
+  }
+
+  /**
+   * Reads a media file
+   * @param file The file
+   * @return The contents of the file
+   * @throws IOException If the file could not be read
+   */
+  static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), CHARSET);
+  }
+
+  /**
+   * Replaces the title in a media file with one of the same length, without changing the file's size
+   * or modification time, so only reading the file shows the change
+   * @param file The media file
+   * @param title The old title
+   * @return The new title
+   * @throws IOException If the file could not be changed
+   */
+  static String changeTitleUnnoticed(File file, String title) throws IOException {
+    FileTime modified = Files.getLastModifiedTime(file.toPath());
+    String changed = title.toUpperCase();
+
+    Files.write(file.toPath(), read(file).replace(title, changed).getBytes(CHARSET));
+    Files.setLastModifiedTime(file.toPath(), modified);
+
+    return changed;
+  }
+}
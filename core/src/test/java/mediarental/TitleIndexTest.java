@@ -0,0 +1,150 @@
+package mediarental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that TitleIndex gives every title containing a query as a candidate, for queries of any
+ * length, after titles are removed, and after the index is written and read back
+ */
+public class TitleIndexTest {
+  // characters titles and queries are made of, few enough that most grams are shared
+  private static final String LETTERS = "abcde ";
+
+  /**
+   * Queries of 1 and 2 characters give exactly the titles that contain them, without a scan
+   */
+  @Test
+  public void shortQueriesAreExact() {
+    TitleIndex index = new TitleIndex();
+    index.add(new EBook(1, "Abba", 2000, false, 3));
+    index.add(new EBook(2, "cab", 2000, false, 3));
+    index.add(new EBook(3, "d", 2000, false, 3));
+
+    assertIds(new int[] {1, 2}, index.candidates("a"));
+    assertIds(new int[] {1}, index.candidates("bb"));
+    assertIds(new int[] {2}, index.candidates("ca"));
+    assertIds(new int[] {3}, index.candidates("d"));
+    assertIds(new int[0], index.candidates("x"));
+    assertIds(new int[0], index.candidates("ad"));
+    assertEquals(2, index.estimate("b"));
+    assertNull(index.candidates(""));
+  }
+
+  /**
+   * Removing a title with repeated grams removes its id from every posting list once, and leaves
+   * the ids of other titles in the order they were added
+   */
+  @Test
+  public void removeLeavesOtherTitles() {
+    TitleIndex index = new TitleIndex();
+    EBook repeated = new EBook(2, "aaaa aaaa", 2000, false, 3);
+    index.add(new EBook(1, "a", 2000, false, 3));
+    index.add(repeated);
+    index.add(new EBook(3, "aaa", 2000, false, 3));
+
+    index.remove(repeated);
+
+    assertIds(new int[] {1, 3}, index.candidates("a"));
+    assertIds(new int[] {3}, index.candidates("aa"));
+    assertIds(new int[] {3}, index.candidates("aaa"));
+    assertIds(new int[0], index.candidates("a a"));
+  }
+
+  /**
+   * Random titles and queries of every length, through adds that grow the gram table, removals, and
+   * writing and reading the index, always include every title that contains the query
+   * @throws Exception If the index could not be written or read
+   */
+  @Test
+  public void candidatesIncludeEveryMatch() throws Exception {
+    Random random = new Random(14);
+    List<Media> items = new ArrayList<Media>();
+    TitleIndex index = new TitleIndex();
+
+    for(int id = 1; id <= 3000; id++) {
+      // enough characters that the table has to grow past its initial size
+      Media item = new EBook(id, randomText(random, 1 + random.nextInt(12)) + (char) ('f' + id % 400), 2000, false, 3);
+      items.add(item);
+      index.add(item);
+    }
+
+    for(int i = 0; i < items.size(); i += 3) {
+      index.remove(items.get(i));
+      items.set(i, null);
+    }
+
+    assertCandidates(random, items, index);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    index.write(new DataOutputStream(bytes));
+
+    assertCandidates(random, items, TitleIndex.read(ByteBuffer.wrap(bytes.toByteArray())));
+  }
+
+  /**
+   * Checks random queries against every title
+   * @param random The random number generator
+   * @param items The indexed Media, with null for removed ones
+   * @param index The index
+   */
+  private static void assertCandidates(Random random, List<Media> items, TitleIndex index) {
+    for(int i = 0; i < 500; i++) {
+      String query = randomText(random, 1 + random.nextInt(5));
+      int[] candidates = index.candidates(query);
+      HashSet<Integer> found = new HashSet<Integer>();
+
+      for(int id: candidates) {
+        found.add(id);
+      }
+
+      assertEquals(query, candidates.length, index.estimate(query));
+
+      for(Media item: items) {
+        if(item != null && item.getTitle().contains(query)) {
+          assertTrue(query + " in " + item.getTitle(), found.contains(item.getId()));
+        } else if(item != null && query.length() < 3) {
+          assertFalse(query + " not in " + item.getTitle(), found.contains(item.getId()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates random text from a few letters
+   * @param random The random number generator
+   * @param length The length of the text
+   * @return The text
+   */
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder();
+
+    for(int i = 0; i < length; i++) {
+      text.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Checks the candidates for a query
+   * @param expected The expected ids, in order
+   * @param actual The candidates
+   */
+  private static void assertIds(int[] expected, int[] actual) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+}